@@ -28,8 +28,34 @@ public final class Config {
 
     public static final boolean WAIT_FOR_SENSORS = false; //Determines whether the program should start immediately or first create all the sensors
 
-    //Paths to the map.png file and the mapData.txt file
+    //Steers continuously along the paths instead of stopping at each waypoint (see MyNavigator.setPurePursuit()). TODO Check on the robot
+    public static final boolean PURE_PURSUIT = false;
+
+    //Searches the whole map for the robot when the readings stop matching the particles (see RobotPoseProvider). TODO Check on the robot
+    public static final boolean LOCALIZE_GLOBALLY_WHEN_LOST = false;
+
+    public static final boolean PARALLEL_PARTICLE_UPDATES = false; //Splits the particle updates across all the computer's cores. Only used in SIM mode.
+
+    //Paths to the map.png file and the map data file (binary format, see MapDataFile). The CSV file is only written if asked for.
     public static final String MAP_PATH = "res/map.png";
-    public static final String DATA_PC_PATH = "res/mapData.txt";
-    public static final String DATA_EV3_PATH = "/mapData.txt";
+    public static final String DATA_PC_PATH = "res/mapData.bin";
+    public static final String DATA_EV3_PATH = "/mapData.bin";
+    public static final String DATA_PC_CSV_PATH = "res/mapData.txt";
+
+    //The EV3 reads the map in tiles of MAP_TILE_SIZE x MAP_TILE_SIZE mm and keeps at most MAP_MAX_TILES in memory (see TiledMapDataReader).
+    //MAP_MAX_TILES = 0 loads the whole map at startup instead.
+    public static final int MAP_TILE_SIZE = 64;
+    public static final int MAP_MAX_TILES = 96;
+
+    //Routes between the important points planned by RouteTableGenerator. Upload to the EV3 with the image uploader.
+    public static final String ROUTES_PC_PATH = "res/routes.bin";
+    public static final String ROUTES_EV3_PATH = "/routes.bin";
+
+    //Files used to only regenerate what changed. See ImageGenerator and DirtyRegions.
+    public static final String MAP_MANIFEST_PATH = "res/map.manifest";
+    public static final String MAP_DIRTY_PATH = "res/mapDirty.txt";
+
+    //Records the pilot's moves and the estimated poses to MOTION_LOG_PATH to calibrate the motion model (see MotionModelCalibrator).
+    public static final boolean RECORD_MOTION = false;
+    public static final String MOTION_LOG_PATH = "motionLog.txt";
 }
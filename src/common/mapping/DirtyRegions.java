@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package common.mapping;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Areas of the map image that changed since the map data was last generated.
+ * ImageGenerator adds the areas it repaints and DataGenerator recomputes the map data around them then clears the list.
+ * <p>
+ * File format : one box per line "minX minY maxX maxY" in image pixels (swing coordinates, inclusive).
+ * An empty file means the map data is up to date. No file means the changes are unknown (everything must be regenerated).
+ */
+public final class DirtyRegions {
+    private DirtyRegions() {
+    }
+
+    /**
+     * A box of pixels. Both corners are included.
+     */
+    public static final class Box {
+        public final int minX;
+        public final int minY;
+        public final int maxX;
+        public final int maxY;
+
+        public Box(int minX, int minY, int maxX, int maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Box)) return false;
+
+            Box box = (Box) o;
+            return minX == box.minX && minY == box.minY && maxX == box.maxX && maxY == box.maxY;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((minX * 31 + minY) * 31 + maxX) * 31 + maxY;
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return minX + " " + minY + " " + maxX + " " + maxY;
+        }
+
+        @NotNull
+        @Contract(pure = true)
+        static Box parse(@NotNull String line) {
+            String[] values = line.trim().split(" ");
+
+            return new Box(
+                    Integer.parseInt(values[0]),
+                    Integer.parseInt(values[1]),
+                    Integer.parseInt(values[2]),
+                    Integer.parseInt(values[3])
+            );
+        }
+    }
+
+    /**
+     * @return the boxes in the file or null if the file doesn't exist (changes unknown)
+     */
+    @Nullable
+    public static List<Box> load(@NotNull File file) {
+        if (!file.exists()) return null;
+
+        List<Box> boxes = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.trim().isEmpty()) boxes.add(Box.parse(line));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+
+        return boxes;
+    }
+
+    /**
+     * Adds the boxes to the ones already in the file (creates the file if needed)
+     */
+    public static void add(@NotNull File file, @NotNull List<Box> boxes) {
+        try (Writer writer = new FileWriter(file, true)) {
+            for (Box box : boxes) {
+                writer.append(box.toString()).append("\n");
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
+
+    /**
+     * Marks the map data as up to date
+     */
+    public static void clear(@NotNull File file) {
+        try {
+            new FileWriter(file).close();
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package common.mapping;
+
+import lejos.robotics.geometry.Point;
+
+/**
+ * Dimensions of the field used both to paint the map image (see ImageGenerator) and as the obstacles the paths go around
+ * (see MapOperations).
+ * <p>
+ * The points are in the robot's coordinates : (0, 0) is the bottom left corner of the field and y goes up.
+ * The image's y goes down so a point is at FIELD_HEIGHT - y in the image.
+ */
+public final class FieldGeometry {
+    public static final float FIELD_WIDTH = 2362;
+    public static final float FIELD_HEIGHT = 1143;
+
+    public static final float WATER_WIDTH = 412.5F; //The boats are in the water along the left side of the field
+
+    //Centers of the containers' bases
+    public static final Point CONTAINER_TOP_LEFT = new Point(871.5F, 756);
+    public static final Point CONTAINER_TOP_RIGHT = new Point(1303.5F, 827);
+    public static final Point CONTAINER_BOTTOM_LEFT = new Point(797.5F, 333);
+    public static final Point CONTAINER_BOTTOM_RIGHT = new Point(1235.5F, 404);
+
+    public static final float CONTAINER_BASE_SIZE = 88; //Side of the grey square
+    public static final float CONTAINER_BASE_INNER_SIZE = 48; //Side of the white square in the middle of the grey one
+
+    public static final float START_AREA_SIZE = 250; //Side of the white square of the starting area. The robot must fit in it.
+}
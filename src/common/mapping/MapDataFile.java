@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package common.mapping;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Binary format of the map data. Much faster to load than the CSV format since there is nothing to parse.
+ * <p>
+ * Header (big endian) : MAGIC (int), VERSION (int), width (int), height (int), offset (float), scale (float)
+ * Followed by width * height unsigned bytes, one per cell, row by row starting at y = 0.
+ * The value of a cell is offset + scale * byte.
+ */
+public final class MapDataFile {
+    private static final int MAGIC = 0x57524F4D; //"WROM"
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 6 * 4;
+
+    //Map values are between 0 and 1 and rounded to 0.01 by the DataGenerator so this keeps all the precision
+    static final float OFFSET = 0;
+    static final float SCALE = 0.01F;
+
+    /**
+     * @return true if the file starts with the binary map header
+     */
+    static boolean isBinaryMap(@NotNull File file) {
+        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+            return file.length() >= HEADER_SIZE && dis.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the values to a file in the binary format
+     *
+     * @param values values[y][x]
+     */
+    public static void write(@NotNull File file, @NotNull float[][] values) throws IOException {
+        try (DataOutputStream dos = openForWriting(file, values[0].length, values.length)) {
+            for (float[] row : values) {
+                writeRow(dos, row);
+            }
+        }
+    }
+
+    /**
+     * Creates the file and writes the header. The rows must then be written in order with {@link #writeRow(DataOutputStream, float[])}.
+     * Allows writing the map without having all of it in memory.
+     */
+    @NotNull
+    public static DataOutputStream openForWriting(@NotNull File file, int width, int height) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+        dos.writeInt(MAGIC);
+        dos.writeInt(VERSION);
+        dos.writeInt(width);
+        dos.writeInt(height);
+        dos.writeFloat(OFFSET);
+        dos.writeFloat(SCALE);
+
+        return dos;
+    }
+
+    public static void writeRow(@NotNull DataOutputStream dos, @NotNull float[] row) throws IOException {
+        for (float value : row) {
+            dos.writeByte(quantize(value));
+        }
+    }
+
+    /**
+     * Writes an already quantized map (ex. a pyramid level) to a file in the binary format
+     */
+    public static void write(@NotNull File file, @NotNull MapDataReader map) throws IOException {
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+            dos.writeInt(map.getWidth());
+            dos.writeInt(map.getHeight());
+            dos.writeFloat(map.getOffset());
+            dos.writeFloat(map.getScale());
+
+            for (int y = 0; y < map.getHeight(); y++) {
+                for (int x = 0; x < map.getWidth(); x++) {
+                    dos.writeByte(map.getCell(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the magic number and version of a binary map. The next values are width, height, offset and scale.
+     */
+    static void checkHeader(@NotNull DataInput input, @NotNull File file) throws IOException {
+        if (input.readInt() != MAGIC) throw new IOException("Not a binary map file : " + file);
+        if (input.readInt() != VERSION) throw new IOException("Unsupported binary map version : " + file);
+    }
+
+    /**
+     * Reads a binary map by memory mapping the file and copying the cells in a single bulk read
+     */
+    @NotNull
+    static MapDataReader read(@NotNull File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a binary map file : " + file);
+            if (buffer.getInt() != VERSION) throw new IOException("Unsupported binary map version : " + file);
+
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            float offset = buffer.getFloat();
+            float scale = buffer.getFloat();
+
+            byte[] cells = new byte[width * height];
+            buffer.get(cells);
+
+            return new MapDataReader(width, height, offset, scale, cells);
+        }
+    }
+
+    @Contract(pure = true)
+    static int quantize(float value) {
+        return Math.max(0, Math.min(255, Math.round((value - OFFSET) / SCALE)));
+    }
+}
@@ -6,26 +6,201 @@ package common.mapping;
 
 import lejos.robotics.geometry.Point;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Reads the map data generated by the DataGenerator.
+ * Reads the binary format ({@link MapDataFile}) if the file has its header, otherwise falls back to the CSV format.
+ * <p>
+ * The values are stored in a single row-major byte array (one quantized byte per cell, value = offset + scale * byte)
+ * instead of a float[][] to use a quarter of the memory and avoid the double indirection.
+ * <p>
+ * Every cell is read through {@link #getCell(int, int)} so that a subclass can store the cells differently
+ * (see {@link TiledMapDataReader}).
+ */
 public class MapDataReader {
-    private final float[][] values;
+    /**
+     * How to get the value of a point that isn't exactly on a cell
+     */
+    public enum Sampling {
+        NEAREST, //Value of the cell containing the point
+        BILINEAR //Weighted average of the 4 closest cell centers
+    }
+
+    private final int width;
+    private final int height;
+    private final float offset;
+    private final float scale;
+
+    //Cell (x, y) is at index y * width + x. null if a subclass stores the cells.
+    @Nullable
+    private final byte[] cells;
 
     public MapDataReader(String fileName) {
-        BufferedReader reader = getReader(fileName);
-        List<String[]> stringValues = readFromReader(reader);
-        values = convertToValues(stringValues);
+        this(load(new File(fileName)));
+    }
+
+    MapDataReader(int width, int height, float offset, float scale, @Nullable byte[] cells) {
+        this.width = width;
+        this.height = height;
+        this.offset = offset;
+        this.scale = scale;
+        this.cells = cells;
+    }
+
+    private MapDataReader(@NotNull MapDataReader other) {
+        this(other.width, other.height, other.offset, other.scale, other.cells);
     }
 
     public float getColorAtPoint(Point point) {
-        return values[(int) point.y][(int) point.x];
+        return getColorAtPoint(point.x, point.y);
+    }
+
+    /**
+     * @return the value of the cell containing (x, y). The point must be on the map (see {@link #contains(float, float)})
+     */
+    public float getColorAtPoint(float x, float y) {
+        return offset + scale * getCellAtPoint(x, y);
+    }
+
+    public float getColorAtPoint(float x, float y, @NotNull Sampling sampling) {
+        if (sampling == Sampling.NEAREST) {
+            return getColorAtPoint(x, y);
+        }
+
+        return getBilinearColor(x, y);
+    }
+
+    /**
+     * Gets the value at many points at once
+     *
+     * @param numPoints number of points to get from the start of the arrays
+     * @param results   array where the value at (xs[i], ys[i]) is written at index i
+     */
+    public void getColorsAtPoints(@NotNull float[] xs, @NotNull float[] ys, int numPoints, @NotNull float[] results, @NotNull Sampling sampling) {
+        if (sampling == Sampling.NEAREST) {
+            for (int i = 0; i < numPoints; i++) {
+                results[i] = offset + scale * getCell((int) xs[i], (int) ys[i]);
+            }
+        } else {
+            for (int i = 0; i < numPoints; i++) {
+                results[i] = getBilinearColor(xs[i], ys[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the raw (quantized) value of the cell containing (x, y), between 0 and 255
+     */
+    public int getCellAtPoint(float x, float y) {
+        return getCell((int) x, (int) y);
+    }
+
+    /**
+     * @return the raw value of cell (x, y), between 0 and 255
+     */
+    @SuppressWarnings("ConstantConditions")
+    int getCell(int x, int y) {
+        return cells[y * width + x] & 0xFF;
+    }
+
+    /**
+     * Cell centers are at (x + 0.5, y + 0.5). Points closer to the edge than half a cell use the edge cells.
+     */
+    private float getBilinearColor(float x, float y) {
+        float u = clamp(x - 0.5F, width - 1);
+        float v = clamp(y - 0.5F, height - 1);
+
+        int x0 = (int) u;
+        int y0 = (int) v;
+        int x1 = Math.min(x0 + 1, width - 1);
+        int y1 = Math.min(y0 + 1, height - 1);
+
+        float fractionX = u - x0;
+        float fractionY = v - y0;
+
+        float bottom = getCell(x0, y0) * (1 - fractionX) + getCell(x1, y0) * fractionX;
+        float top = getCell(x0, y1) * (1 - fractionX) + getCell(x1, y1) * fractionX;
+
+        return offset + scale * (bottom * (1 - fractionY) + top * fractionY);
+    }
+
+    private static float clamp(float value, float max) {
+        return Math.max(0, Math.min(max, value));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Value of a cell is offset + scale * {@link #getCellAtPoint(float, float)}
+     */
+    public float getOffset() {
+        return offset;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    /**
+     * Creates a map at half the resolution where each cell is the average of a 2x2 block of this map's cells.
+     * Used to build the {@link MapPyramid}.
+     */
+    @NotNull
+    public MapDataReader downsample() {
+        int newWidth = (width + 1) / 2;
+        int newHeight = (height + 1) / 2;
+
+        byte[] newCells = new byte[newWidth * newHeight];
+
+        for (int y = 0; y < newHeight; y++) {
+            for (int x = 0; x < newWidth; x++) {
+                int sum = 0;
+                int count = 0;
+
+                for (int oldY = 2 * y; oldY < Math.min(2 * y + 2, height); oldY++) {
+                    for (int oldX = 2 * x; oldX < Math.min(2 * x + 2, width); oldX++) {
+                        sum += getCell(oldX, oldY);
+                        count++;
+                    }
+                }
+
+                newCells[y * newWidth + x] = (byte) Math.round((float) sum / count);
+            }
+        }
+
+        return new MapDataReader(newWidth, newHeight, offset, scale, newCells);
     }
 
     public boolean contains(Point point) {
-        return 0 <= point.x && point.x < values[0].length && 0 <= point.y && point.y < values.length;
+        return contains(point.x, point.y);
+    }
+
+    public boolean contains(float x, float y) {
+        return 0 <= x && x < width && 0 <= y && y < height;
+    }
+
+    @NotNull
+    private static MapDataReader load(@NotNull File file) {
+        if (MapDataFile.isBinaryMap(file)) {
+            try {
+                return MapDataFile.read(file);
+            } catch (IOException e) {
+                throw new RuntimeException(e.toString());
+            }
+        }
+
+        return convertToMap(readFromReader(getReader(file.getPath())));
     }
 
     @NotNull
@@ -59,15 +234,19 @@ public class MapDataReader {
         return stringValues;
     }
 
-    private static float[][] convertToValues(@NotNull List<String[]> stringValues) {
-        float[][] values = new float[stringValues.size()][stringValues.get(0).length];
+    @NotNull
+    private static MapDataReader convertToMap(@NotNull List<String[]> stringValues) {
+        int width = stringValues.get(0).length;
+        int height = stringValues.size();
+
+        byte[] cells = new byte[width * height];
 
-        for (int y = 0; y < stringValues.size(); y++) {
-            for (int x = 0; x < stringValues.get(0).length; x++) {
-                values[y][x] = Float.valueOf(stringValues.get(y)[x]);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                cells[y * width + x] = (byte) MapDataFile.quantize(Float.valueOf(stringValues.get(y)[x]));
             }
         }
 
-        return values;
+        return new MapDataReader(width, height, MapDataFile.OFFSET, MapDataFile.SCALE, cells);
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package common.mapping;
+
+import common.logger.Logger;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * The map data at several resolutions (like a mipmap). Level 0 is the full map and each level halves the resolution
+ * so a cell of level n covers 2^n x 2^n cells of the full map.
+ * Used for global localization to quickly score many poses on a coarse level before looking at the details.
+ * <p>
+ * All the methods take points in full map coordinates (mm).
+ */
+public final class MapPyramid {
+    private static final String LOG_TAG = MapPyramid.class.getSimpleName();
+
+    public static final int NUM_LEVELS = 6; //Coarsest level has cells of 32 x 32 mm
+
+    @NotNull
+    private final MapDataReader[] levels;
+
+    /**
+     * Loads the levels written by the DataGenerator next to the full map (see {@link #getLevelPath(String, int)}).
+     * Levels that don't have a file are calculated from the previous level. This reads every cell of the previous level
+     * (through the tile cache on the EV3) so the files should be uploaded with the map.
+     *
+     * @param fullMap  level 0
+     * @param basePath path of the full map's file
+     */
+    public MapPyramid(@NotNull MapDataReader fullMap, @NotNull String basePath, int numLevels) {
+        levels = new MapDataReader[numLevels];
+        levels[0] = fullMap;
+
+        boolean warned = false;
+
+        for (int level = 1; level < numLevels; level++) {
+            File levelFile = new File(getLevelPath(basePath, level));
+
+            if (levelFile.exists()) {
+                levels[level] = new MapDataReader(levelFile.getPath());
+            } else {
+                if (!warned) Logger.warning(LOG_TAG, "No file for level " + level + " at " + levelFile + ". Calculating the missing levels.");
+                warned = true;
+
+                levels[level] = levels[level - 1].downsample();
+            }
+        }
+    }
+
+    public int getNumLevels() {
+        return levels.length;
+    }
+
+    @NotNull
+    public MapDataReader getLevel(int level) {
+        return levels[level];
+    }
+
+    /**
+     * @return the size of one cell of the level in full map coordinates
+     */
+    @Contract(pure = true)
+    public static int getCellSize(int level) {
+        return 1 << level;
+    }
+
+    public boolean contains(int level, float x, float y) {
+        int cellSize = getCellSize(level);
+        return levels[level].contains(x / cellSize, y / cellSize);
+    }
+
+    /**
+     * @return the raw (quantized) value of the cell of the level containing (x, y)
+     */
+    public int getCellAtPoint(int level, float x, float y) {
+        int cellSize = getCellSize(level);
+        return levels[level].getCellAtPoint(x / cellSize, y / cellSize);
+    }
+
+    /**
+     * Ex. res/mapData.bin level 2 --> res/mapData_2.bin
+     */
+    @NotNull
+    @Contract(pure = true)
+    public static String getLevelPath(@NotNull String basePath, int level) {
+        int extensionStart = basePath.lastIndexOf('.');
+
+        if (extensionStart <= basePath.lastIndexOf('/')) return basePath + "_" + level;
+
+        return basePath.substring(0, extensionStart) + "_" + level + basePath.substring(extensionStart);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package common.mapping;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Map data that is read from the binary map file ({@link MapDataFile}) one square tile at a time, when a cell of the tile
+ * is first needed. At most maxTiles tiles are kept in memory, the least recently used tile is dropped to make room.
+ * <p>
+ * Used on the EV3 where the robot only looks at the map around its particles. Opening the map only reads the header
+ * and the memory used is fixed (maxTiles * tileSize^2 bytes). Doesn't create any objects once the cache is full.
+ * <p>
+ * Not thread safe : getCell() runs for every particle so it doesn't lock. Only one thread at a time may read the map.
+ * On the robot the map is only read by the pose provider's updater and global localization, which both hold the pose provider's lock.
+ * The statistics aren't locked either so reading them from another thread gives approximate counts.
+ */
+public final class TiledMapDataReader extends MapDataReader {
+    @NotNull
+    private final RandomAccessFile file;
+
+    //Tiles are tileSize x tileSize cells where tileSize = 2^tileShift so that the tile of a cell is found with shifts
+    private final int tileShift;
+    private final int tileMask;
+    private final int tilesX;
+
+    //tiles[tileY * tilesX + tileX] cells of the tile (cell (x, y) of the tile at y * tileSize + x). null if not loaded.
+    @NotNull
+    private final byte[][] tiles;
+    private final int maxTiles;
+    private int numLoadedTiles;
+
+    //Loaded tiles from the most recently used (head) to the least recently used (tail) as a doubly linked list of tile indexes
+    @NotNull
+    private final int[] previousTile;
+    @NotNull
+    private final int[] nextTile;
+    private int head = -1;
+    private int tail = -1;
+
+    private long hitCount;
+    private long missCount;
+
+    private TiledMapDataReader(@NotNull RandomAccessFile file, int width, int height, float offset, float scale,
+                               int tileShift, int maxTiles) {
+        super(width, height, offset, scale, null);
+
+        this.file = file;
+        this.tileShift = tileShift;
+        this.tileMask = (1 << tileShift) - 1;
+        this.maxTiles = maxTiles;
+
+        int tileSize = 1 << tileShift;
+
+        tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+
+        tiles = new byte[tilesX * tilesY][];
+        previousTile = new int[tiles.length];
+        nextTile = new int[tiles.length];
+    }
+
+    /**
+     * Opens the binary map file and only reads its header
+     *
+     * @param tileSize number of cells on each side of a tile. Must be a power of 2.
+     * @param maxTiles maximum number of tiles kept in memory
+     */
+    @NotNull
+    public static TiledMapDataReader open(@NotNull String fileName, int tileSize, int maxTiles) {
+        if (Integer.bitCount(tileSize) != 1) throw new IllegalArgumentException("Tile size must be a power of 2 : " + tileSize);
+        if (maxTiles < 1) throw new IllegalArgumentException("At least one tile must fit in the cache");
+
+        File mapFile = new File(fileName);
+
+        try {
+            RandomAccessFile file = new RandomAccessFile(mapFile, "r");
+
+            MapDataFile.checkHeader(file, mapFile);
+
+            int width = file.readInt();
+            int height = file.readInt();
+            float offset = file.readFloat();
+            float scale = file.readFloat();
+
+            return new TiledMapDataReader(file, width, height, offset, scale, Integer.numberOfTrailingZeros(tileSize), maxTiles);
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
+
+    @Override
+    int getCell(int x, int y) {
+        int tile = (y >> tileShift) * tilesX + (x >> tileShift);
+        byte[] cells = tiles[tile];
+
+        if (cells == null) {
+            missCount++;
+            cells = loadTile(tile);
+        } else {
+            hitCount++;
+
+            if (tile != head) {
+                removeFromList(tile);
+                addToFront(tile);
+            }
+        }
+
+        return cells[((y & tileMask) << tileShift) + (x & tileMask)] & 0xFF;
+    }
+
+    /**
+     * Reads the tile from the file, reusing the memory of the least recently used tile if the cache is full
+     */
+    @NotNull
+    private byte[] loadTile(int tile) {
+        byte[] cells;
+
+        if (numLoadedTiles == maxTiles) {
+            int droppedTile = tail;
+
+            cells = tiles[droppedTile];
+            tiles[droppedTile] = null;
+            removeFromList(droppedTile);
+        } else {
+            cells = new byte[1 << (2 * tileShift)];
+            numLoadedTiles++;
+        }
+
+        int startX = (tile % tilesX) << tileShift;
+        int startY = (tile / tilesX) << tileShift;
+        int rowLength = Math.min(1 << tileShift, getWidth() - startX);
+        int numRows = Math.min(1 << tileShift, getHeight() - startY);
+
+        try {
+            for (int row = 0; row < numRows; row++) {
+                file.seek(MapDataFile.HEADER_SIZE + (long) (startY + row) * getWidth() + startX);
+                file.readFully(cells, row << tileShift, rowLength);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+
+        tiles[tile] = cells;
+        addToFront(tile);
+
+        return cells;
+    }
+
+    private void addToFront(int tile) {
+        previousTile[tile] = -1;
+        nextTile[tile] = head;
+
+        if (head != -1) previousTile[head] = tile;
+        head = tile;
+
+        if (tail == -1) tail = tile;
+    }
+
+    private void removeFromList(int tile) {
+        int previous = previousTile[tile];
+        int next = nextTile[tile];
+
+        if (previous == -1) head = next;
+        else nextTile[previous] = next;
+
+        if (next == -1) tail = previous;
+        else previousTile[next] = previous;
+    }
+
+    /**
+     * @return number of cell reads whose tile was already loaded
+     */
+    @Contract(pure = true)
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of tiles read from the file
+     */
+    @Contract(pure = true)
+    public long getMissCount() {
+        return missCount;
+    }
+
+    @Contract(pure = true)
+    public int getNumLoadedTiles() {
+        return numLoadedTiles;
+    }
+
+    public void close() {
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
+}
@@ -15,15 +15,39 @@ import java.io.IOException;
 /**
  * Transmittable object that contains the current pose and a set of particles
  * Used by the RobotPoseProvider (Particle algorithm)
+ * <p>
+ * The particles are stored as parallel primitive arrays (structure of arrays) so that the particle algorithm
+ * can update them without creating any objects. {@link Particle} objects are only created when asked for with
+ * {@link #getParticles()} (ex. by the GUI).
  */
 public class MCLData implements Transmittable {
+    //Particle i is (xs[i], ys[i], headings[i]) with weight weights[i]. Only the first numParticles values are used.
     @NotNull
-    protected Particle[] particles;
+    protected float[] xs;
+    @NotNull
+    protected float[] ys;
+    @NotNull
+    protected float[] headings;
+    @NotNull
+    protected float[] weights;
+    protected int numParticles;
+
+    //1 / sum(weight^2) for normalized weights. Around numParticles when weights are even, near 1 when one particle dominates.
+    protected float effectiveSampleSize;
+
     @NotNull
     protected Pose currentPose;
 
     public MCLData(@NotNull Particle[] particles, @NotNull Pose currentPose) {
-        this.particles = particles;
+        this(particles.length, currentPose);
+        setParticles(particles);
+    }
+
+    protected MCLData(int capacity, @NotNull Pose currentPose) {
+        this.xs = new float[capacity];
+        this.ys = new float[capacity];
+        this.headings = new float[capacity];
+        this.weights = new float[capacity];
         this.currentPose = currentPose;
     }
 
@@ -32,8 +56,25 @@ public class MCLData implements Transmittable {
         return currentPose;
     }
 
+    public int getNumParticles() {
+        return numParticles;
+    }
+
+    public float getEffectiveSampleSize() {
+        return effectiveSampleSize;
+    }
+
+    /**
+     * Creates a particle object for each particle. Should only be used outside of the particle algorithm.
+     */
     @NotNull
-    public Particle[] getParticles() {
+    public synchronized Particle[] getParticles() {
+        Particle[] particles = new Particle[numParticles];
+
+        for (int i = 0; i < numParticles; i++) {
+            particles[i] = new Particle(xs[i], ys[i], headings[i], weights[i]);
+        }
+
         return particles;
     }
 
@@ -41,32 +82,61 @@ public class MCLData implements Transmittable {
         this.currentPose = currentPose;
     }
 
-    public void setParticles(@NotNull Particle[] particles) {
-        this.particles = particles;
+    public synchronized void setParticles(@NotNull Particle[] particles) {
+        ensureCapacity(particles.length);
+
+        for (int i = 0; i < particles.length; i++) {
+            Pose pose = particles[i].getPose();
+            xs[i] = pose.getX();
+            ys[i] = pose.getY();
+            headings[i] = pose.getHeading();
+            weights[i] = particles[i].weight;
+        }
+
+        numParticles = particles.length;
+    }
+
+    /**
+     * Makes sure the arrays can hold at least capacity particles. Existing values are not kept.
+     */
+    protected void ensureCapacity(int capacity) {
+        if (xs.length < capacity) {
+            xs = new float[capacity];
+            ys = new float[capacity];
+            headings = new float[capacity];
+            weights = new float[capacity];
+        }
     }
 
     public synchronized void dumpObject(@NotNull DataOutputStream dos) throws IOException {
         currentPose.dumpObject(dos);
 
-
-        dos.writeInt(particles.length);
-        for (Particle particle : particles) {
-            particle.getPose().dumpObject(dos);
-            dos.writeFloat(particle.weight);
+        //Same format as Pose.dumpObject() followed by the weight
+        dos.writeInt(numParticles);
+        for (int i = 0; i < numParticles; i++) {
+            dos.writeFloat(xs[i]);
+            dos.writeFloat(ys[i]);
+            dos.writeFloat(headings[i]);
+            dos.writeFloat(weights[i]);
         }
+
+        dos.writeFloat(effectiveSampleSize);
     }
 
     public synchronized void loadObject(@NotNull DataInputStream dis) throws IOException {
         this.currentPose = new Pose();
         this.currentPose.loadObject(dis);
 
-        particles = new Particle[dis.readInt()];
+        numParticles = dis.readInt();
+        ensureCapacity(numParticles);
 
-        for (int i = 0; i < particles.length; i++) {
-            Pose particlePose = new Pose();
-            particlePose.loadObject(dis);
-
-            particles[i] = new Particle(particlePose, dis.readFloat());
+        for (int i = 0; i < numParticles; i++) {
+            xs[i] = dis.readFloat();
+            ys[i] = dis.readFloat();
+            headings[i] = dis.readFloat();
+            weights[i] = dis.readFloat();
         }
+
+        effectiveSampleSize = dis.readFloat();
     }
-}
\ No newline at end of file
+}
@@ -5,136 +5,329 @@
 package datagenerator;
 
 import common.Config;
+import common.logger.Logger;
 import common.mapping.ColorJavaLejos;
+import common.mapping.DirtyRegions;
+import common.mapping.MapDataFile;
+import common.mapping.MapDataReader;
+import common.mapping.MapPyramid;
 import common.mapping.SurfaceMap;
-import lejos.robotics.geometry.Point;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
 
 /**
  * Reads the colors from the map image
+ * <p>
+ * Pipeline :
+ * 1. Convert the image to lejos values, one row at a time
+ * 2. Let the kernel prepare the image (ex. running sums of each row)
+ * 3. Average each pixel over the kernel (the spot the sensor sees). Rows are processed in parallel on all the cores.
+ * 4. Stream each row to the file in order as soon as it is done
+ * <p>
+ * Arguments : the kernels to generate a map for (see {@link SensorKernel#parse(String)}).
+ * Ex. "disc:10 gaussian:4 file:res/kernel.txt". No arguments generates the default map.
+ * Every kernel other than the default one writes to its own file (ex. res/mapData-gaussian-4.0.bin).
+ * <p>
+ * When no arguments are given and ImageGenerator recorded which parts of the image changed (see {@link DirtyRegions}),
+ * only the tiles of the default map within the kernel's reach of these parts are recomputed.
  */
 class DataGenerator {
-    // --Commented out by Inspection (25/04/18 8:37 PM):private static final String LOG_TAG = DataGenerator.class.getSimpleName();
+    private static final String LOG_TAG = DataGenerator.class.getSimpleName();
 
-    private static final int SCAN_RADIUS = 10;
+    private static final int SCAN_RADIUS = 10; //Radius of the default kernel
 
-    private static int width;
-    private static int height;
+    private static final boolean WRITE_CSV = false; //Also write the default map in the old CSV format (Config.DATA_PC_CSV_PATH)
+
+    static final int TILE_SIZE = 64; //Size of the squares of map data recomputed when only part of the image changed
 
     public static void main(String[] args) {
-        SurfaceMap surfaceMap = new SurfaceMap();
-
-        width = surfaceMap.getImage().getWidth();
-        height = surfaceMap.getImage().getHeight();
-
-        writeData(
-                createString(
-                        getAveragePixels(
-                                getPixels(surfaceMap)
-                        )
-                )
-        );
+        List<SensorKernel> kernels = new ArrayList<>();
+
+        for (String arg : args) {
+            kernels.add(SensorKernel.parse(arg));
+        }
+
+        float[][] pixels = getPixels(new SurfaceMap().getImage());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        try {
+            if (kernels.isEmpty()) {
+                generateDefaultMap(pixels, executor);
+            }
+
+            for (SensorKernel kernel : kernels) {
+                long startTime = System.currentTimeMillis();
+
+                String path = getMapPath(kernel);
+
+                writeData(generate(pixels, kernel, executor), path, WRITE_CSV && path.equals(Config.DATA_PC_PATH));
+                writePyramid(path);
+
+                Logger.info(LOG_TAG, "Generated " + path + " in " + (System.currentTimeMillis() - startTime) + " ms");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Generates the default map, only recomputing what changed if the changes are known
+     */
+    private static void generateDefaultMap(@NotNull float[][] pixels, @NotNull ExecutorService executor) {
+        long startTime = System.currentTimeMillis();
+
+        SensorKernel kernel = getDefaultKernel();
+        File dirtyFile = new File(Config.MAP_DIRTY_PATH);
+        List<DirtyRegions.Box> changedBoxes = DirtyRegions.load(dirtyFile);
+
+        MapDataReader previousMap = null;
+
+        if (changedBoxes != null && new File(Config.DATA_PC_PATH).exists()) {
+            previousMap = new MapDataReader(Config.DATA_PC_PATH);
+
+            if (previousMap.getWidth() != pixels[0].length || previousMap.getHeight() != pixels.length) previousMap = null;
+        }
+
+        if (previousMap == null) {
+            writeData(generate(pixels, kernel, executor), Config.DATA_PC_PATH, WRITE_CSV);
+            Logger.info(LOG_TAG, "Generated " + Config.DATA_PC_PATH + " in " + (System.currentTimeMillis() - startTime) + " ms");
+        } else if (changedBoxes.isEmpty()) {
+            Logger.info(LOG_TAG, Config.DATA_PC_PATH + " is up to date");
+            return;
+        } else {
+            boolean[][] dirtyTiles = getDirtyTiles(changedBoxes, pixels[0].length, pixels.length, kernel.getRadius());
+
+            writeData(regenerate(pixels, kernel, previousMap, dirtyTiles, executor), Config.DATA_PC_PATH, WRITE_CSV);
+            Logger.info(LOG_TAG, "Recomputed " + countTiles(dirtyTiles) + " tiles of " + Config.DATA_PC_PATH + " in " +
+                    (System.currentTimeMillis() - startTime) + " ms");
+        }
+
+        writePyramid(Config.DATA_PC_PATH);
+        DirtyRegions.clear(dirtyFile);
     }
 
-    private static float[][] getPixels(SurfaceMap surfaceMap) {
-        //Save each pixel to a 2D array
+    @NotNull
+    @Contract(" -> new")
+    static SensorKernel getDefaultKernel() {
+        return new DiscKernel(SCAN_RADIUS);
+    }
+
+    /**
+     * @return Config.DATA_PC_PATH for the default kernel, otherwise the path with the kernel name added
+     */
+    @NotNull
+    static String getMapPath(@NotNull SensorKernel kernel) {
+        if (kernel.getName().equals(getDefaultKernel().getName())) return Config.DATA_PC_PATH;
+
+        int extensionStart = Config.DATA_PC_PATH.lastIndexOf('.');
+
+        return Config.DATA_PC_PATH.substring(0, extensionStart) + "-" + kernel.getName() + Config.DATA_PC_PATH.substring(extensionStart);
+    }
+
+    /**
+     * @return pixels[y][x] in lejos coordinates (y = 0 is the bottom of the image)
+     */
+    @NotNull
+    static float[][] getPixels(@NotNull BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
         float[][] pixels = new float[height][width];
 
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                pixels[y][x] = ColorJavaLejos.getLejosColor(new Color(surfaceMap.getImage().getRGB(x, (int) getInvertedY(y)))); //Convert RGB to red value
+        //Only a few colors are used in the image so remember the conversion of each
+        Map<Integer, Float> lejosColors = new HashMap<>();
+        int[] rgbRow = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, height - 1 - y, width, 1, rgbRow, 0, width); //Swing y is inverted (top = 0)
+
+            for (int x = 0; x < width; x++) {
+                Float lejosColor = lejosColors.get(rgbRow[x]);
+
+                if (lejosColor == null) {
+                    lejosColor = ColorJavaLejos.getLejosColor(new Color(rgbRow[x])); //Convert RGB to red value
+                    lejosColors.put(rgbRow[x], lejosColor);
+                }
+
+                pixels[y][x] = lejosColor;
             }
         }
 
         return pixels;
     }
 
-    private static float[][] getAveragePixels(float[][] pixels) {
-        //Calculate average value
-        float[][] averageRed = new float[height][width];
+    /**
+     * Prepares the kernel then starts calculating every row on the executor
+     *
+     * @return the rows in order
+     */
+    @NotNull
+    static List<Future<float[]>> generate(@NotNull float[][] pixels, @NotNull final SensorKernel kernel, @NotNull ExecutorService executor) {
+        kernel.prepare(pixels, executor);
 
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                averageRed[y][x] = calculateAverageForPixel(pixels, x, y);
-            }
+        List<Future<float[]>> rows = new ArrayList<>(pixels.length);
+
+        for (int y = 0; y < pixels.length; y++) {
+            final int rowY = y;
+
+            rows.add(executor.submit(new Callable<float[]>() {
+                @Override
+                public float[] call() {
+                    return kernel.filterRow(rowY);
+                }
+            }));
         }
-        return averageRed;
+
+        return rows;
     }
 
-    private static float calculateAverageForPixel(float[][] pixels, int centerX, int centerY) {
-        float sum = 0;
-        int counter = 0;
+    /**
+     * Recomputes the dirty tiles and copies the others from the previous map data
+     *
+     * @param dirtyTiles dirtyTiles[tileY][tileX], see {@link #getDirtyTiles(List, int, int, int)}
+     * @return the rows in order
+     */
+    @NotNull
+    static List<Future<float[]>> regenerate(@NotNull float[][] pixels, @NotNull final SensorKernel kernel,
+                                            @NotNull final MapDataReader previousMap, @NotNull final boolean[][] dirtyTiles,
+                                            @NotNull ExecutorService executor) {
+        kernel.prepare(pixels, executor);
+
+        final int width = pixels[0].length;
+
+        List<Future<float[]>> rows = new ArrayList<>(pixels.length);
+
+        for (int y = 0; y < pixels.length; y++) {
+            final int rowY = y;
+
+            rows.add(executor.submit(new Callable<float[]>() {
+                @Override
+                public float[] call() {
+                    float[] row = new float[width];
+                    boolean[] dirtyTileRow = dirtyTiles[rowY / TILE_SIZE];
+
+                    for (int x = 0; x < width; x++) {
+                        row[x] = previousMap.getColorAtPoint(x, rowY);
+                    }
+
+                    for (int tileX = 0; tileX < dirtyTileRow.length; tileX++) {
+                        if (!dirtyTileRow[tileX]) continue;
+
+                        int startX = tileX * TILE_SIZE;
+                        int endX = Math.min(width, startX + TILE_SIZE);
 
-        //Loop through every pixel in the circle
-        for (int x = centerX - SCAN_RADIUS; x <= centerX + SCAN_RADIUS; x++) {
-            for (int y = centerY - SCAN_RADIUS; y <= centerY + SCAN_RADIUS; y++) {
-                if (new Point(centerX, centerY).distance(x, y) < SCAN_RADIUS && contains(x, y)) { //If (x,y) within circle
-                    sum += pixels[y][x];
-                    counter++;
+                        System.arraycopy(kernel.filterSpan(rowY, startX, endX), 0, row, startX, endX - startX);
+                    }
+
+                    return row;
                 }
-            }
+            }));
         }
 
-        return Math.round(100 * sum / counter) / 100.0F;
+        return rows;
     }
 
+    /**
+     * A pixel of the map data changes if a changed pixel of the image is within the kernel's radius
+     *
+     * @param changedBoxes changed pixels of the image (swing coordinates)
+     * @return dirtyTiles[tileY][tileX] true if the tile must be recomputed (lejos coordinates)
+     */
     @NotNull
-    private static String createString(float[][] averageRed) {
-        //Create a string with the data
-        StringBuilder writeData = new StringBuilder();
+    static boolean[][] getDirtyTiles(@NotNull List<DirtyRegions.Box> changedBoxes, int width, int height, int radius) {
+        int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+        boolean[][] dirtyTiles = new boolean[tilesY][tilesX];
+
+        for (DirtyRegions.Box box : changedBoxes) {
+            int minX = Math.max(0, box.minX - radius);
+            int maxX = Math.min(width - 1, box.maxX + radius);
+            int minY = Math.max(0, height - 1 - box.maxY - radius); //Swing y is inverted (top = 0)
+            int maxY = Math.min(height - 1, height - 1 - box.minY + radius);
 
-        for (float[] row : averageRed) {
-            for (float pixel : row) {
-                writeData.append(pixel).append(",");
+            if (minX > maxX || minY > maxY) continue; //Box is not on the image
+
+            for (int tileY = minY / TILE_SIZE; tileY <= maxY / TILE_SIZE; tileY++) {
+                for (int tileX = minX / TILE_SIZE; tileX <= maxX / TILE_SIZE; tileX++) {
+                    dirtyTiles[tileY][tileX] = true;
+                }
             }
-            writeData.append("\n");
         }
-        return writeData.toString();
+
+        return dirtyTiles;
     }
 
-    private static void writeData(String data) {
-        //Write the data to a file
-        FileOutputStream outputStream;
+    @Contract(pure = true)
+    private static int countTiles(@NotNull boolean[][] tiles) {
+        int count = 0;
+
+        for (boolean[] tileRow : tiles) {
+            for (boolean tile : tileRow) {
+                if (tile) count++;
+            }
+        }
+
+        return count;
+    }
 
+    /**
+     * Writes the rows to the binary file (and CSV file if enabled) in order, waiting for each row to be calculated
+     */
+    private static void writeData(@NotNull List<Future<float[]>> rows, @NotNull String path, boolean writeCsv) {
         try {
-            File file = new File(Config.DATA_PC_PATH);
+            int width = rows.get(0).get().length;
 
-            if (!file.exists()) //noinspection ResultOfMethodCallIgnored
-                file.createNewFile();
+            try (DataOutputStream binaryOutput = MapDataFile.openForWriting(new File(path), width, rows.size());
+                 Writer csvOutput = writeCsv ? new BufferedWriter(new FileWriter(Config.DATA_PC_CSV_PATH)) : null) {
 
-            outputStream = new FileOutputStream(file);
-            outputStream.write(data.getBytes());
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Unable to write to file " + e);
-        }
+                for (Future<float[]> row : rows) {
+                    float[] averageRow = row.get();
 
-        try {
-            outputStream.close();
-        } catch (IOException e) {
+                    MapDataFile.writeRow(binaryOutput, averageRow);
+                    writeCsvRow(csvOutput, averageRow);
+                }
+            }
+        } catch (IOException | InterruptedException | ExecutionException e) {
             e.printStackTrace();
+            throw new RuntimeException("Unable to write to file " + e);
         }
     }
 
-    @Contract(pure = true)
-    private static boolean contains(float x, float y) {
-        return 0 <= x && x < width && 0 <= y && y < height;
+    private static void writeCsvRow(@Nullable Writer csvOutput, @NotNull float[] averageRow) throws IOException {
+        if (csvOutput == null) return;
+
+        for (float pixel : averageRow) {
+            csvOutput.append(String.valueOf(pixel)).append(",");
+        }
+        csvOutput.append("\n");
     }
 
     /**
-     * Converts a y value from a lejos coordinate to a swing coordinate
-     *
-     * @param y y value from the lejos coordinates system (bottom = 0)
-     * @return y value from swing coordinates system (top = 0)
+     * Writes the lower resolution levels of the map used for global localization next to the full map
      */
-    @Contract(pure = true)
-    private static float getInvertedY(float y) {
-        return (height - 1 - y);
+    private static void writePyramid(@NotNull String path) {
+        MapDataReader level = new MapDataReader(path);
+
+        try {
+            for (int i = 1; i < MapPyramid.NUM_LEVELS; i++) {
+                level = level.downsample();
+                MapDataFile.write(new File(MapPyramid.getLevelPath(path, i)), level);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Unable to write to file " + e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package datagenerator;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Every pixel closer than the radius has the same weight (the original DataGenerator algorithm).
+ * Uses the running sum of each row (prefix sums) so that each row of the circle is added with 2 lookups.
+ */
+final class DiscKernel extends SensorKernel {
+    private final int radius;
+
+    //halfWidths[dy + radius] is the largest dx such that (dx, dy) is within the circle. -1 if no pixel of that row is.
+    @NotNull
+    private final int[] halfWidths;
+
+    //rowSums[y][x] is the sum of pixels[y][0] to pixels[y][x - 1]
+    private double[][] rowSums;
+
+    DiscKernel(int radius) {
+        this.radius = radius;
+        this.halfWidths = getCircleHalfWidths(radius);
+    }
+
+    @NotNull
+    @Override
+    String getName() {
+        return "disc-" + radius;
+    }
+
+    @Override
+    int getRadius() {
+        return radius;
+    }
+
+    @Override
+    void prepareImage(@NotNull float[][] pixels, @NotNull ExecutorService executor) {
+        rowSums = new double[height][width + 1];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                rowSums[y][x + 1] = rowSums[y][x] + pixels[y][x];
+            }
+        }
+    }
+
+    /**
+     * Same result as looping through every pixel of the circle but each row of the circle is added with the row sums.
+     */
+    @NotNull
+    @Override
+    float[] filterSpan(int centerY, int startX, int endX) {
+        float[] averageRow = new float[endX - startX];
+
+        for (int centerX = startX; centerX < endX; centerX++) {
+            double sum = 0;
+            int counter = 0;
+
+            for (int dy = -radius; dy <= radius; dy++) {
+                int y = centerY + dy;
+                int halfWidth = halfWidths[dy + radius];
+
+                if (halfWidth < 0 || y < 0 || y >= height) continue;
+
+                int start = Math.max(0, centerX - halfWidth);
+                int end = Math.min(width, centerX + halfWidth + 1);
+
+                sum += rowSums[y][end] - rowSums[y][start];
+                counter += end - start;
+            }
+
+            averageRow[centerX - startX] = round(sum / counter);
+        }
+
+        return averageRow;
+    }
+
+    @NotNull
+    @Contract(pure = true)
+    private static int[] getCircleHalfWidths(int radius) {
+        int[] halfWidths = new int[2 * radius + 1];
+
+        for (int dy = -radius; dy <= radius; dy++) {
+            int halfWidth = -1;
+
+            while (Math.sqrt((halfWidth + 1) * (halfWidth + 1) + dy * dy) < radius) halfWidth++;
+
+            halfWidths[dy + radius] = halfWidth;
+        }
+
+        return halfWidths;
+    }
+}
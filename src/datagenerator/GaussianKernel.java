@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package datagenerator;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Gaussian blur of standard deviation sigma, cut at 3 sigma. Models a sensor spot that is blurred because of the
+ * sensor's height.
+ * <p>
+ * A gaussian is separable so the image is first blurred horizontally (in prepare) then vertically (in filterRow).
+ * Each pixel costs 2 * (2 * radius + 1) operations instead of (2 * radius + 1)^2.
+ */
+final class GaussianKernel extends SensorKernel {
+    private final float sigma;
+    private final int radius;
+
+    //weights[d + radius] is the weight of a pixel d pixels away (in one direction)
+    @NotNull
+    private final double[] weights;
+
+    //Image blurred horizontally and the sum of the horizontal weights that were on the image for each x
+    private double[][] horizontalSums;
+    private double[] horizontalWeightSums;
+
+    GaussianKernel(float sigma) {
+        this.sigma = sigma;
+        this.radius = (int) Math.ceil(3 * sigma);
+        this.weights = new double[2 * radius + 1];
+
+        for (int d = -radius; d <= radius; d++) {
+            weights[d + radius] = Math.exp(-d * d / (2.0 * sigma * sigma));
+        }
+    }
+
+    @NotNull
+    @Override
+    String getName() {
+        return "gaussian-" + sigma;
+    }
+
+    @Override
+    int getRadius() {
+        return radius;
+    }
+
+    @Override
+    void prepareImage(@NotNull final float[][] pixels, @NotNull ExecutorService executor) {
+        horizontalSums = new double[height][];
+        horizontalWeightSums = new double[width];
+
+        for (int x = 0; x < width; x++) {
+            for (int d = Math.max(-radius, -x); d <= Math.min(radius, width - 1 - x); d++) {
+                horizontalWeightSums[x] += weights[d + radius];
+            }
+        }
+
+        List<Future<?>> rows = new ArrayList<>(height);
+
+        for (int y = 0; y < height; y++) {
+            final int rowY = y;
+
+            rows.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    horizontalSums[rowY] = blurRowHorizontally(pixels[rowY]);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> row : rows) row.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Failed to blur image " + e);
+        }
+    }
+
+    @NotNull
+    private double[] blurRowHorizontally(@NotNull float[] row) {
+        double[] blurredRow = new double[width];
+
+        for (int x = 0; x < width; x++) {
+            double sum = 0;
+
+            for (int d = Math.max(-radius, -x); d <= Math.min(radius, width - 1 - x); d++) {
+                sum += weights[d + radius] * row[x + d];
+            }
+
+            blurredRow[x] = sum;
+        }
+
+        return blurredRow;
+    }
+
+    @NotNull
+    @Override
+    float[] filterSpan(int centerY, int startX, int endX) {
+        double[] sums = new double[endX - startX];
+        double verticalWeightSum = 0;
+
+        for (int d = Math.max(-radius, -centerY); d <= Math.min(radius, height - 1 - centerY); d++) {
+            double weight = weights[d + radius];
+            double[] horizontalRow = horizontalSums[centerY + d];
+
+            for (int x = startX; x < endX; x++) {
+                sums[x - startX] += weight * horizontalRow[x];
+            }
+
+            verticalWeightSum += weight;
+        }
+
+        float[] averageRow = new float[endX - startX];
+
+        for (int x = startX; x < endX; x++) {
+            averageRow[x - startX] = round(sums[x - startX] / (horizontalWeightSums[x] * verticalWeightSum));
+        }
+
+        return averageRow;
+    }
+}
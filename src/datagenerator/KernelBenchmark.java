@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package datagenerator;
+
+import common.logger.Logger;
+import common.mapping.SurfaceMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares how long DataGenerator takes to average the map with different kernels and kernel sizes.
+ * Nothing is written to disk, only the averaging is timed.
+ * <p>
+ * Arguments : the kernels to compare (see {@link SensorKernel#parse(String)}). No arguments compares the default kernels.
+ */
+class KernelBenchmark {
+    private static final String LOG_TAG = KernelBenchmark.class.getSimpleName();
+
+    private static final String[] DEFAULT_KERNELS = {
+            "disc:5", "disc:10", "disc:20", "disc:40",
+            "gaussian:2", "gaussian:4", "gaussian:8", "gaussian:16"
+    };
+
+    private static final int WARM_UP_RUNS = 1;
+    private static final int MEASURED_RUNS = 3;
+
+    public static void main(String[] args) {
+        String[] specs = args.length == 0 ? DEFAULT_KERNELS : args;
+
+        float[][] pixels = DataGenerator.getPixels(new SurfaceMap().getImage());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        try {
+            for (String spec : specs) {
+                SensorKernel kernel = SensorKernel.parse(spec);
+
+                for (int i = 0; i < WARM_UP_RUNS; i++) {
+                    run(pixels, kernel, executor);
+                }
+
+                long bestTime = Long.MAX_VALUE;
+
+                for (int i = 0; i < MEASURED_RUNS; i++) {
+                    bestTime = Math.min(bestTime, run(pixels, kernel, executor));
+                }
+
+                Logger.info(LOG_TAG, kernel.getName() + " (radius " + kernel.getRadius() + ") : " + bestTime + " ms");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return time in ms to average every row
+     */
+    private static long run(@NotNull float[][] pixels, @NotNull SensorKernel kernel, @NotNull ExecutorService executor) {
+        long startTime = System.nanoTime();
+
+        List<Future<float[]>> rows = DataGenerator.generate(pixels, kernel, executor);
+
+        try {
+            for (Future<float[]> row : rows) row.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e.toString());
+        }
+
+        return (System.nanoTime() - startTime) / 1000000;
+    }
+}
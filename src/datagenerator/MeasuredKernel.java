@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package datagenerator;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A kernel measured on the real sensor, read from a text file.
+ * The file has one line per row of the kernel and the weights of a row are separated by commas or spaces.
+ * The kernel must be square with an odd size so that it has a center. The weights don't need to add up to one.
+ * <p>
+ * Any shape is possible so every pixel of the kernel is looked at : (2 * radius + 1)^2 operations per pixel.
+ */
+final class MeasuredKernel extends SensorKernel {
+    @NotNull
+    private final String name;
+    private final int radius;
+
+    //weights[dy + radius][dx + radius]
+    @NotNull
+    private final float[][] weights;
+
+    private float[][] pixels;
+
+    private MeasuredKernel(@NotNull String name, @NotNull float[][] weights) {
+        this.name = name;
+        this.weights = weights;
+        this.radius = weights.length / 2;
+    }
+
+    @NotNull
+    static MeasuredKernel load(@NotNull File file) {
+        List<float[]> rows = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.trim().isEmpty()) continue;
+
+                String[] values = line.trim().split("[,\\s]+");
+                float[] row = new float[values.length];
+
+                for (int i = 0; i < values.length; i++) {
+                    row[i] = Float.parseFloat(values[i]);
+                }
+
+                rows.add(row);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read kernel file " + e);
+        }
+
+        float[][] weights = rows.toArray(new float[0][]);
+
+        if (weights.length % 2 == 0) throw new IllegalArgumentException("Kernel size must be odd : " + file);
+
+        for (float[] row : weights) {
+            if (row.length != weights.length) throw new IllegalArgumentException("Kernel must be square : " + file);
+        }
+
+        String fileName = file.getName();
+        int extensionStart = fileName.lastIndexOf('.');
+
+        return new MeasuredKernel("measured-" + (extensionStart == -1 ? fileName : fileName.substring(0, extensionStart)), weights);
+    }
+
+    @NotNull
+    @Override
+    String getName() {
+        return name;
+    }
+
+    @Override
+    int getRadius() {
+        return radius;
+    }
+
+    @Override
+    void prepareImage(@NotNull float[][] pixels, @NotNull ExecutorService executor) {
+        this.pixels = pixels;
+    }
+
+    @NotNull
+    @Override
+    float[] filterSpan(int centerY, int startX, int endX) {
+        float[] averageRow = new float[endX - startX];
+
+        for (int centerX = startX; centerX < endX; centerX++) {
+            double sum = 0;
+            double weightSum = 0;
+
+            for (int dy = Math.max(-radius, -centerY); dy <= Math.min(radius, height - 1 - centerY); dy++) {
+                float[] pixelRow = pixels[centerY + dy];
+                float[] weightRow = weights[dy + radius];
+
+                for (int dx = Math.max(-radius, -centerX); dx <= Math.min(radius, width - 1 - centerX); dx++) {
+                    sum += weightRow[dx + radius] * pixelRow[centerX + dx];
+                    weightSum += weightRow[dx + radius];
+                }
+            }
+
+            averageRow[centerX - startX] = round(sum / weightSum);
+        }
+
+        return averageRow;
+    }
+}
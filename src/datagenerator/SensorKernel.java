@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package datagenerator;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Models the spot the color sensor sees (its point-spread function). The value of a pixel in the map data is the
+ * weighted average of the image under the kernel centered on that pixel.
+ * Pixels of the kernel outside the image are ignored (the average only uses the pixels on the image).
+ * <p>
+ * Usage : call {@link #prepare(float[][], ExecutorService)} once then {@link #filterRow(int)} for each row
+ * (or {@link #filterSpan(int, int, int)} for part of a row). These can be called from several threads at once.
+ */
+abstract class SensorKernel {
+    //Size of the image being averaged
+    int width;
+    int height;
+
+    /**
+     * Creates a kernel from a command line argument. Ex. "disc:10", "gaussian:4.5" or "file:res/kernel.txt"
+     */
+    @NotNull
+    static SensorKernel parse(@NotNull String spec) {
+        int separator = spec.indexOf(':');
+
+        if (separator == -1) throw new IllegalArgumentException("Kernel should be type:value, got " + spec);
+
+        String type = spec.substring(0, separator);
+        String value = spec.substring(separator + 1);
+
+        switch (type) {
+            case "disc":
+                return new DiscKernel(Integer.parseInt(value));
+            case "gaussian":
+                return new GaussianKernel(Float.parseFloat(value));
+            case "file":
+                return MeasuredKernel.load(new File(value));
+            default:
+                throw new IllegalArgumentException("Unknown kernel type " + type);
+        }
+    }
+
+    /**
+     * @return a name used in the output file name. Ex. gaussian-4.0
+     */
+    @NotNull
+    abstract String getName();
+
+    /**
+     * @return number of pixels the kernel reaches from its center
+     */
+    abstract int getRadius();
+
+    /**
+     * Does the work that is shared by all the rows (ex. running sums)
+     *
+     * @param pixels   pixels[y][x] the image in lejos values
+     * @param executor may be used to do the work in parallel
+     */
+    final void prepare(@NotNull float[][] pixels, @NotNull ExecutorService executor) {
+        height = pixels.length;
+        width = pixels[0].length;
+
+        prepareImage(pixels, executor);
+    }
+
+    abstract void prepareImage(@NotNull float[][] pixels, @NotNull ExecutorService executor);
+
+    /**
+     * @return the averaged values of the row, rounded like the original data
+     */
+    @NotNull
+    final float[] filterRow(int y) {
+        return filterSpan(y, 0, width);
+    }
+
+    /**
+     * @return the averaged values of pixels (startX, y) to (endX - 1, y)
+     */
+    @NotNull
+    abstract float[] filterSpan(int y, int startX, int endX);
+
+    /**
+     * Rounds to 0.01 like the original DataGenerator did
+     */
+    @Contract(pure = true)
+    static float round(double value) {
+        return Math.round(100 * value) / 100.0F;
+    }
+}
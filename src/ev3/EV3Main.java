@@ -7,7 +7,9 @@ package ev3;
 import common.Config;
 import common.ConnectionUtil;
 import common.RunModes;
+import common.logger.Logger;
 import common.mapping.MapDataReader;
+import common.mapping.TiledMapDataReader;
 import ev3.communication.ComManager;
 import ev3.localization.RobotPoseProvider;
 import ev3.navigation.Controller;
@@ -20,9 +22,10 @@ import ev3.robot.sim.SimRobot;
 import lejos.robotics.localization.PoseProvider;
 
 final class EV3Main {
-    // --Commented out by Inspection (25/04/18 8:37 PM):private static final String LOG_TAG = EV3Main.class.getSimpleName();
+    private static final String LOG_TAG = EV3Main.class.getSimpleName();
 
     private static Robot robot;
+    private static MapDataReader surfaceMap;
     private static Controller controller;
 
     public static void main(String[] args) {
@@ -46,14 +49,13 @@ final class EV3Main {
         }
 
         //Builds either a sim or an ev3 robot depending on config
-        MapDataReader surfaceMap;
-
         if (Config.currentMode == RunModes.SIM) {
             surfaceMap = new MapDataReader(Config.DATA_PC_PATH);
             robot = new SimRobot(surfaceMap);
         } else {
             robot = new EV3Robot();
-            surfaceMap = new MapDataReader(Config.DATA_EV3_PATH);
+            surfaceMap = Config.MAP_MAX_TILES == 0 ? new MapDataReader(Config.DATA_EV3_PATH) :
+                    TiledMapDataReader.open(Config.DATA_EV3_PATH, Config.MAP_TILE_SIZE, Config.MAP_MAX_TILES);
         }
 
         robot.setup();
@@ -75,7 +77,10 @@ final class EV3Main {
             ((RobotPoseProvider) poseProvider).startUpdater(robot.getColorSensors());
         }
 
-        controller = new Controller(new MyNavigator(pilot, poseProvider));
+        MyNavigator navigator = new MyNavigator(pilot, poseProvider);
+        navigator.setPurePursuit(Config.PURE_PURSUIT);
+
+        controller = new Controller(navigator);
     }
 
     private static void runMain() {
@@ -83,6 +88,13 @@ final class EV3Main {
     }
 
     private static void cleanUp() {
+        if (surfaceMap instanceof TiledMapDataReader) {
+            TiledMapDataReader tiledMap = (TiledMapDataReader) surfaceMap;
+
+            Logger.info(LOG_TAG, "Map tiles : " + tiledMap.getHitCount() + " hits, " + tiledMap.getMissCount() + " misses");
+            tiledMap.close();
+        }
+
         ComManager.stop();
     }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import ev3.navigation.Readings;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Combines several readings taken at the same time (ex. both color sensors) into one.
+ * The readings are assumed to be independent so the probability of getting all of them from a pose is the product of
+ * each reading's probability. This allows the particles to be resampled and moved only once per time step.
+ */
+class CombinedReadings implements Readings {
+    @NotNull
+    private final Readings[] readings;
+
+    CombinedReadings(@NotNull Readings... readings) {
+        this.readings = readings;
+    }
+
+    @Override
+    public float calculateWeight(float x, float y, float heading) {
+        float weight = 1;
+
+        for (Readings reading : readings) {
+            weight *= reading.calculateWeight(x, y, heading);
+
+            if (weight == 0) return 0; //No need to check the other readings
+        }
+
+        return weight;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return Arrays.toString(readings);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+/**
+ * Random number generator for the particle algorithm. Not thread safe : each thread must use its own.
+ * <p>
+ * java.util.Random is synchronized (an atomic compare-and-set on every number) and nextGaussian() needs a log, a sqrt
+ * and a loop. This uses :
+ * - xoroshiro64** (Blackman and Vigna) which only needs 32 bit operations (the EV3's ARM CPU is 32 bit)
+ * - the ziggurat method (Marsaglia and Tsang 2000) for gaussians. Almost every gaussian is one random int,
+ * one table lookup and one multiplication. The tables are calculated once.
+ * <p>
+ * Doesn't create any objects.
+ */
+final class FastRandom {
+    //Ziggurat tables for the standard normal distribution (128 layers)
+    private static final int NUM_LAYERS = 128;
+    private static final double TAIL_START = 3.442619855899; //r, x value where the last layer ends and the tail starts
+    private static final double LAYER_AREA = 9.91256303526217e-3; //v, area of each layer
+
+    //A random int whose absolute value is under LAYER_LIMITS[layer] gives a point that is for sure under the curve
+    private static final int[] LAYER_LIMITS = new int[NUM_LAYERS];
+    //Converts a random int to an x value in the layer
+    private static final float[] LAYER_WIDTHS = new float[NUM_LAYERS];
+    //Value of the curve at the edge of each layer
+    private static final float[] LAYER_HEIGHTS = new float[NUM_LAYERS];
+
+    static {
+        double m1 = 2147483648.0; //2^31
+        double dn = TAIL_START;
+        double tn = dn;
+        double q = LAYER_AREA / Math.exp(-0.5 * dn * dn);
+
+        LAYER_LIMITS[0] = (int) ((dn / q) * m1);
+        LAYER_LIMITS[1] = 0;
+
+        LAYER_WIDTHS[0] = (float) (q / m1);
+        LAYER_WIDTHS[NUM_LAYERS - 1] = (float) (dn / m1);
+
+        LAYER_HEIGHTS[0] = 1;
+        LAYER_HEIGHTS[NUM_LAYERS - 1] = (float) Math.exp(-0.5 * dn * dn);
+
+        for (int i = NUM_LAYERS - 2; i >= 1; i--) {
+            dn = Math.sqrt(-2 * Math.log(LAYER_AREA / dn + Math.exp(-0.5 * dn * dn)));
+
+            LAYER_LIMITS[i + 1] = (int) ((dn / tn) * m1);
+            tn = dn;
+
+            LAYER_HEIGHTS[i] = (float) Math.exp(-0.5 * dn * dn);
+            LAYER_WIDTHS[i] = (float) (dn / m1);
+        }
+    }
+
+    private int state0;
+    private int state1;
+
+    FastRandom() {
+        this(System.nanoTime());
+    }
+
+    FastRandom(long seed) {
+        //SplitMix64 so that close seeds give unrelated states. The state can't be all zeros.
+        long mixed = seed + 0x9E3779B97F4A7C15L;
+        mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        mixed = mixed ^ (mixed >>> 31);
+
+        state0 = (int) mixed;
+        state1 = (int) (mixed >>> 32);
+
+        if (state0 == 0 && state1 == 0) state0 = 1;
+    }
+
+    /**
+     * @return a random int, every value equally likely
+     */
+    int nextInt() {
+        int s0 = state0;
+        int s1 = state1;
+        int result = Integer.rotateLeft(s0 * 0x9E3779BB, 5) * 5;
+
+        s1 ^= s0;
+        state0 = Integer.rotateLeft(s0, 26) ^ s1 ^ (s1 << 9);
+        state1 = Integer.rotateLeft(s1, 13);
+
+        return result;
+    }
+
+    /**
+     * @return a random float between 0 (inclusive) and 1 (exclusive)
+     */
+    float nextFloat() {
+        return (nextInt() >>> 8) * 0x1.0p-24F;
+    }
+
+    /**
+     * @return a random float from the standard normal distribution (mean 0, standard deviation 1)
+     */
+    float nextGaussian() {
+        int hz = nextInt();
+        int layer = hz & (NUM_LAYERS - 1);
+
+        if (Math.abs(hz) < LAYER_LIMITS[layer]) return hz * LAYER_WIDTHS[layer]; //Under the curve for sure (~99% of the time)
+
+        return nextGaussianSlow(hz, layer);
+    }
+
+    /**
+     * The point is in the tail or near the edge of the curve so it needs to be checked (Marsaglia and Tsang's nfix)
+     */
+    private float nextGaussianSlow(int hz, int layer) {
+        while (true) {
+            float x = hz * LAYER_WIDTHS[layer];
+
+            if (layer == 0) {
+                //Sample from the tail
+                float tailX;
+                float tailY;
+
+                do {
+                    tailX = (float) (-Math.log(nextOpenFloat()) / TAIL_START);
+                    tailY = (float) -Math.log(nextOpenFloat());
+                } while (tailY + tailY < tailX * tailX);
+
+                return (float) (hz > 0 ? TAIL_START + tailX : -TAIL_START - tailX);
+            }
+
+            if (LAYER_HEIGHTS[layer] + nextFloat() * (LAYER_HEIGHTS[layer - 1] - LAYER_HEIGHTS[layer]) < Math.exp(-0.5 * x * x)) {
+                return x;
+            }
+
+            hz = nextInt();
+            layer = hz & (NUM_LAYERS - 1);
+
+            if (Math.abs(hz) < LAYER_LIMITS[layer]) return hz * LAYER_WIDTHS[layer];
+        }
+    }
+
+    /**
+     * @return a random float between 0 and 1 (both exclusive) so that its log is defined
+     */
+    private float nextOpenFloat() {
+        return ((nextInt() >>> 9) + 0.5F) * 0x1.0p-23F;
+    }
+}
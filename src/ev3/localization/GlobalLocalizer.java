@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import common.mapping.MapPyramid;
+import ev3.navigation.Offset;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Finds where the robot could be on the whole map using only the color sensor readings (ex. after being kidnapped).
+ * <p>
+ * Coarse to fine search :
+ * 1. Score a pose at the center of every cell of the coarsest map level for NUM_HEADINGS headings
+ * 2. Keep the MAX_SURVIVORS best poses. The poses tied with the last one kept are sampled at random so that the poses kept
+ * are spread over every area of the map that matches equally well (ex. the large white areas) instead of the first ones found.
+ * 3. Split each surviving pose into its 4 cells on the next finer level and 2 headings half as far apart and score them
+ * 4. Repeat until the full resolution map, where the best poses become the particles
+ */
+final class GlobalLocalizer {
+    private static final int NUM_HEADINGS = 12; //30 degrees apart
+    static final int MAX_SURVIVORS = 500; //Poses kept after each level and particles created at the end
+
+    @NotNull
+    private final MapPyramid pyramid;
+    @NotNull
+    private final LikelihoodTable likelihoodTable;
+
+    @NotNull
+    private final FastRandom random = new FastRandom();
+
+    GlobalLocalizer(@NotNull MapPyramid pyramid, @NotNull LikelihoodTable likelihoodTable) {
+        this.pyramid = pyramid;
+        this.likelihoodTable = likelihoodTable;
+    }
+
+    /**
+     * Replaces the particles with the best poses for the readings, one particle per surviving pose
+     * (at most MAX_SURVIVORS and the length of the arrays)
+     *
+     * @return the number of particles created
+     */
+    int localize(float colorLeft, float colorRight, @NotNull float[] xs, @NotNull float[] ys, @NotNull float[] headings,
+                 @NotNull float[] weights) {
+        float[] likelihoodsLeft = likelihoodTable.getLikelihoodsForReading(colorLeft);
+        float[] likelihoodsRight = likelihoodTable.getLikelihoodsForReading(colorRight);
+
+        //Start with every cell and heading of the coarsest level
+        int level = pyramid.getNumLevels() - 1;
+        int levelWidth = pyramid.getLevel(level).getWidth();
+        int levelHeight = pyramid.getLevel(level).getHeight();
+
+        Hypotheses hypotheses = new Hypotheses(levelWidth * levelHeight * NUM_HEADINGS, 360F / NUM_HEADINGS);
+
+        for (int cellY = 0; cellY < levelHeight; cellY++) {
+            for (int cellX = 0; cellX < levelWidth; cellX++) {
+                for (int heading = 0; heading < NUM_HEADINGS; heading++) {
+                    hypotheses.add(cellX, cellY, heading * hypotheses.headingSpacing);
+                }
+            }
+        }
+
+        while (true) {
+            hypotheses.score(level, likelihoodsLeft, likelihoodsRight);
+
+            if (level == 0) break;
+
+            hypotheses = hypotheses.refine(MAX_SURVIVORS);
+            level--;
+        }
+
+        return hypotheses.toParticles(xs, ys, headings, weights, Math.min(MAX_SURVIVORS, xs.length));
+    }
+
+    /**
+     * Candidate poses on a level, stored as parallel arrays
+     */
+    private final class Hypotheses {
+        private final int[] cellXs;
+        private final int[] cellYs;
+        private final float[] headings;
+        private final float[] scores;
+        private int size = 0;
+        private int level;
+
+        private final float headingSpacing; //Degrees between the headings tried on this level
+
+        Hypotheses(int capacity, float headingSpacing) {
+            cellXs = new int[capacity];
+            cellYs = new int[capacity];
+            headings = new float[capacity];
+            scores = new float[capacity];
+            this.headingSpacing = headingSpacing;
+        }
+
+        void add(int cellX, int cellY, float heading) {
+            cellXs[size] = cellX;
+            cellYs[size] = cellY;
+            headings[size] = heading < 0 ? heading + 360 : heading % 360;
+            size++;
+        }
+
+        void score(int level, @NotNull float[] likelihoodsLeft, @NotNull float[] likelihoodsRight) {
+            this.level = level;
+
+            for (int i = 0; i < size; i++) {
+                float x = getX(i);
+                float y = getY(i);
+                float heading = getHeading(i);
+
+                scores[i] = scoreSensor(level, x, y, heading, Offset.LEFT_COLOR_SENSOR, likelihoodsLeft)
+                        * scoreSensor(level, x, y, heading, Offset.RIGHT_COLOR_SENSOR, likelihoodsRight);
+            }
+        }
+
+        private float scoreSensor(int level, float x, float y, float heading, @NotNull Offset offset, @NotNull float[] likelihoods) {
+            if (!pyramid.contains(level, x, y)) return 0;
+
+            float sensorX = offset.offsetX(x, heading);
+            float sensorY = offset.offsetY(y, heading);
+
+            if (!pyramid.contains(level, sensorX, sensorY)) return 0;
+
+            return likelihoods[pyramid.getCellAtPoint(level, sensorX, sensorY)];
+        }
+
+        /**
+         * @return the best hypotheses split into their 4 cells on the next finer level and into 2 headings
+         * (a quarter of the spacing on each side so that together they cover the same range)
+         */
+        @NotNull
+        Hypotheses refine(int numToKeep) {
+            int[] best = getBest(numToKeep);
+
+            Hypotheses refined = new Hypotheses(8 * best.length, headingSpacing / 2);
+
+            for (int i : best) {
+                for (int child = 0; child < 4; child++) {
+                    int childX = 2 * cellXs[i] + child % 2;
+                    int childY = 2 * cellYs[i] + child / 2;
+
+                    refined.add(childX, childY, headings[i] - headingSpacing / 4);
+                    refined.add(childX, childY, headings[i] + headingSpacing / 4);
+                }
+            }
+
+            return refined;
+        }
+
+        /**
+         * Writes the best hypotheses as particles. If no hypothesis matched the readings at all, the particles are spread over every hypothesis.
+         *
+         * @return the number of particles written
+         */
+        int toParticles(@NotNull float[] xs, @NotNull float[] ys, @NotNull float[] headings, @NotNull float[] weights, int maxParticles) {
+            int[] best = getBest(maxParticles);
+
+            int numParticles = 0;
+
+            for (int i : best) {
+                setParticle(numParticles++, i, scores[i], xs, ys, headings, weights);
+            }
+
+            if (numParticles == 0) {
+                numParticles = Math.min(size, maxParticles);
+
+                for (int i = 0; i < numParticles; i++) {
+                    setParticle(i, i * size / numParticles, 1, xs, ys, headings, weights);
+                }
+            }
+
+            float totalWeight = 0;
+            for (int i = 0; i < numParticles; i++) totalWeight += weights[i];
+
+            Util.normalizeWeights(weights, numParticles, totalWeight);
+
+            return numParticles;
+        }
+
+        private void setParticle(int particle, int hypothesis, float weight, @NotNull float[] xs, @NotNull float[] ys,
+                                 @NotNull float[] headings, @NotNull float[] weights) {
+            xs[particle] = getX(hypothesis);
+            ys[particle] = getY(hypothesis);
+            headings[particle] = getHeading(hypothesis);
+            weights[particle] = weight;
+        }
+
+        /**
+         * @return the indexes of the numToKeep best hypotheses (fewer if fewer have a score). The ones tied with the
+         * numToKeep-th best are a random sample of all the tied hypotheses.
+         */
+        @NotNull
+        private int[] getBest(int numToKeep) {
+            float threshold = getThreshold(numToKeep);
+
+            int numAbove = 0;
+            int numTied = 0;
+
+            for (int i = 0; i < size; i++) {
+                if (scores[i] <= 0) continue;
+
+                if (scores[i] > threshold) numAbove++;
+                else if (scores[i] == threshold) numTied++;
+            }
+
+            int[] best = new int[numAbove + Math.min(numTied, numToKeep - numAbove)];
+            int[] tied = new int[numTied];
+            int numBest = 0;
+            numTied = 0;
+
+            for (int i = 0; i < size; i++) {
+                if (scores[i] <= 0) continue;
+
+                if (scores[i] > threshold) best[numBest++] = i;
+                else if (scores[i] == threshold) tied[numTied++] = i;
+            }
+
+            //Partial Fisher-Yates shuffle : the first slots of tied become a random sample
+            for (int i = 0; numBest < best.length; i++) {
+                int swap = i + Math.min((int) (random.nextFloat() * (numTied - i)), numTied - i - 1);
+
+                int sampled = tied[swap];
+                tied[swap] = tied[i];
+                tied[i] = sampled;
+
+                best[numBest++] = sampled;
+            }
+
+            return best;
+        }
+
+        /**
+         * @return the score of the numToKeep-th best hypothesis
+         */
+        private float getThreshold(int numToKeep) {
+            if (size <= numToKeep) return 0;
+
+            float[] sortedScores = Arrays.copyOf(scores, size);
+            Arrays.sort(sortedScores);
+
+            return sortedScores[size - numToKeep];
+        }
+
+        //Pose of a hypothesis in full map coordinates (center of its cell)
+        private float getX(int i) {
+            return (cellXs[i] + 0.5F) * MapPyramid.getCellSize(level);
+        }
+
+        private float getY(int i) {
+            return (cellYs[i] + 0.5F) * MapPyramid.getCellSize(level);
+        }
+
+        private float getHeading(int i) {
+            return headings[i];
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import org.jetbrains.annotations.Contract;
+
+/**
+ * Decides how many particles are needed while resampling (KLD-sampling, Fox 2003).
+ * <p>
+ * The map is split into a grid of x/y/heading bins. Every time a particle is sampled the bin it falls in is marked.
+ * The more bins are occupied (the more spread out the particles are), the more particles are required so that the
+ * error between the particles and the real distribution stays under the max error with probability 1 - delta.
+ * <p>
+ * Doesn't create any objects after being built.
+ */
+final class KLDSampler {
+    //Size of one bin
+    private static final float BIN_SIZE_XY = 50;
+    private static final float BIN_SIZE_HEADING = 20;
+
+    private final int minParticles;
+    private final int maxParticles;
+    private final float maxError;
+    private final float upperQuantile;
+
+    private final int binsX;
+    private final int binsY;
+    private final int binsHeading;
+
+    private final boolean[] occupiedBins;
+    //Indexes of the bins marked since the last reset so that reset doesn't need to clear the whole grid
+    private final int[] markedBins;
+    private int numOccupiedBins;
+
+    /**
+     * @param maxError      epsilon. Maximum allowed error (KL-divergence) between the particles and the real distribution
+     * @param upperQuantile z(1 - delta), the upper quantile of the standard normal distribution for the chance 1 - delta
+     *                      of staying under maxError (ex. 2.326 for 99%)
+     */
+    KLDSampler(float mapWidth, float mapHeight, int minParticles, int maxParticles, float maxError, float upperQuantile) {
+        this.minParticles = minParticles;
+        this.maxParticles = maxParticles;
+        this.maxError = maxError;
+        this.upperQuantile = upperQuantile;
+
+        binsX = (int) Math.ceil(mapWidth / BIN_SIZE_XY);
+        binsY = (int) Math.ceil(mapHeight / BIN_SIZE_XY);
+        binsHeading = (int) Math.ceil(360 / BIN_SIZE_HEADING);
+
+        occupiedBins = new boolean[binsX * binsY * binsHeading];
+        markedBins = new int[maxParticles];
+    }
+
+    /**
+     * Clears the bins. Called before starting to resample.
+     */
+    void reset() {
+        for (int i = 0; i < numOccupiedBins; i++) {
+            occupiedBins[markedBins[i]] = false;
+        }
+
+        numOccupiedBins = 0;
+    }
+
+    /**
+     * Marks the bin the sampled particle falls in
+     */
+    void addSample(float x, float y, float heading) {
+        int bin = getBin(x, y, heading);
+
+        if (!occupiedBins[bin] && numOccupiedBins < markedBins.length) {
+            occupiedBins[bin] = true;
+            markedBins[numOccupiedBins++] = bin;
+        }
+    }
+
+    /**
+     * @return true once enough particles have been sampled for the current number of occupied bins
+     */
+    boolean isDone(int numSampled) {
+        return numSampled >= getRequiredNumParticles();
+    }
+
+    /**
+     * @return the number of particles needed for the occupied bins, between the min and max bounds
+     */
+    int getRequiredNumParticles() {
+        return Math.max(minParticles, Math.min(maxParticles, calculateBound(numOccupiedBins)));
+    }
+
+    /**
+     * Wilson-Hilferty approximation of the chi-square quantile used by KLD-sampling
+     *
+     * @param k number of occupied bins
+     * @return number of particles required
+     */
+    @Contract(pure = true)
+    private int calculateBound(int k) {
+        if (k <= 1) return 0;
+
+        double a = 2.0 / (9 * (k - 1));
+        double b = 1 - a + Math.sqrt(a) * upperQuantile;
+
+        return (int) Math.ceil((k - 1) / (2 * maxError) * b * b * b);
+    }
+
+    private int getBin(float x, float y, float heading) {
+        int binX = clamp((int) Math.floor(x / BIN_SIZE_XY), binsX);
+        int binY = clamp((int) Math.floor(y / BIN_SIZE_XY), binsY);
+
+        int binHeading = (int) Math.floor(heading / BIN_SIZE_HEADING) % binsHeading;
+        if (binHeading < 0) binHeading += binsHeading;
+
+        return (binHeading * binsY + binY) * binsX + binX;
+    }
+
+    @Contract(pure = true)
+    private static int clamp(int bin, int numBins) {
+        return Math.max(0, Math.min(numBins - 1, bin));
+    }
+}
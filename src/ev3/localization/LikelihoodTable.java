@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import common.mapping.MapDataReader;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Precomputed values of {@link Util#bellCurveFunction(float)} for every pair of (sensor reading, map cell).
+ * Readings are between 0 and 1 and are rounded to the nearest RESOLUTION. Map cells are indexed by their raw
+ * quantized value ({@link MapDataReader#getCellAtPoint(float, float)}).
+ * Built once per map so that weighting a particle is an array lookup.
+ */
+final class LikelihoodTable {
+    private static final float RESOLUTION = 0.01F;
+    private static final int NUM_BINS = Math.round(1 / RESOLUTION) + 1;
+    private static final int NUM_CELL_VALUES = 256;
+
+    @NotNull
+    private final MapDataReader surfaceMap;
+
+    //likelihoods[readingBin][cell]
+    @NotNull
+    private final float[][] likelihoods = new float[NUM_BINS][NUM_CELL_VALUES];
+
+    LikelihoodTable(@NotNull MapDataReader surfaceMap) {
+        this.surfaceMap = surfaceMap;
+
+        for (int readingBin = 0; readingBin < NUM_BINS; readingBin++) {
+            for (int cell = 0; cell < NUM_CELL_VALUES; cell++) {
+                float mapValue = surfaceMap.getOffset() + surfaceMap.getScale() * cell;
+                likelihoods[readingBin][cell] = Util.bellCurveFunction(readingBin * RESOLUTION - mapValue);
+            }
+        }
+    }
+
+    @NotNull
+    MapDataReader getSurfaceMap() {
+        return surfaceMap;
+    }
+
+    /**
+     * @return the likelihood of each map cell value given the reading. Index it with {@link MapDataReader#getCellAtPoint(float, float)}
+     */
+    @NotNull
+    float[] getLikelihoodsForReading(float reading) {
+        return likelihoods[getBin(reading)];
+    }
+
+    /**
+     * @return the bin the reading falls in
+     */
+    @Contract(pure = true)
+    static int getBin(float reading) {
+        int bin = Math.round(reading / RESOLUTION);
+
+        if (bin < 0) return 0;
+        if (bin >= NUM_BINS) return NUM_BINS - 1;
+        return bin;
+    }
+}
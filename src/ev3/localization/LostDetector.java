@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import org.jetbrains.annotations.Contract;
+
+/**
+ * Tells when the robot is lost (ex. kidnapped) from how well the readings match the particles (Augmented MCL, Thrun 2005).
+ * <p>
+ * The likelihood of the readings at each update is averaged over the short term and over the long term.
+ * While the particles follow the robot both averages stay about the same. Once the particles are somewhere else
+ * the readings stop matching them and the short term average drops under lostRatio times the long term average.
+ */
+final class LostDetector {
+    private final float slowAlpha;
+    private final float fastAlpha;
+    private final float lostRatio;
+    private final int minUpdates;
+
+    private float slowAverage;
+    private float fastAverage;
+    private int numUpdates = 0;
+
+    /**
+     * @param slowAlpha  weight of a new likelihood in the long term average
+     * @param fastAlpha  weight of a new likelihood in the short term average (larger than slowAlpha)
+     * @param lostRatio  the robot is lost when the short term average is under this fraction of the long term average
+     * @param minUpdates updates needed after a reset before the robot can be considered lost
+     */
+    LostDetector(float slowAlpha, float fastAlpha, float lostRatio, int minUpdates) {
+        this.slowAlpha = slowAlpha;
+        this.fastAlpha = fastAlpha;
+        this.lostRatio = lostRatio;
+        this.minUpdates = minUpdates;
+    }
+
+    /**
+     * @param likelihood likelihood of the readings of the update (see {@link ParticleSet#getReadingLikelihood()})
+     * @return true if the robot is lost
+     */
+    boolean update(float likelihood) {
+        if (numUpdates == 0) {
+            slowAverage = likelihood;
+            fastAverage = likelihood;
+        } else {
+            slowAverage += slowAlpha * (likelihood - slowAverage);
+            fastAverage += fastAlpha * (likelihood - fastAverage);
+        }
+
+        numUpdates++;
+
+        return isLost();
+    }
+
+    @Contract(pure = true)
+    boolean isLost() {
+        return numUpdates >= minUpdates && fastAverage < lostRatio * slowAverage;
+    }
+
+    /**
+     * Forgets the averages. Called when the particles were replaced (ex. after global localization).
+     */
+    void reset() {
+        numUpdates = 0;
+    }
+}
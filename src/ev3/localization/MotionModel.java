@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import lejos.robotics.navigation.Move;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * How the particles move (and spread out) when the robot moves. Selected in ParticleSet.
+ */
+interface MotionModel {
+    /**
+     * Shifts the poses from index start (inclusive) to end (exclusive) of the arrays in place and adds noise.
+     * Must not create any objects.
+     *
+     * @param random random number generator used for the noise. Each thread should use its own.
+     */
+    void movePoses(@NotNull float[] xs, @NotNull float[] ys, @NotNull float[] headings, int start, int end,
+                   @NotNull Move move, @NotNull FastRandom random);
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import common.logger.Logger;
+import lejos.robotics.navigation.Move;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+
+/**
+ * Compares the time taken to move the particles with {@link Util#movePoses} and with the original implementation
+ * (Math.toRadians, cos and sin for every particle and a shared java.util.Random). Can be run on the PC or on the EV3.
+ * <p>
+ * Each version is run WARM_UP_ROUNDS times so that the JIT compiles it, then the best of MEASURED_ROUNDS is printed.
+ */
+final class MotionModelBenchmark {
+    private static final String LOG_TAG = MotionModelBenchmark.class.getSimpleName();
+
+    private static final int NUM_PARTICLES = 10000;
+    private static final int WARM_UP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 20;
+
+    private static final float ANGLE_NOISE_FACTOR = 0.04F;
+    private static final float DISTANCE_NOISE_FACTOR = 0.04F;
+
+    private static final Move[] MOVES = {
+            new Move(10, 0, true),
+            new Move(Move.MoveType.ARC, 10, 5, 0, 0, true)
+    };
+
+    private static final float[] xs = new float[NUM_PARTICLES];
+    private static final float[] ys = new float[NUM_PARTICLES];
+    private static final float[] headings = new float[NUM_PARTICLES];
+
+    private interface Version {
+        void run(@NotNull Move move);
+    }
+
+    public static void main(String[] args) {
+        final Random random = new Random(2018);
+        final FastRandom fastRandom = new FastRandom(2018);
+
+        measure("original", new Version() {
+            @Override
+            public void run(@NotNull Move move) {
+                originalMovePoses(move, random);
+            }
+        });
+
+        measure("movePoses", new Version() {
+            @Override
+            public void run(@NotNull Move move) {
+                Util.movePoses(xs, ys, headings, 0, NUM_PARTICLES, move, ANGLE_NOISE_FACTOR, DISTANCE_NOISE_FACTOR, fastRandom);
+            }
+        });
+
+        measure("java.util.Random.nextGaussian", new Version() {
+            @Override
+            public void run(@NotNull Move move) {
+                for (int i = 0; i < NUM_PARTICLES; i++) xs[i] += random.nextGaussian();
+            }
+        });
+
+        measure("FastRandom.nextGaussian", new Version() {
+            @Override
+            public void run(@NotNull Move move) {
+                for (int i = 0; i < NUM_PARTICLES; i++) xs[i] += fastRandom.nextGaussian();
+            }
+        });
+    }
+
+    private static void measure(@NotNull String name, @NotNull Version version) {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            resetParticles();
+            version.run(MOVES[i % MOVES.length]);
+        }
+
+        long bestTime = Long.MAX_VALUE;
+
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            resetParticles();
+
+            long startTime = System.nanoTime();
+            version.run(MOVES[i % MOVES.length]);
+            bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+        }
+
+        Logger.info(LOG_TAG, name + " : " + bestTime / NUM_PARTICLES + " ns per particle");
+    }
+
+    private static void resetParticles() {
+        for (int i = 0; i < NUM_PARTICLES; i++) {
+            xs[i] = 1000;
+            ys[i] = 500;
+            headings[i] = i % 360;
+        }
+    }
+
+    /**
+     * Util.movePoses() before the trig table and the fast random number generator
+     */
+    private static void originalMovePoses(@NotNull Move move, @NotNull Random random) {
+        float angleTurned = move.getAngleTurned();
+
+        for (int i = 0; i < NUM_PARTICLES; i++) {
+            double headingRad = Math.toRadians(headings[i]);
+            double dx;
+            double dy;
+
+            if (move.getMoveType() == Move.MoveType.TRAVEL) {
+                dx = move.getDistanceTraveled() * Math.cos(headingRad);
+                dy = move.getDistanceTraveled() * Math.sin(headingRad);
+            } else {
+                double turnRad = Math.toRadians(angleTurned);
+                double radius = move.getDistanceTraveled() / turnRad;
+                dx = radius * (Math.sin(headingRad + turnRad) - Math.sin(headingRad));
+                dy = radius * (Math.cos(headingRad) - Math.cos(headingRad + turnRad));
+            }
+
+            xs[i] = (float) (xs[i] + dx + dx * random.nextGaussian() * DISTANCE_NOISE_FACTOR);
+            ys[i] = (float) (ys[i] + dy + dy * random.nextGaussian() * DISTANCE_NOISE_FACTOR);
+            headings[i] = (float) ((headings[i] + angleTurned + angleTurned * ANGLE_NOISE_FACTOR * random.nextGaussian()) % 360);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import common.Config;
+import common.logger.Logger;
+import lejos.robotics.navigation.Move;
+import lejos.robotics.navigation.Pose;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fits the alphas of the {@link OdometryMotionModel} from the moves recorded by {@link MotionRecorder}.
+ * <p>
+ * Each move is split into rot1, trans and rot2 twice : once from the pilot's odometry and once from the estimated poses.
+ * The difference is the motion noise. The variance of the noise is linear in the alphas so they are found with least squares :
+ * - rotation error^2 = alpha1 * rot^2 + alpha2 * trans^2 (rot1 and rot2 both used)
+ * - translation error^2 = alpha3 * trans^2 + alpha4 * (rot1^2 + rot2^2)
+ * <p>
+ * Argument : path to the recorded moves (Config.MOTION_LOG_PATH if none). Copy the file from the EV3 first.
+ */
+final class MotionModelCalibrator {
+    private static final String LOG_TAG = MotionModelCalibrator.class.getSimpleName();
+
+    //Moves shorter than this are rotations in place. Their direction of travel is only noise so rot1 is 0.
+    private static final float MIN_TRANSLATION = 5;
+
+    private MotionModelCalibrator() {
+    }
+
+    public static void main(String[] args) {
+        File file = new File(args.length == 0 ? Config.MOTION_LOG_PATH : args[0]);
+
+        List<Sample> samples = load(file);
+
+        if (samples.isEmpty()) {
+            Logger.error(LOG_TAG, "No moves recorded in " + file);
+            return;
+        }
+
+        float[] alphas = fitAlphas(samples);
+
+        Logger.info(LOG_TAG, "Fitted " + samples.size() + " moves. Copy into ParticleSet :");
+        for (int i = 0; i < alphas.length; i++) {
+            Logger.info(LOG_TAG, "ODOMETRY_ALPHA_" + (i + 1) + " = " + alphas[i] + "F");
+        }
+    }
+
+    /**
+     * One recorded move split into its odometry and its error (estimated - odometry). Angles in radians, distances in mm.
+     */
+    static final class Sample {
+        final double rot1;
+        final double trans;
+        final double rot2;
+
+        final double rot1Error;
+        final double transError;
+        final double rot2Error;
+
+        Sample(@NotNull Move move, @NotNull Pose startPose, @NotNull Pose endPose) {
+            rot1 = Math.toRadians(OdometryMotionModel.getFirstRotation(move));
+            trans = OdometryMotionModel.getTranslation(move);
+            rot2 = Math.toRadians(OdometryMotionModel.getSecondRotation(move));
+
+            double dx = endPose.getX() - startPose.getX();
+            double dy = endPose.getY() - startPose.getY();
+            double turn = Math.toRadians(endPose.getHeading() - startPose.getHeading());
+
+            double estimatedTrans = Math.sqrt(dx * dx + dy * dy);
+            double estimatedRot1;
+
+            if (Math.abs(trans) < MIN_TRANSLATION) {
+                estimatedRot1 = 0;
+            } else if (trans < 0) {
+                //Going backwards so the direction of travel is the opposite of the displacement
+                estimatedTrans = -estimatedTrans;
+                estimatedRot1 = Math.atan2(-dy, -dx) - Math.toRadians(startPose.getHeading());
+            } else {
+                estimatedRot1 = Math.atan2(dy, dx) - Math.toRadians(startPose.getHeading());
+            }
+
+            rot1Error = normalizeAngle(estimatedRot1 - rot1);
+            transError = estimatedTrans - trans;
+            rot2Error = normalizeAngle(turn - estimatedRot1 - rot2);
+        }
+    }
+
+    /**
+     * @return the samples in the file. Lines that can't be read are skipped.
+     */
+    @NotNull
+    static List<Sample> load(@NotNull File file) {
+        List<Sample> samples = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] values = line.trim().split(" ");
+
+                if (values.length != 9) continue;
+
+                try {
+                    Move move = new Move(Move.MoveType.valueOf(values[0]), Float.parseFloat(values[1]), Float.parseFloat(values[2]), false);
+                    Pose startPose = new Pose(Float.parseFloat(values[3]), Float.parseFloat(values[4]), Float.parseFloat(values[5]));
+                    Pose endPose = new Pose(Float.parseFloat(values[6]), Float.parseFloat(values[7]), Float.parseFloat(values[8]));
+
+                    samples.add(new Sample(move, startPose, endPose));
+                } catch (IllegalArgumentException e) {
+                    Logger.warning(LOG_TAG, "Skipped line : " + line);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+
+        return samples;
+    }
+
+    /**
+     * @return {alpha1, alpha2, alpha3, alpha4}
+     */
+    @NotNull
+    static float[] fitAlphas(@NotNull List<Sample> samples) {
+        //Sums for the normal equations of both fits
+        double[] rotationSums = new double[5];
+        double[] translationSums = new double[5];
+
+        for (Sample sample : samples) {
+            double transSquared = sample.trans * sample.trans;
+
+            addToSums(rotationSums, sample.rot1 * sample.rot1, transSquared, sample.rot1Error * sample.rot1Error);
+            addToSums(rotationSums, sample.rot2 * sample.rot2, transSquared, sample.rot2Error * sample.rot2Error);
+            addToSums(translationSums, transSquared, sample.rot1 * sample.rot1 + sample.rot2 * sample.rot2,
+                    sample.transError * sample.transError);
+        }
+
+        double[] rotationAlphas = solve(rotationSums);
+        double[] translationAlphas = solve(translationSums);
+
+        return new float[]{
+                (float) rotationAlphas[0], (float) rotationAlphas[1],
+                (float) translationAlphas[0], (float) translationAlphas[1]
+        };
+    }
+
+    /**
+     * Adds one point of y = a * u + b * v to the sums {uu, uv, vv, uy, vy}
+     */
+    private static void addToSums(@NotNull double[] sums, double u, double v, double y) {
+        sums[0] += u * u;
+        sums[1] += u * v;
+        sums[2] += v * v;
+        sums[3] += u * y;
+        sums[4] += v * y;
+    }
+
+    /**
+     * Solves the normal equations of y = a * u + b * v. The alphas are variances so they can't be negative :
+     * if a or b comes out negative it is set to 0 and the other one is fitted alone.
+     *
+     * @return {a, b}
+     */
+    @NotNull
+    @Contract(pure = true)
+    private static double[] solve(@NotNull double[] sums) {
+        double determinant = sums[0] * sums[2] - sums[1] * sums[1];
+
+        if (determinant > 0) {
+            double a = (sums[3] * sums[2] - sums[4] * sums[1]) / determinant;
+            double b = (sums[0] * sums[4] - sums[1] * sums[3]) / determinant;
+
+            if (a >= 0 && b >= 0) return new double[]{a, b};
+        }
+
+        double aAlone = sums[0] == 0 ? 0 : Math.max(0, sums[3] / sums[0]);
+        double bAlone = sums[2] == 0 ? 0 : Math.max(0, sums[4] / sums[2]);
+
+        //Keep the one that explains the most (largest reduction of the squared error)
+        return aAlone * sums[3] >= bAlone * sums[4] ? new double[]{aAlone, 0} : new double[]{0, bAlone};
+    }
+
+    /**
+     * @return the angle between -PI and PI
+     */
+    @Contract(pure = true)
+    private static double normalizeAngle(double angle) {
+        return Math.atan2(Math.sin(angle), Math.cos(angle));
+    }
+}
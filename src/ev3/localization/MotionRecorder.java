@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import lejos.robotics.localization.PoseProvider;
+import lejos.robotics.navigation.Move;
+import lejos.robotics.navigation.MoveListener;
+import lejos.robotics.navigation.MoveProvider;
+import lejos.robotics.navigation.Pose;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Records every move of the pilot along with the pose estimated by the particle filter before and after the move.
+ * The file is read by {@link MotionModelCalibrator} to fit the alphas of the {@link OdometryMotionModel}.
+ * Enabled with Config.RECORD_MOTION.
+ * <p>
+ * File format : one move per line "moveType distance angle startX startY startHeading endX endY endHeading".
+ * Must be added to the pilot after the pose provider so that the end pose includes the move.
+ */
+final class MotionRecorder implements MoveListener {
+    @NotNull
+    private final PoseProvider poseProvider;
+    @NotNull
+    private final Writer writer;
+
+    @Nullable
+    private Pose startPose;
+
+    MotionRecorder(@NotNull PoseProvider poseProvider, @NotNull String path) {
+        this.poseProvider = poseProvider;
+
+        try {
+            this.writer = new FileWriter(path, true);
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
+
+    @Override
+    public void moveStarted(Move move, MoveProvider moveProvider) {
+        startPose = poseProvider.getPose();
+    }
+
+    /**
+     * Called by the pilot while holding its lock so only writes one line
+     */
+    @Override
+    public void moveStopped(@NotNull Move move, MoveProvider moveProvider) {
+        if (startPose == null) return;
+
+        try {
+            writer.append(toLine(move, startPose, poseProvider.getPose())).append("\n");
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+
+        startPose = null;
+    }
+
+    @NotNull
+    @Contract(pure = true)
+    static String toLine(@NotNull Move move, @NotNull Pose startPose, @NotNull Pose endPose) {
+        return move.getMoveType() + " " + move.getDistanceTraveled() + " " + move.getAngleTurned() + " " +
+                startPose.getX() + " " + startPose.getY() + " " + startPose.getHeading() + " " +
+                endPose.getX() + " " + endPose.getY() + " " + endPose.getHeading();
+    }
+}
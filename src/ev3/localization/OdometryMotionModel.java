@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import ev3.navigation.TrigTable;
+import lejos.robotics.navigation.Move;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The odometry motion model (sample_motion_model_odometry from Probabilistic Robotics, Thrun et al.).
+ * <p>
+ * A move is split into a first rotation (rot1), a straight translation (trans) and a second rotation (rot2).
+ * Each part gets its own gaussian noise whose variance depends on all of the move :
+ * - rotations : alpha1 * rot^2 + alpha2 * trans^2
+ * - translation : alpha3 * trans^2 + alpha4 * (rot1^2 + rot2^2)
+ * Angles are in radians and distances in mm in these formulas. The alphas can be fitted with {@link MotionModelCalibrator}.
+ * <p>
+ * Unlike {@link ProportionalMotionModel}, a rotation in place spreads the particles' positions and a travel spreads their headings.
+ */
+final class OdometryMotionModel implements MotionModel {
+    private final float alpha1; //Rotation noise from rotation
+    private final float alpha2; //Rotation noise from translation (rad^2 / mm^2)
+    private final float alpha3; //Translation noise from translation
+    private final float alpha4; //Translation noise from rotation (mm^2 / rad^2)
+
+    OdometryMotionModel(float alpha1, float alpha2, float alpha3, float alpha4) {
+        this.alpha1 = alpha1;
+        this.alpha2 = alpha2;
+        this.alpha3 = alpha3;
+        this.alpha4 = alpha4;
+    }
+
+    /**
+     * The standard deviations are the same for every particle so they are calculated once per move
+     */
+    @Override
+    public void movePoses(@NotNull float[] xs, @NotNull float[] ys, @NotNull float[] headings, int start, int end,
+                          @NotNull Move move, @NotNull FastRandom random) {
+        float rot1 = getFirstRotation(move);
+        float trans = getTranslation(move);
+        float rot2 = getSecondRotation(move);
+
+        double rot1Rad = Math.toRadians(rot1);
+        double rot2Rad = Math.toRadians(rot2);
+
+        float rot1Deviation = (float) Math.toDegrees(Math.sqrt(alpha1 * rot1Rad * rot1Rad + alpha2 * trans * trans));
+        float rot2Deviation = (float) Math.toDegrees(Math.sqrt(alpha1 * rot2Rad * rot2Rad + alpha2 * trans * trans));
+        float transDeviation = (float) Math.sqrt(alpha3 * trans * trans + alpha4 * (rot1Rad * rot1Rad + rot2Rad * rot2Rad));
+
+        for (int i = start; i < end; i++) {
+            float noisyRot1 = rot1 + rot1Deviation * random.nextGaussian();
+            float noisyTrans = trans + transDeviation * random.nextGaussian();
+            float noisyRot2 = rot2 + rot2Deviation * random.nextGaussian();
+
+            int index = TrigTable.getIndex(headings[i] + noisyRot1);
+
+            xs[i] += noisyTrans * TrigTable.cosAt(index);
+            ys[i] += noisyTrans * TrigTable.sinAt(index);
+            headings[i] = (float) Util.normalizeHeading(headings[i] + noisyRot1 + noisyRot2);
+        }
+    }
+
+    /**
+     * @return rotation before the translation in degrees
+     */
+    @Contract(pure = true)
+    static float getFirstRotation(@NotNull Move move) {
+        return Util.getChordAngle(move);
+    }
+
+    /**
+     * @return length of the translation in mm. Negative when the robot goes backwards.
+     */
+    @Contract(pure = true)
+    static float getTranslation(@NotNull Move move) {
+        return Util.getChordLength(move);
+    }
+
+    /**
+     * @return rotation after the translation in degrees
+     */
+    @Contract(pure = true)
+    static float getSecondRotation(@NotNull Move move) {
+        return move.getAngleTurned() - getFirstRotation(move);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import ev3.navigation.Readings;
+import lejos.robotics.navigation.Move;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Moves and reweights the particles on all the computer's cores by splitting the particle arrays into chunks.
+ * Only meant for the simulator or when replaying data on a computer (the EV3 has a single core).
+ * <p>
+ * Each chunk always uses the same random number generator so that a run with the same seed gives the same result
+ * no matter how the chunks get scheduled. Partial weight sums are also added in chunk order for the same reason.
+ */
+final class ParallelParticleUpdater {
+    private static final int CHUNK_SIZE = 1024;
+    private static final long SEED = 2018;
+
+    @NotNull
+    private final ForkJoinPool pool = new ForkJoinPool();
+
+    //One random number generator per chunk. chunkRandoms[i] is used for particles i * CHUNK_SIZE to (i + 1) * CHUNK_SIZE
+    @NotNull
+    private final List<FastRandom> chunkRandoms = new ArrayList<>();
+
+    void movePoses(@NotNull final float[] xs, @NotNull final float[] ys, @NotNull final float[] headings, int numParticles,
+                   @NotNull final Move move, @NotNull final MotionModel motionModel) {
+        List<RecursiveAction> tasks = new ArrayList<>();
+
+        for (int chunk = 0; chunk * CHUNK_SIZE < numParticles; chunk++) {
+            final int start = chunk * CHUNK_SIZE;
+            final int end = Math.min(numParticles, start + CHUNK_SIZE);
+            final FastRandom random = getRandomForChunk(chunk);
+
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    motionModel.movePoses(xs, ys, headings, start, end, move, random);
+                }
+            });
+        }
+
+        for (RecursiveAction task : tasks) pool.execute(task);
+        for (RecursiveAction task : tasks) task.join();
+    }
+
+    /**
+     * @return the sum of the new weights
+     */
+    float reweight(@NotNull final float[] xs, @NotNull final float[] ys, @NotNull final float[] headings, @NotNull final float[] weights,
+                   int numParticles, @NotNull final Readings readings) {
+        List<RecursiveTask<Float>> tasks = new ArrayList<>();
+
+        for (int chunk = 0; chunk * CHUNK_SIZE < numParticles; chunk++) {
+            final int start = chunk * CHUNK_SIZE;
+            final int end = Math.min(numParticles, start + CHUNK_SIZE);
+
+            tasks.add(new RecursiveTask<Float>() {
+                @Override
+                protected Float compute() {
+                    return Util.reweight(xs, ys, headings, weights, start, end, readings);
+                }
+            });
+        }
+
+        for (RecursiveTask<Float> task : tasks) pool.execute(task);
+
+        float totalWeight = 0;
+        for (RecursiveTask<Float> task : tasks) totalWeight += task.join();
+
+        return totalWeight;
+    }
+
+    @NotNull
+    private FastRandom getRandomForChunk(int chunk) {
+        while (chunkRandoms.size() <= chunk) {
+            chunkRandoms.add(new FastRandom(SEED + chunkRandoms.size()));
+        }
+
+        return chunkRandoms.get(chunk);
+    }
+}
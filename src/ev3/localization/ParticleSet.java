@@ -4,70 +4,145 @@
 
 package ev3.localization;
 
+import common.Config;
+import common.RunModes;
 import common.mapping.MapDataReader;
 import common.particles.MCLData;
-import common.particles.Particle;
 import ev3.navigation.Readings;
-import lejos.robotics.geometry.Point;
 import lejos.robotics.navigation.Move;
 import lejos.robotics.navigation.Pose;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Random;
 
 class ParticleSet extends MCLData {
-    //How much the particles should spread
+    //How much the particles should spread (proportional motion model)
     private static final float DISTANCE_NOISE_FACTOR = 0.08F;
     private static final float ANGLE_NOISE_FACTOR = 0.4F;
 
+    //If true the particles move with the odometry motion model instead (see OdometryMotionModel). Fit the alphas with MotionModelCalibrator.
+    private static final boolean USE_ODOMETRY_MOTION_MODEL = false;
+    private static final float ODOMETRY_ALPHA_1 = 0.16F; //Same rotation noise as ANGLE_NOISE_FACTOR
+    private static final float ODOMETRY_ALPHA_2 = 0.00000003F; //About 1 degree per 100 mm traveled
+    private static final float ODOMETRY_ALPHA_3 = 0.0064F; //Same translation noise as DISTANCE_NOISE_FACTOR
+    private static final float ODOMETRY_ALPHA_4 = 10; //About 5 mm per quarter turn
+
     //How much the particles should be spread out at start
     private static final float STARTING_RADIUS_NOISE = 25;
     private static final float STARTING_HEADING_NOISE = 5;
 
-    private static final int NUM_PARTICLES = 100; //TODO Find optimal value
+    private static final int NUM_PARTICLES = 100; //TODO Find optimal value. Starting number of particles when using KLD-sampling
+
+    //If true the number of particles changes on each resample depending on how spread out the particles are (see KLDSampler)
+    private static final boolean USE_KLD_SAMPLING = false;
+    private static final int KLD_MIN_PARTICLES = 50;
+    private static final int KLD_MAX_PARTICLES = 1000;
+    private static final float KLD_MAX_ERROR = 0.05F; //Maximum error (KL-divergence) between the particles and the real distribution
+    private static final float KLD_UPPER_QUANTILE = 2.326F; //99% chance of staying under KLD_MAX_ERROR
+
+    //Only resample when the effective sample size drops below this fraction of the number of particles. Above 1 resamples every update.
+    private static final float RESAMPLE_THRESHOLD = 0.5F;
 
     private final MapDataReader surfaceMap;
 
-    ParticleSet(MapDataReader surfaceMap, @NotNull Pose currentPose) {
-        super(new Particle[NUM_PARTICLES], currentPose);
+    @NotNull
+    private final MotionModel motionModel = USE_ODOMETRY_MOTION_MODEL ?
+            new OdometryMotionModel(ODOMETRY_ALPHA_1, ODOMETRY_ALPHA_2, ODOMETRY_ALPHA_3, ODOMETRY_ALPHA_4) :
+            new ProportionalMotionModel(ANGLE_NOISE_FACTOR, DISTANCE_NOISE_FACTOR);
+
+    //Only used if parallel updates are enabled. Null means everything runs on the calling thread (default, EV3)
+    @Nullable
+    private final ParallelParticleUpdater parallelUpdater;
+
+    @Nullable
+    private final KLDSampler kldSampler;
+    //Running sum of the weights. Only used by KLD-sampling to pick particles with a binary search
+    @Nullable
+    private final float[] cumulativeWeights;
+
+    @NotNull
+    private final FastRandom random = new FastRandom();
+
+    //See getReadingLikelihood()
+    private float readingLikelihood = 1;
+
+    @NotNull
+    private final PoseEstimator poseEstimator;
+    //Covariance and clusters of the particles the last time they were extracted (refineCurrentPose(), setPose() or localizeGlobally())
+    @NotNull
+    private PoseEstimate poseEstimate;
+
+    //Second set of arrays that resample() writes into. Swapped with the main arrays afterwards (double buffering).
+    @NotNull
+    private float[] nextXs;
+    @NotNull
+    private float[] nextYs;
+    @NotNull
+    private float[] nextHeadings;
+    @NotNull
+    private float[] nextWeights;
+
+    ParticleSet(@NotNull MapDataReader surfaceMap, @NotNull Pose currentPose) {
+        //Room for every pose global localization keeps
+        super(Math.max(USE_KLD_SAMPLING ? KLD_MAX_PARTICLES : NUM_PARTICLES, GlobalLocalizer.MAX_SURVIVORS), currentPose);
         this.surfaceMap = surfaceMap;
+        this.numParticles = NUM_PARTICLES;
+
+        int capacity = xs.length;
+
+        nextXs = new float[capacity];
+        nextYs = new float[capacity];
+        nextHeadings = new float[capacity];
+        nextWeights = new float[capacity];
+
+        poseEstimator = new PoseEstimator(surfaceMap.getWidth(), surfaceMap.getHeight(), capacity);
+
+        parallelUpdater = Config.PARALLEL_PARTICLE_UPDATES && Config.currentMode == RunModes.SIM ? new ParallelParticleUpdater() : null;
+
+        if (USE_KLD_SAMPLING) {
+            kldSampler = new KLDSampler(surfaceMap.getWidth(), surfaceMap.getHeight(), KLD_MIN_PARTICLES, KLD_MAX_PARTICLES,
+                    KLD_MAX_ERROR, KLD_UPPER_QUANTILE);
+            cumulativeWeights = new float[capacity];
+        } else {
+            kldSampler = null;
+            cumulativeWeights = null;
+        }
+
         setPose(currentPose);
     }
 
-    void setPose(@NotNull Pose pose){
+    synchronized void setPose(@NotNull Pose pose) {
+        numParticles = NUM_PARTICLES;
         resetParticles(pose);
         this.currentPose = pose;
+        this.poseEstimate = poseEstimator.estimate(xs, ys, headings, weights, numParticles); //Spread of the new particles
     }
 
     /**
      * Generates a new particle set around a specific point with weights 0.5
      */
     private void resetParticles(@NotNull Pose centerPose) {
-        Particle[] newParticles = new Particle[particles.length];
-
-        Random random = new Random();
-
         float totalWeight = 0;
 
-        for (int i = 0; i < particles.length; i++) {
+        for (int i = 0; i < numParticles; i++) {
             float randomFactorDistance;
             float x;
             float y;
 
             //Create x,y values within bounds
             do {
-                randomFactorDistance = (float) random.nextGaussian();
+                randomFactorDistance = random.nextGaussian();
 
                 float distanceFromCenter = STARTING_RADIUS_NOISE * randomFactorDistance;
 
-                float thetaInRad = (float) (2 * Math.PI * Math.random());  //Random angle between 0 and 2pi
+                float thetaInRad = (float) (2 * Math.PI * random.nextFloat());  //Random angle between 0 and 2pi
 
                 x = centerPose.getX() + distanceFromCenter * (float) Math.cos(thetaInRad);
                 y = centerPose.getY() + distanceFromCenter * (float) Math.sin(thetaInRad);
-            } while (!surfaceMap.contains(new Point(x,y)));
+            } while (!surfaceMap.contains(x, y));
 
-            float randomFactorAngle = (float) random.nextGaussian();
+            float randomFactorAngle = random.nextGaussian();
 
             float heading = centerPose.getHeading() + STARTING_HEADING_NOISE * randomFactorAngle;
 
@@ -76,13 +151,35 @@ class ParticleSet extends MCLData {
 
             totalWeight += newWeight;
 
-            newParticles[i] = new Particle(x, y, heading, newWeight);
+            xs[i] = x;
+            ys[i] = y;
+            headings[i] = heading;
+            weights[i] = newWeight;
+        }
+
+        normalize(totalWeight);
+    }
+
+    /**
+     * Global localization. Replaces the particles with the poses on the whole map that best match the readings,
+     * one particle per pose the localizer kept since the robot could be at any of them.
+     * The next resample brings the number of particles back down.
+     */
+    synchronized void localizeGlobally(@NotNull GlobalLocalizer localizer, float colorLeft, float colorRight) {
+        numParticles = localizer.localize(colorLeft, colorRight, xs, ys, headings, weights);
+
+        int bestParticle = 0;
+
+        for (int i = 1; i < numParticles; i++) {
+            if (weights[i] > weights[bestParticle]) bestParticle = i;
         }
 
-        particles = Util.normalizeSet(newParticles, totalWeight);
+        effectiveSampleSize = Util.calculateEffectiveSampleSize(weights, numParticles);
+        currentPose = new Pose(xs[bestParticle], ys[bestParticle], headings[bestParticle]);
+        poseEstimate = poseEstimator.estimate(xs, ys, headings, weights, numParticles);
     }
 
-    void moveData(@NotNull Move move) {
+    synchronized void moveData(@NotNull Move move) {
         moveParticleSet(move);
         moveCurrentPose(move);
     }
@@ -92,16 +189,11 @@ class ParticleSet extends MCLData {
     }
 
     private void moveParticleSet(@NotNull Move move) {
-        Particle[] newParticles = new Particle[particles.length];
-
-        for (int i = 0; i < particles.length; i++) {
-            newParticles[i] = new Particle(
-                    Util.movePose(particles[i].getPose(), move, ANGLE_NOISE_FACTOR, DISTANCE_NOISE_FACTOR),
-                    particles[i].weight
-            );
+        if (parallelUpdater == null) {
+            motionModel.movePoses(xs, ys, headings, 0, numParticles, move, random);
+        } else {
+            parallelUpdater.movePoses(xs, ys, headings, numParticles, move, motionModel);
         }
-
-        this.particles = newParticles;
     }
 
     /**
@@ -110,21 +202,41 @@ class ParticleSet extends MCLData {
      * The algorithm is as follows.
      * {@see https://classroom.udacity.com/courses/ud810/lessons/3353778638/concepts/33450785680923}
      * <p>
-     * 1. Resample the particles using the "spoke" algorithm.
+     * 1. If the effective sample size is too low, resample the particles using the "spoke" algorithm (or KLD-sampling if enabled).
      * 2. For that sampled particle, shift it based on the move
-     * 3. Calculate the probability of getting that reading from the shifted pose. That's the new weight
+     * 3. Calculate the probability of getting that reading from the shifted pose. Multiply the weight by it
      * 4. Normalize weights (multiply all the weight by a constant so that the sum of the weights is one).
+     * <p>
+     * Resampling is skipped while the weights are still spread over many particles since it costs time and
+     * removes particles (particle depletion) without adding information.
+     * <p>
+     * Works directly on the particle arrays so no objects are created.
      *
      * @param readings readings the sensors took
      */
-    @Contract(pure = true)
-    void update(Move move, Readings readings) {
-        resample();
+    synchronized void update(Move move, Readings readings) {
+        if (effectiveSampleSize < RESAMPLE_THRESHOLD * numParticles) {
+            if (kldSampler == null) {
+                resample();
+            } else {
+                resampleKLD(kldSampler);
+            }
+        }
+
         moveParticleSet(move);
         float totalWeight = reweight(readings);
+        readingLikelihood = totalWeight;
         normalize(totalWeight);
     }
 
+    /**
+     * @return how likely the readings of the last update were given the particles (the sum of the weights times the
+     * likelihoods before normalizing). Drops when the particles aren't where the robot is.
+     */
+    synchronized float getReadingLikelihood() {
+        return readingLikelihood;
+    }
+
     /**
      * Imagine a pie chart where each particle is a slice and the size of the slice is proportional to the particle's weight.
      * You then divide the pie chart into n equal sections with n "spokes". N is the number of particles
@@ -132,72 +244,153 @@ class ParticleSet extends MCLData {
      * Particles with higher weights have higher changes of being chosen since they're bigger.
      * Also a dense cluster of particles have a higher chance of having one of their members being chosen since they together form a large section of the pie chart.
      * {@see https://classroom.udacity.com/courses/ud810/lessons/3353208568/concepts/33538586060923}
+     * <p>
+     * Always samples NUM_PARTICLES so that the set shrinks back after global localization.
      */
     private void resample() {
-        Particle[] newParticles = new Particle[particles.length];
-
-        double sizeOfSlice = 1.0 / particles.length;
-        double offset = Math.random() * sizeOfSlice;
+        int numSampled = NUM_PARTICLES;
+        double sizeOfSlice = 1.0 / numSampled;
+        double offset = random.nextFloat() * sizeOfSlice;
         double pastWeights = 0;
         int index = 0;
 
-        for (int spokeCounter = 0; spokeCounter < particles.length; spokeCounter++) {
+        for (int spokeCounter = 0; spokeCounter < numSampled; spokeCounter++) {
             //Keep increasing index until we have found the particle that matches the spoke
-            while (index != particles.length - 1 && pastWeights + particles[index].weight < offset + spokeCounter * sizeOfSlice) {
-                pastWeights += particles[index++].weight; //Add weight of current particle to sum
+            while (index != numParticles - 1 && pastWeights + weights[index] < offset + spokeCounter * sizeOfSlice) {
+                pastWeights += weights[index++]; //Add weight of current particle to sum
             }
 
             //Now index points to correct sampled particle
-            newParticles[spokeCounter] = particles[index];
+            nextXs[spokeCounter] = xs[index];
+            nextYs[spokeCounter] = ys[index];
+            nextHeadings[spokeCounter] = headings[index];
+            nextWeights[spokeCounter] = (float) sizeOfSlice; //All sampled particles are equally likely
         }
 
-        this.particles = newParticles; //Normalize
+        numParticles = numSampled;
+
+        swapBuffers();
     }
 
-    private float reweight(Readings readings) {
-        Particle[] newParticles = new Particle[particles.length];
+    /**
+     * Picks particles one at a time (probability proportional to weight) until the KLDSampler says there are enough.
+     * The number of particles therefore grows when the particles are spread out and shrinks when they have converged.
+     */
+    private void resampleKLD(@NotNull KLDSampler sampler) {
+        float[] cumulative = cumulativeWeights; //Never null when using KLD-sampling
 
         float totalWeight = 0;
-
-        for (int i = 0; i < particles.length; i++) {
-            float newWeight = readings.calculateWeight(particles[i].getPose());
-            totalWeight += newWeight;
-            newParticles[i] = new Particle(particles[i].getPose(), newWeight);
+        for (int i = 0; i < numParticles; i++) {
+            totalWeight += weights[i];
+            cumulative[i] = totalWeight;
         }
 
-        this.particles = newParticles;
+        sampler.reset();
 
-        return totalWeight;
-    }
+        int numSampled = 0;
 
-    private void normalize(float totalWeight) {
-        this.particles = Util.normalizeSet(particles, totalWeight);
+        do {
+            int index = findParticle(cumulative, numParticles, random.nextFloat() * totalWeight);
+
+            nextXs[numSampled] = xs[index];
+            nextYs[numSampled] = ys[index];
+            nextHeadings[numSampled] = headings[index];
+
+            sampler.addSample(xs[index], ys[index], headings[index]);
+            numSampled++;
+        } while (!sampler.isDone(numSampled) && numSampled < nextXs.length);
+
+        numParticles = numSampled;
+
+        //All sampled particles are equally likely
+        for (int i = 0; i < numParticles; i++) {
+            nextWeights[i] = 1F / numParticles;
+        }
+
+        swapBuffers();
     }
 
     /**
-     * Estimate currentPose from weighted average of the particles
-     * Calculate statistics
+     * Binary search for the first particle whose running sum of weights is above value
      */
     @Contract(pure = true)
-    synchronized void refineCurrentPose() {
-        float totalWeights = 0;
+    private static int findParticle(@NotNull float[] cumulative, int numParticles, float value) {
+        int low = 0;
+        int high = numParticles - 1;
 
-        float estimatedX = 0;
-        float estimatedY = 0;
-        float estimatedAngle = 0;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
 
-        for (Particle particle : particles) {
-            estimatedX += particle.getPose().getX() * particle.weight;
-            estimatedY += particle.getPose().getY() * particle.weight;
-            estimatedAngle += particle.getPose().getHeading() * particle.weight;
+            if (cumulative[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
 
-            totalWeights += particle.weight;
+        return low;
+    }
+
+    /**
+     * Makes the arrays that were just written to the main arrays. The old main arrays get reused for the next resample.
+     */
+    private void swapBuffers() {
+        float[] temp = xs;
+        xs = nextXs;
+        nextXs = temp;
+
+        temp = ys;
+        ys = nextYs;
+        nextYs = temp;
+
+        temp = headings;
+        headings = nextHeadings;
+        nextHeadings = temp;
+
+        temp = weights;
+        weights = nextWeights;
+        nextWeights = temp;
+    }
+
+    private float reweight(Readings readings) {
+        if (parallelUpdater == null) {
+            return Util.reweight(xs, ys, headings, weights, 0, numParticles, readings);
+        } else {
+            return parallelUpdater.reweight(xs, ys, headings, weights, numParticles, readings);
+        }
+    }
+
+    /**
+     * Normalizes the weights and updates the effective sample size
+     */
+    private void normalize(float totalWeight) {
+        if (totalWeight == 0) {
+            //No particle matches the readings. Give them all the same weight instead of dividing by zero.
+            for (int i = 0; i < numParticles; i++) {
+                weights[i] = 1F / numParticles;
+            }
+        } else {
+            Util.normalizeWeights(weights, numParticles, totalWeight);
         }
 
-        estimatedX /= totalWeights;
-        estimatedY /= totalWeights;
-        estimatedAngle /= totalWeights;
+        effectiveSampleSize = Util.calculateEffectiveSampleSize(weights, numParticles);
+    }
+
+    /**
+     * Sets currentPose to the mean of the heaviest cluster of particles (see {@link PoseEstimator})
+     * and keeps the cluster's covariance
+     */
+    synchronized void refineCurrentPose() {
+        poseEstimate = poseEstimator.estimate(xs, ys, headings, weights, numParticles);
 
-        this.currentPose = new Pose(estimatedX, estimatedY, (float) Util.normalizeHeading(estimatedAngle));
+        this.currentPose = poseEstimate.getPose();
+    }
+
+    /**
+     * @return the current pose with the covariance of the particles when they were last extracted
+     */
+    @NotNull
+    synchronized PoseEstimate getPoseEstimate() {
+        return poseEstimate.withPose(currentPose);
     }
 }
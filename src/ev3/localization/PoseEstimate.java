@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import lejos.robotics.navigation.Pose;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The robot's pose extracted from the particles along with how uncertain it is. Immutable.
+ * <p>
+ * The covariance is a symmetric 3x3 matrix over (x, y, heading) in mm and degrees.
+ * Ex. getCovariance(X, X) is the variance of x in mm^2 and getCovariance(X, HEADING) is in mm * degrees.
+ */
+public final class PoseEstimate {
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int HEADING = 2;
+
+    private final float x;
+    private final float y;
+    private final float heading;
+
+    //Upper triangle of the covariance matrix : xx, xy, xHeading, yy, yHeading, headingHeading
+    @NotNull
+    private final float[] covariance;
+
+    private final float clusterWeight;
+    private final int numClusters;
+
+    PoseEstimate(float x, float y, float heading, @NotNull float[] covariance, float clusterWeight, int numClusters) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        this.covariance = covariance;
+        this.clusterWeight = clusterWeight;
+        this.numClusters = numClusters;
+    }
+
+    /**
+     * @return the same covariance and clusters around another pose (ex. the pose after the robot moved)
+     */
+    @NotNull
+    @Contract("_ -> new")
+    PoseEstimate withPose(@NotNull Pose pose) {
+        return new PoseEstimate(pose.getX(), pose.getY(), pose.getHeading(), covariance, clusterWeight, numClusters);
+    }
+
+    /**
+     * @return a new pose object (poses are mutable)
+     */
+    @NotNull
+    @Contract(" -> new")
+    public Pose getPose() {
+        return new Pose(x, y, heading);
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getHeading() {
+        return heading;
+    }
+
+    /**
+     * @param row    X, Y or HEADING
+     * @param column X, Y or HEADING
+     */
+    @Contract(pure = true)
+    public float getCovariance(int row, int column) {
+        int low = Math.min(row, column);
+        int high = Math.max(row, column);
+
+        //Index in the upper triangle stored row by row
+        return covariance[low * 3 - low * (low - 1) / 2 + high - low];
+    }
+
+    /**
+     * @return the standard deviation of the distance between the robot and the estimated position in mm (sqrt(var x + var y))
+     */
+    @Contract(pure = true)
+    public float getPositionDeviation() {
+        return (float) Math.sqrt(getCovariance(X, X) + getCovariance(Y, Y));
+    }
+
+    /**
+     * @return the standard deviation of the heading in degrees
+     */
+    @Contract(pure = true)
+    public float getHeadingDeviation() {
+        return (float) Math.sqrt(getCovariance(HEADING, HEADING));
+    }
+
+    /**
+     * @return fraction of the total weight of the particles in the cluster the pose was taken from. Near 1 when the particles agree.
+     */
+    public float getClusterWeight() {
+        return clusterWeight;
+    }
+
+    /**
+     * @return number of separate groups of particles. More than 1 means the particles haven't agreed on where the robot is yet.
+     */
+    public int getNumClusters() {
+        return numClusters;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return "PoseEstimate[x=" + x + ", y=" + y + ", heading=" + heading + ", positionDeviation=" + getPositionDeviation() +
+                ", headingDeviation=" + getHeadingDeviation() + ", clusterWeight=" + clusterWeight + ", numClusters=" + numClusters + "]";
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import ev3.navigation.TrigTable;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Extracts the robot's pose from the particles.
+ * <p>
+ * A weighted average of all the particles is wrong when the particles form more than one group (ex. after global localization)
+ * and averaging headings breaks at the 0/360 wrap (350 and 10 average to 180). Instead :
+ * 1. One pass over the particles adds each particle's weight and moments (sum of w*x, w*x*x, w*cos(heading), ...) to its cell of a grid
+ * 2. Neighbouring occupied cells are joined into clusters (flood fill over the occupied cells only)
+ * 3. The pose is the mean of the heaviest cluster, calculated from the summed moments of its cells.
+ * The heading is the circular mean (direction of the sum of the heading vectors).
+ * <p>
+ * Linear in the number of particles. Doesn't create any objects other than the returned estimate.
+ */
+final class PoseEstimator {
+    private static final float CELL_SIZE = 50; //Particles in neighbouring cells are in the same cluster
+
+    //Moments summed in each cell
+    private static final int WEIGHT = 0;
+    private static final int SUM_X = 1;
+    private static final int SUM_Y = 2;
+    private static final int SUM_XX = 3;
+    private static final int SUM_XY = 4;
+    private static final int SUM_YY = 5;
+    private static final int SUM_COS = 6;
+    private static final int SUM_SIN = 7;
+    private static final int SUM_X_COS = 8;
+    private static final int SUM_X_SIN = 9;
+    private static final int SUM_Y_COS = 10;
+    private static final int SUM_Y_SIN = 11;
+    private static final int NUM_MOMENTS = 12;
+
+    //Cluster of a cell. Cells that no particle is in are UNOCCUPIED.
+    private static final int UNOCCUPIED = -1;
+    private static final int NOT_CLUSTERED = -2;
+
+    private final int cellsX;
+    private final int cellsY;
+
+    @NotNull
+    private final double[] moments; //moments[cell * NUM_MOMENTS + moment]
+    @NotNull
+    private final int[] cellClusters;
+
+    //Cells with at least one particle so that only them need to be visited and cleared
+    @NotNull
+    private final int[] occupiedCells;
+    private int numOccupiedCells;
+
+    @NotNull
+    private final int[] stack; //Flood fill
+
+    @NotNull
+    private final double[] clusterMoments = new double[NUM_MOMENTS];
+
+    PoseEstimator(float mapWidth, float mapHeight, int maxParticles) {
+        cellsX = (int) Math.ceil(mapWidth / CELL_SIZE);
+        cellsY = (int) Math.ceil(mapHeight / CELL_SIZE);
+
+        moments = new double[cellsX * cellsY * NUM_MOMENTS];
+        cellClusters = new int[cellsX * cellsY];
+
+        for (int i = 0; i < cellClusters.length; i++) {
+            cellClusters[i] = UNOCCUPIED;
+        }
+
+        int maxOccupiedCells = Math.min(maxParticles, cellClusters.length);
+
+        occupiedCells = new int[maxOccupiedCells];
+        stack = new int[maxOccupiedCells];
+    }
+
+    /**
+     * @return the mean and covariance of the heaviest cluster of the first numParticles particles
+     */
+    @NotNull
+    PoseEstimate estimate(@NotNull float[] xs, @NotNull float[] ys, @NotNull float[] headings, @NotNull float[] weights, int numParticles) {
+        addParticles(xs, ys, headings, weights, numParticles);
+
+        //Find the clusters and the heaviest one
+        int numClusters = 0;
+        int bestCluster = 0;
+        double bestClusterWeight = -1;
+        double totalWeight = 0;
+
+        for (int i = 0; i < numOccupiedCells; i++) {
+            int cell = occupiedCells[i];
+
+            totalWeight += moments[cell * NUM_MOMENTS + WEIGHT];
+
+            if (cellClusters[cell] != NOT_CLUSTERED) continue;
+
+            double clusterWeight = fillCluster(cell, numClusters);
+
+            if (clusterWeight > bestClusterWeight) {
+                bestClusterWeight = clusterWeight;
+                bestCluster = numClusters;
+            }
+
+            numClusters++;
+        }
+
+        //Add up the moments of the heaviest cluster's cells then clear the grid for next time
+        for (int i = 0; i < NUM_MOMENTS; i++) {
+            clusterMoments[i] = 0;
+        }
+
+        for (int i = 0; i < numOccupiedCells; i++) {
+            int cell = occupiedCells[i];
+            int start = cell * NUM_MOMENTS;
+
+            if (cellClusters[cell] == bestCluster) {
+                for (int j = 0; j < NUM_MOMENTS; j++) {
+                    clusterMoments[j] += moments[start + j];
+                }
+            }
+
+            for (int j = 0; j < NUM_MOMENTS; j++) {
+                moments[start + j] = 0;
+            }
+
+            cellClusters[cell] = UNOCCUPIED;
+        }
+
+        numOccupiedCells = 0;
+
+        return createEstimate(clusterMoments, totalWeight == 0 ? 0 : (float) (bestClusterWeight / totalWeight), numClusters);
+    }
+
+    private void addParticles(@NotNull float[] xs, @NotNull float[] ys, @NotNull float[] headings, @NotNull float[] weights, int numParticles) {
+        for (int i = 0; i < numParticles; i++) {
+            int cell = getCell(xs[i], ys[i]);
+
+            if (cellClusters[cell] == UNOCCUPIED) {
+                if (numOccupiedCells == occupiedCells.length) continue; //More cells than expected. Skip the particle.
+
+                cellClusters[cell] = NOT_CLUSTERED;
+                occupiedCells[numOccupiedCells++] = cell;
+            }
+
+            double w = weights[i];
+            double x = xs[i];
+            double y = ys[i];
+
+            int index = TrigTable.getIndex(headings[i]);
+            double cos = TrigTable.cosAt(index);
+            double sin = TrigTable.sinAt(index);
+
+            int start = cell * NUM_MOMENTS;
+
+            moments[start + WEIGHT] += w;
+            moments[start + SUM_X] += w * x;
+            moments[start + SUM_Y] += w * y;
+            moments[start + SUM_XX] += w * x * x;
+            moments[start + SUM_XY] += w * x * y;
+            moments[start + SUM_YY] += w * y * y;
+            moments[start + SUM_COS] += w * cos;
+            moments[start + SUM_SIN] += w * sin;
+            moments[start + SUM_X_COS] += w * x * cos;
+            moments[start + SUM_X_SIN] += w * x * sin;
+            moments[start + SUM_Y_COS] += w * y * cos;
+            moments[start + SUM_Y_SIN] += w * y * sin;
+        }
+    }
+
+    /**
+     * Labels the occupied cells touching the start cell (including diagonals) as part of the cluster
+     *
+     * @return the total weight of the cluster
+     */
+    private double fillCluster(int startCell, int cluster) {
+        double clusterWeight = 0;
+        int stackSize = 0;
+
+        cellClusters[startCell] = cluster;
+        stack[stackSize++] = startCell;
+
+        while (stackSize != 0) {
+            int cell = stack[--stackSize];
+            int cellX = cell % cellsX;
+            int cellY = cell / cellsX;
+
+            clusterWeight += moments[cell * NUM_MOMENTS + WEIGHT];
+
+            for (int neighbourY = Math.max(0, cellY - 1); neighbourY <= Math.min(cellsY - 1, cellY + 1); neighbourY++) {
+                for (int neighbourX = Math.max(0, cellX - 1); neighbourX <= Math.min(cellsX - 1, cellX + 1); neighbourX++) {
+                    int neighbour = neighbourY * cellsX + neighbourX;
+
+                    if (cellClusters[neighbour] == NOT_CLUSTERED) {
+                        cellClusters[neighbour] = cluster;
+                        stack[stackSize++] = neighbour; //Each cell is only added once so the stack can't overflow
+                    }
+                }
+            }
+        }
+
+        return clusterWeight;
+    }
+
+    /**
+     * Particles outside the map are put in the closest cell
+     */
+    @Contract(pure = true)
+    private int getCell(float x, float y) {
+        int cellX = Math.max(0, Math.min(cellsX - 1, (int) Math.floor(x / CELL_SIZE)));
+        int cellY = Math.max(0, Math.min(cellsY - 1, (int) Math.floor(y / CELL_SIZE)));
+
+        return cellY * cellsX + cellX;
+    }
+
+    /**
+     * The heading's variance is the circular variance -2 * ln(R) where R is the length of the mean heading vector.
+     * The covariances with the heading use sin(heading - mean heading), the same as heading - mean heading when the particles are close.
+     */
+    @NotNull
+    @Contract("_, _, _ -> new")
+    static PoseEstimate createEstimate(@NotNull double[] sums, float clusterWeight, int numClusters) {
+        double weight = sums[WEIGHT];
+
+        if (weight == 0) return new PoseEstimate(0, 0, 0, new float[6], 0, 0);
+
+        double meanX = sums[SUM_X] / weight;
+        double meanY = sums[SUM_Y] / weight;
+        double meanCos = sums[SUM_COS] / weight;
+        double meanSin = sums[SUM_SIN] / weight;
+
+        double meanHeading = Math.atan2(meanSin, meanCos);
+        double resultantLength = Math.min(1, Math.sqrt(meanCos * meanCos + meanSin * meanSin));
+
+        //sin(heading - meanHeading) = sin(heading) * cos(meanHeading) - cos(heading) * sin(meanHeading)
+        double cosMean = Math.cos(meanHeading);
+        double sinMean = Math.sin(meanHeading);
+
+        double covarianceXHeading = cosMean * (sums[SUM_X_SIN] / weight - meanX * meanSin) - sinMean * (sums[SUM_X_COS] / weight - meanX * meanCos);
+        double covarianceYHeading = cosMean * (sums[SUM_Y_SIN] / weight - meanY * meanSin) - sinMean * (sums[SUM_Y_COS] / weight - meanY * meanCos);
+        double varianceHeading = resultantLength == 0 ? Double.MAX_VALUE : -2 * Math.log(resultantLength);
+
+        float[] covariance = {
+                (float) Math.max(0, sums[SUM_XX] / weight - meanX * meanX),
+                (float) (sums[SUM_XY] / weight - meanX * meanY),
+                (float) Math.toDegrees(covarianceXHeading),
+                (float) Math.max(0, sums[SUM_YY] / weight - meanY * meanY),
+                (float) Math.toDegrees(covarianceYHeading),
+                (float) (varianceHeading * Math.toDegrees(1) * Math.toDegrees(1))
+        };
+
+        return new PoseEstimate((float) meanX, (float) meanY, (float) Math.toDegrees(meanHeading), covariance, clusterWeight, numClusters);
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import lejos.robotics.navigation.Move;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The original motion model : the noise on x and y is proportional to dx and dy and the noise on the heading is
+ * proportional to the angle turned. A pure rotation gets no translation noise and a straight travel gets no heading noise.
+ * See {@link Util#movePoses}.
+ */
+final class ProportionalMotionModel implements MotionModel {
+    private final float angleNoiseFactor;
+    private final float distanceNoiseFactor;
+
+    ProportionalMotionModel(float angleNoiseFactor, float distanceNoiseFactor) {
+        this.angleNoiseFactor = angleNoiseFactor;
+        this.distanceNoiseFactor = distanceNoiseFactor;
+    }
+
+    @Override
+    public void movePoses(@NotNull float[] xs, @NotNull float[] ys, @NotNull float[] headings, int start, int end,
+                          @NotNull Move move, @NotNull FastRandom random) {
+        Util.movePoses(xs, ys, headings, start, end, move, angleNoiseFactor, distanceNoiseFactor, random);
+    }
+}
@@ -4,7 +4,11 @@
 
 package ev3.localization;
 
+import common.Config;
+import common.RunModes;
+import common.logger.Logger;
 import common.mapping.MapDataReader;
+import common.mapping.MapPyramid;
 import common.particles.MCLData;
 import ev3.navigation.MyMovePilot;
 import ev3.navigation.Offset;
@@ -19,18 +23,44 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * A pose provider that uses a particle algorithm
+ * <p>
+ * Only the methods that change the particles (update, moveStopped, setPose and localizeGlobally) are synchronized.
+ * After each change they publish an immutable {@link Snapshot} so that getPose() and getPoseEstimate() never lock the provider :
+ * readers (navigator, controller, GUI) never wait for a particle update and never hold up the updater.
  * TODO Look over again for bugs
  */
 public class RobotPoseProvider implements MoveListener, PoseProvider {
-    //    private static final String LOG_TAG = RobotPoseProvider.class.getSimpleName();
+    private static final String LOG_TAG = RobotPoseProvider.class.getSimpleName();
+
+    //The updater only updates the particles when the robot moved at least this much or a sensor reading changed
+    private static final float UPDATE_DISTANCE_THRESHOLD = 10;
+    private static final float UPDATE_ANGLE_THRESHOLD = 5;
+    private static final float UPDATE_COLOR_THRESHOLD = 0.05F;
+
+    private static final long SAMPLE_PERIOD = 20; //ms between two checks of the sensors while moving
+
+    //Lost robot detection (see LostDetector). The likelihoods only range from about 0.4 (no match) to 1 (see LikelihoodTable)
+    //so a drop to LOST_RATIO is already most of the readings not matching.
+    private static final float LOST_SLOW_ALPHA = 0.01F; //About the last 100 updates (1 m)
+    private static final float LOST_FAST_ALPHA = 0.1F; //About the last 10 updates (10 cm)
+    private static final float LOST_RATIO = 0.75F;
+    private static final int LOST_MIN_UPDATES = 50;
 
     @NotNull
     private final MyMovePilot mp;
-    private final MapDataReader surfaceMap;
+    @NotNull
+    private final LikelihoodTable likelihoodTable;
+    //Created with the provider since building the map pyramid takes time (and the provider's lock once the updater runs)
+    @NotNull
+    private final GlobalLocalizer globalLocalizer;
     @NotNull
     private final ParticleSet data;
+    @NotNull
+    private final LostDetector lostDetector = new LostDetector(LOST_SLOW_ALPHA, LOST_FAST_ALPHA, LOST_RATIO, LOST_MIN_UPDATES);
 
     @Nullable
     private RobotPoseProviderListener listener;
@@ -43,21 +73,61 @@ public class RobotPoseProvider implements MoveListener, PoseProvider {
     @Nullable
     private Move completedMove;
 
+    //Last published pose and completedMove. Replaced (never modified) after each change to the particles.
+    @NotNull
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    //Used by the updater to sleep until a move starts
+    @NotNull
+    private final Object moveStartedLock = new Object();
+    private volatile boolean moving = false;
+    //Incremented at the start of each move so that the updater can tell if its readings are from a move that already ended
+    private volatile int moveNumber = 0;
+
+    @Nullable
+    private Updater updater;
+
     public RobotPoseProvider(@NotNull MapDataReader surfaceMap, @NotNull MyMovePilot pilot, Pose startingPose) {
-        this.surfaceMap = surfaceMap;
+        this.likelihoodTable = new LikelihoodTable(surfaceMap);
         this.mp = pilot;
         this.data = new ParticleSet(surfaceMap, startingPose);
 
+        String mapPath = Config.currentMode == RunModes.SIM ? Config.DATA_PC_PATH : Config.DATA_EV3_PATH;
+        this.globalLocalizer = new GlobalLocalizer(new MapPyramid(surfaceMap, mapPath, MapPyramid.NUM_LEVELS), likelihoodTable);
+
         mp.addMoveListener(this);
 
+        if (Config.RECORD_MOTION) mp.addMoveListener(new MotionRecorder(this, Config.MOTION_LOG_PATH));
+
         completedMove = mp.getMovement();
 
-        notifyListener();
+        publish();
     }
 
 
     public void startUpdater(Robot.ColorSensors colorSensors) {
-        new Updater(colorSensors).start();
+        updater = new Updater(colorSensors);
+        updater.start();
+    }
+
+    // UPDATER STATISTICS //
+
+    /**
+     * @return number of particle updates per second since the updater started
+     */
+    public float getUpdateRate() {
+        return updater == null ? 0 : updater.getUpdateRate();
+    }
+
+    public long getUpdateCount() {
+        return updater == null ? 0 : updater.updateCount;
+    }
+
+    /**
+     * @return number of times the sensors were checked but the update was skipped since nothing changed enough
+     */
+    public long getSkippedUpdateCount() {
+        return updater == null ? 0 : updater.skippedUpdateCount;
     }
 
     // LISTENER METHODS //
@@ -77,7 +147,17 @@ public class RobotPoseProvider implements MoveListener, PoseProvider {
     }
 
     /**
-     * Doesn't update the data object since we don't want to need to update the particles each time getPose is called
+     * Publishes the new state of the particles for the readers then notifies the listener. Called after every change.
+     */
+    private void publish() {
+        snapshot.set(new Snapshot(data.getPoseEstimate(), completedMove));
+
+        notifyListener();
+    }
+
+    /**
+     * Doesn't update the data object since we don't want to need to update the particles each time getPose is called.
+     * Never waits for the particles (see {@link Snapshot}).
      *
      * @return the current pose
      */
@@ -85,22 +165,75 @@ public class RobotPoseProvider implements MoveListener, PoseProvider {
     @Override
     @Contract(pure = true)
     public Pose getPose() {
-        Move missingMove = Util.subtractMove(mp.getMovement(), completedMove);
+        return getPoseEstimate().getPose();
+    }
+
+    /**
+     * Never waits for the particles (see {@link Snapshot}).
+     * Retries if the particles were updated while reading the pilot's movement so that both are from the same moment.
+     * The pilot only reports a stop once moveStopped() published the stop so a retry is always enough.
+     *
+     * @return the current pose along with how uncertain it is. The covariance is from the last particle update.
+     */
+    @NotNull
+    public PoseEstimate getPoseEstimate() {
+        Snapshot current;
+        Move totalMove;
+
+        do {
+            current = snapshot.get();
+            totalMove = mp.getMovement();
+        } while (current != snapshot.get());
 
-        return Util.movePose(data.getCurrentPose(), missingMove);
+        Move missingMove = Util.subtractMove(totalMove, current.completedMove);
+
+        return current.estimate.withPose(Util.movePose(current.estimate.getPose(), missingMove));
+    }
+
+    /**
+     * Finds the robot anywhere on the map using the current color readings, instead of only around the last known pose.
+     * Use when the robot is lost (ex. kidnapped). The particles then converge as the robot moves.
+     * The updater calls it by itself when it detects the robot is lost (see Config.LOCALIZE_GLOBALLY_WHEN_LOST).
+     */
+    public void localizeGlobally(@NotNull Robot.ColorSensors colorSensors) {
+        //Read outside of the synchronized method since the pilot calls moveStopped() while holding its lock
+        localizeGlobally(colorSensors.getColorSurfaceLeft(), colorSensors.getColorSurfaceRight(), mp.getMovement());
+    }
+
+    private synchronized void localizeGlobally(float colorLeft, float colorRight, @NotNull Move totalMove) {
+        data.localizeGlobally(globalLocalizer, colorLeft, colorRight);
+        lostDetector.reset();
+
+        completedMove = totalMove;
+
+        publish();
     }
 
     @Override
-    public synchronized void setPose(@NotNull Pose pose) {
+    public void setPose(@NotNull Pose pose) {
+        //Read outside of the synchronized method since the pilot calls moveStopped() while holding its lock
+        setPose(pose, mp.getMovement());
+    }
+
+    private synchronized void setPose(@NotNull Pose pose, @NotNull Move totalMove) {
         data.setPose(pose);
+        lostDetector.reset();
 
-        completedMove = mp.getMovement();
+        completedMove = totalMove;
 
-        notifyListener();
+        publish();
     }
 
+    /**
+     * Wakes up the updater. Not synchronized since it's called by the pilot while holding the pilot's lock.
+     */
     @Override
-    public synchronized void moveStarted(@NotNull Move move, MoveProvider moveProvider) {
+    public void moveStarted(@NotNull Move move, MoveProvider moveProvider) {
+        synchronized (moveStartedLock) {
+            moveNumber++;
+            moving = true;
+            moveStartedLock.notifyAll();
+        }
     }
 
     /**
@@ -111,43 +244,57 @@ public class RobotPoseProvider implements MoveListener, PoseProvider {
      */
     @Override
     public synchronized void moveStopped(@NotNull Move move, MoveProvider moveProvider) {
+        moving = false;
+
         Move missingMove = Util.subtractMove(move, completedMove);
 
         data.moveData(missingMove);
 
         completedMove = null;
 
-        notifyListener();
+        publish();
     }
 
     /**
-     * Updates the particles and position using the algorithm
+     * Updates the particles and position using the algorithm.
+     * Skipped if the move stopped since the readings were taken, since moveStopped() already moved the particles to the end of the move.
+     *
+     * @return true if the readings show that the robot is lost (see {@link LostDetector})
      */
-    private void update(@NotNull Readings readings) {
-        this.update(readings, mp.getMovement());
-    }
+    private synchronized boolean update(@NotNull Readings readings, @NotNull Move totalMove, int readingsMoveNumber) {
+        if (!moving || readingsMoveNumber != moveNumber) return false;
 
-    private synchronized void update(@NotNull Readings readings, @NotNull Move totalMove) {
         Move missingMove = Util.subtractMove(totalMove, completedMove);
 
         data.moveCurrentPose(missingMove);
         data.update(missingMove, readings);
-//        data.refineCurrentPose(); //Updates current pose
+        data.refineCurrentPose(); //Updates current pose
 
         completedMove = totalMove;
 
-        notifyListener(); //TODO Consider removing for optimization
+        publish(); //TODO Consider removing the listener notification for optimization
+
+        return lostDetector.update(data.getReadingLikelihood());
     }
 
     /**
-     * 1. Gets the readings for the left color sensor and apply to particles
-     * 2. Gets the readings for the right color sensor and apply to particles
-     * 3. Repeat forever
-     * TODO Optimize so that it only runs when necessary
+     * 1. Sleeps until the robot is moving
+     * 2. Every SAMPLE_PERIOD checks if the robot moved enough or if the sensors read a new color since the last update
+     * 3. If so combines the readings of both color sensors and applies them to the particles in a single update
+     * 4. If the readings show the robot is lost, localizes it globally with the same readings
+     * 5. Repeat forever
      */
     final class Updater extends Thread {
         private final Robot.ColorSensors colorSensors;
 
+        //Readings used during the last update
+        private float lastColorLeft = -1;
+        private float lastColorRight = -1;
+
+        private final long startTime = System.currentTimeMillis();
+        private volatile long updateCount = 0;
+        private volatile long skippedUpdateCount = 0;
+
         Updater(Robot.ColorSensors colorSensors) {
             super();
 
@@ -159,14 +306,79 @@ public class RobotPoseProvider implements MoveListener, PoseProvider {
 
         @Override
         public void run() {
-            //noinspection InfiniteLoopStatement
-            for (; ; Thread.yield()) {
-                if (mp.isMoving()) {
-                    update(new SurfaceReadings(surfaceMap, colorSensors.getColorSurfaceLeft(), Offset.LEFT_COLOR_SENSOR));
-                    update(new SurfaceReadings(surfaceMap, colorSensors.getColorSurfaceRight(), Offset.RIGHT_COLOR_SENSOR));
+            try {
+                //noinspection InfiniteLoopStatement
+                while (true) {
+                    waitForNextSample();
+
+                    int readingsMoveNumber = moveNumber;
+                    float colorLeft = colorSensors.getColorSurfaceLeft();
+                    float colorRight = colorSensors.getColorSurfaceRight();
+                    Move totalMove = mp.getMovement();
+
+                    if (shouldUpdate(totalMove, colorLeft, colorRight)) {
+                        boolean lost = update(new CombinedReadings(
+                                new SurfaceReadings(likelihoodTable, colorLeft, Offset.LEFT_COLOR_SENSOR),
+                                new SurfaceReadings(likelihoodTable, colorRight, Offset.RIGHT_COLOR_SENSOR)
+                        ), totalMove, readingsMoveNumber);
+
+                        if (lost && Config.LOCALIZE_GLOBALLY_WHEN_LOST) {
+                            Logger.warning(LOG_TAG, "Robot lost, localizing globally");
+                            localizeGlobally(colorLeft, colorRight, mp.getMovement());
+                        }
+
+                        lastColorLeft = colorLeft;
+                        lastColorRight = colorRight;
+                        updateCount++;
+                    } else {
+                        skippedUpdateCount++;
+                    }
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
+
+        /**
+         * Blocks while the robot isn't moving, then waits SAMPLE_PERIOD so that the sensors have time to get new data
+         */
+        private void waitForNextSample() throws InterruptedException {
+            synchronized (moveStartedLock) {
+                while (!moving) moveStartedLock.wait();
+            }
+
+            Thread.sleep(SAMPLE_PERIOD);
+        }
+
+        private boolean shouldUpdate(@NotNull Move totalMove, float colorLeft, float colorRight) {
+            Move missingMove = Util.subtractMove(totalMove, snapshot.get().completedMove);
+
+            return Math.abs(missingMove.getDistanceTraveled()) >= UPDATE_DISTANCE_THRESHOLD ||
+                    Math.abs(missingMove.getAngleTurned()) >= UPDATE_ANGLE_THRESHOLD ||
+                    Math.abs(colorLeft - lastColorLeft) >= UPDATE_COLOR_THRESHOLD ||
+                    Math.abs(colorRight - lastColorRight) >= UPDATE_COLOR_THRESHOLD;
+        }
+
+        float getUpdateRate() {
+            long elapsedTime = System.currentTimeMillis() - startTime;
+            return elapsedTime == 0 ? 0 : updateCount * 1000F / elapsedTime;
+        }
+    }
+
+    /**
+     * The pose when it was last published and how much of the current move the particles had been moved by at that time.
+     * Both are replaced together so a reader can never see the pose of one update with the completedMove of another.
+     */
+    private static final class Snapshot {
+        @NotNull
+        final PoseEstimate estimate;
+        @Nullable
+        final Move completedMove;
+
+        Snapshot(@NotNull PoseEstimate estimate, @Nullable Move completedMove) {
+            this.estimate = estimate;
+            this.completedMove = completedMove;
+        }
     }
 
     public interface RobotPoseProviderListener {
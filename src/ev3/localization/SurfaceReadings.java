@@ -7,35 +7,45 @@ package ev3.localization;
 import common.mapping.MapDataReader;
 import ev3.navigation.Offset;
 import ev3.navigation.Readings;
-import lejos.robotics.geometry.Point;
 import lejos.robotics.navigation.Pose;
 import org.jetbrains.annotations.NotNull;
 
 /**
  * The probability of getting this color reading from a certain pose is calculated as being :
  * The percentage of colors matching the reading in the poses region.
+ * The probabilities are looked up in a {@link LikelihoodTable} instead of being calculated each time.
  */
 public class SurfaceReadings implements Readings {
     private final MapDataReader surfaceMap;
     private final float colorToMatch;
     private final Offset offset;
 
-    SurfaceReadings(MapDataReader surfaceMap, float color, Offset offset) {
-        this.surfaceMap = surfaceMap;
+    //Likelihood of this reading for each map cell value
+    private final float[] likelihoods;
+
+    SurfaceReadings(@NotNull LikelihoodTable likelihoodTable, float color, Offset offset) {
+        this.surfaceMap = likelihoodTable.getSurfaceMap();
         this.colorToMatch = color;
         this.offset = offset;
+        this.likelihoods = likelihoodTable.getLikelihoodsForReading(color);
     }
 
     public float calculateWeight(@NotNull Pose pose) {
-        if (!surfaceMap.contains(pose.getLocation())) return 0;
+        return calculateWeight(pose.getX(), pose.getY(), pose.getHeading());
+    }
+
+    @Override
+    public float calculateWeight(float x, float y, float heading) {
+        if (!surfaceMap.contains(x, y)) return 0;
 
-        Point location = offset.offset(pose);
+        float sensorX = offset.offsetX(x, heading);
+        float sensorY = offset.offsetY(y, heading);
 
-        if (!surfaceMap.contains(location)) return 0;
+        if (!surfaceMap.contains(sensorX, sensorY)) return 0;
 
         if (colorToMatch == -1) return 0;
 
-        return Util.bellCurveFunction(colorToMatch - surfaceMap.getColorAtPoint(location));
+        return likelihoods[surfaceMap.getCellAtPoint(sensorX, sensorY)];
     }
 
     @NotNull
@@ -4,27 +4,21 @@
 
 package ev3.localization;
 
-import common.particles.Particle;
+import ev3.navigation.Readings;
+import ev3.navigation.TrigTable;
 import lejos.robotics.navigation.Move;
 import lejos.robotics.navigation.Pose;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Random;
-
 /**
  * Util classes containing the core of the particle algorithm
  * TODO Review for bugs
  */
 final class Util {
-    private static final Random random = new Random();
-
-    @Contract(pure = true)
-    @NotNull
-    static Pose movePose(@NotNull Pose pose, @NotNull Move move) {
-        return movePose(pose, move, 0, 0);
-    }
+    //Use the TrigTable in movePoses() instead of Math.cos and Math.sin. Moves the particles by less than 0.1% of the move's length.
+    private static final boolean USE_TRIG_TABLE = true;
 
     /**
      * Subtracts move2 from move1
@@ -64,44 +58,125 @@ final class Util {
     }
 
     /**
-     * Makes the sum of the weights of all the particles equal to one
+     * Makes the sum of the first numParticles weights equal to one
+     */
+    static void normalizeWeights(@NotNull float[] weights, int numParticles, float totalWeight) {
+        for (int i = 0; i < numParticles; i++) {
+            weights[i] /= totalWeight;
+        }
+    }
+
+    /**
+     * @return 1 / sum(weight^2) of the first numParticles normalized weights
      */
     @Contract(pure = true)
-    static Particle[] normalizeSet(@NotNull Particle[] particles, float totalWeight) {
-        for (int i = 0; i < particles.length; i++) {
-            particles[i] = new Particle(particles[i], particles[i].weight / totalWeight);
+    static float calculateEffectiveSampleSize(@NotNull float[] weights, int numParticles) {
+        float sumOfSquares = 0;
+
+        for (int i = 0; i < numParticles; i++) {
+            sumOfSquares += weights[i] * weights[i];
         }
 
-        return particles;
+        return 1 / sumOfSquares;
     }
 
     /**
-     * Shifts a pose and applies noise
+     * Shifts a pose (without noise)
      * Modified version of the Odometry Pose Provider algorithm from the source code
      */
     @Contract(pure = true)
     @NotNull
-    static Pose movePose(@NotNull Pose originalPose, @NotNull Move move, float angleNoiseFactor, float distanceNoiseFactor) {
-        double dx = 0;
-        double dy = 0;
-
-        if (move.getMoveType() == Move.MoveType.TRAVEL) {
-            double headingRad = (Math.toRadians(originalPose.getHeading()));
-            dx = move.getDistanceTraveled() * Math.cos(headingRad);
-            dy = move.getDistanceTraveled() * Math.sin(headingRad);
+    static Pose movePose(@NotNull Pose originalPose, @NotNull Move move) {
+        double direction = Math.toRadians(originalPose.getHeading() + getChordAngle(move));
+        double chordLength = getChordLength(move);
+
+        return new Pose(
+                (float) (originalPose.getX() + chordLength * Math.cos(direction)),
+                (float) (originalPose.getY() + chordLength * Math.sin(direction)),
+                (float) normalizeHeading(originalPose.getHeading() + move.getAngleTurned())
+        );
+    }
+
+    /**
+     * Same as {@link #movePose(Pose, Move)} but applies noise and shifts the poses from index start (inclusive) to end (exclusive)
+     * of the arrays in place. Doesn't create any objects.
+     * <p>
+     * The chord of the move (straight line from the start to the end of the move) is the same for every particle so
+     * each particle only needs one cos and one sin (from the TrigTable if USE_TRIG_TABLE).
+     *
+     * @param random random number generator used for the noise. Each thread should use its own.
+     */
+    static void movePoses(@NotNull float[] xs, @NotNull float[] ys, @NotNull float[] headings, int start, int end,
+                          @NotNull Move move, float angleNoiseFactor, float distanceNoiseFactor, @NotNull FastRandom random) {
+        float angleTurned = move.getAngleTurned();
+        float chordAngle = getChordAngle(move);
+        float chordLength = getChordLength(move);
+
+        for (int i = start; i < end; i++) {
+            float direction = headings[i] + chordAngle;
+            float dx;
+            float dy;
+
+            if (USE_TRIG_TABLE) {
+                int index = TrigTable.getIndex(direction);
+                dx = chordLength * TrigTable.cosAt(index);
+                dy = chordLength * TrigTable.sinAt(index);
+            } else {
+                double directionRad = Math.toRadians(direction);
+                dx = (float) (chordLength * Math.cos(directionRad));
+                dy = (float) (chordLength * Math.sin(directionRad));
+            }
+
+            xs[i] += dx + dx * random.nextGaussian() * distanceNoiseFactor;
+            ys[i] += dy + dy * random.nextGaussian() * distanceNoiseFactor;
+            headings[i] = (float) normalizeHeading(headings[i] + angleTurned + angleTurned * angleNoiseFactor * random.nextGaussian());
+        }
+    }
+
+    /**
+     * Sets each weight from index start (inclusive) to end (exclusive) to the weight times the probability of the readings
+     *
+     * @return the sum of the new weights
+     */
+    static float reweight(@NotNull float[] xs, @NotNull float[] ys, @NotNull float[] headings, @NotNull float[] weights,
+                          int start, int end, @NotNull Readings readings) {
+        float totalWeight = 0;
+
+        for (int i = start; i < end; i++) {
+            float newWeight = weights[i] * readings.calculateWeight(xs[i], ys[i], headings[i]);
+            totalWeight += newWeight;
+            weights[i] = newWeight;
+        }
+
+        return totalWeight;
+    }
+
+    /**
+     * Modified version of the Odometry Pose Provider algorithm from the source code.
+     * An arc of angle turn and radius r moves the robot by 2 * r * sin(turn / 2) in the direction heading + turn / 2
+     * (same as r * (sin(heading + turn) - sin(heading)) for x and r * (cos(heading) - cos(heading + turn)) for y).
+     *
+     * @return the distance between the start and the end of the move
+     */
+    @Contract(pure = true)
+    static float getChordLength(@NotNull Move move) {
+        if (move.getMoveType() == Move.MoveType.TRAVEL || (move.getMoveType() == Move.MoveType.ARC && move.getAngleTurned() == 0)) {
+            return move.getDistanceTraveled();
         } else if (move.getMoveType() == Move.MoveType.ARC) {
-            double headingRad = (Math.toRadians(originalPose.getHeading()));
             double turnRad = Math.toRadians(move.getAngleTurned());
             double radius = move.getDistanceTraveled() / turnRad;
-            dy = radius * (Math.cos(headingRad) - Math.cos(headingRad + turnRad));
-            dx = radius * (Math.sin(headingRad + turnRad) - Math.sin(headingRad));
+            return (float) (2 * radius * Math.sin(turnRad / 2));
         }
 
-        return new Pose(
-                (float) (originalPose.getX() + dx + dx * random.nextGaussian() * distanceNoiseFactor),
-                (float) (originalPose.getY() + dy + dy * random.nextGaussian() * distanceNoiseFactor),
-                (float) normalizeHeading(originalPose.getHeading() + move.getAngleTurned() + move.getAngleTurned() * angleNoiseFactor * random.nextGaussian())
-        );
+        return 0;
+    }
+
+    /**
+     * @return the direction of the move compared to the starting heading (in degrees)
+     */
+    @Contract(pure = true)
+    static float getChordAngle(@NotNull Move move) {
+        return move.getMoveType() == Move.MoveType.ARC ? move.getAngleTurned() / 2 : 0;
     }
 
     @Contract(pure = true)
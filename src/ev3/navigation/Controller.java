@@ -19,6 +19,8 @@ import org.jetbrains.annotations.Nullable;
 public final class Controller implements MoveListener, NavigationListener {
     private static final String LOG_TAG = Controller.class.getSimpleName();
 
+    private static final long POSE_SEND_PERIOD = 100; //ms between two poses sent to the computer while following a path
+
     private final MyNavigator navigator;
 
     public Controller(@NotNull MyNavigator navigator) {
@@ -63,12 +65,13 @@ public final class Controller implements MoveListener, NavigationListener {
         followPath(path, null);
     }
 
+    /**
+     * Sends the pose to the computer every POSE_SEND_PERIOD until the robot stops
+     */
     private void waitForStop() {
-        while (navigator.isMoving()) {
+        do {
             ComManager.sendTransmittable(TransmittableType.CURRENT_POSE, navigator.getPoseProvider().getPose());
-
-            Thread.yield();
-        }
+        } while (!navigator.waitForStop(POSE_SEND_PERIOD));
     }
 
     //TODO Consider removing and instead working directly with the Navigator
@@ -4,6 +4,10 @@
 
 package ev3.navigation;
 
+import common.Config;
+import common.RunModes;
+import common.logger.Logger;
+import common.mapping.FieldGeometry;
 import lejos.robotics.geometry.Point;
 import lejos.robotics.localization.PoseProvider;
 import lejos.robotics.navigation.Pose;
@@ -11,9 +15,34 @@ import lejos.robotics.navigation.Waypoint;
 import lejos.robotics.pathfinding.Path;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
-
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the paths to the important points of the field.
+ * <p>
+ * The paths go around the obstacles (the containers and the water with the boats) : the robot's path to the approach point
+ * is planned by a {@link PathPlanner} and the approach (left or right, top or bottom) with the shortest planned path is used.
+ * The lines are painted on the field so they aren't obstacles.
+ * <p>
+ * The routes from the points the robot ends up at (the start, containers, temp regs and boats) to the approach points are planned
+ * offline by {@link RouteTableGenerator}. When the robot is near one of these points the path is looked up in the {@link RouteTable}
+ * and only paths from elsewhere are planned during the run.
+ */
 public final class MapOperations {
+    private static final String LOG_TAG = MapOperations.class.getSimpleName();
+
     private static final float APPROACH_DIST = 250; //How for to be when approaching a point
+    private static final float MAX_CONNECTOR_LENGTH = 100; //How far the robot can be from a route's origin to use the route
+
+    //Path planning. The obstacles are the water and the containers' bases (see FieldGeometry).
+    private static final float CELL_SIZE = 20; //mm
+    //Half the robot's width (it must fit in the starting square). The clearances are measured from the centers of the cells
+    //so it is padded by half a cell's diagonal for the robot to never touch an obstacle.
+    static final float ROBOT_RADIUS = FieldGeometry.START_AREA_SIZE / 2 + CELL_SIZE * (float) Math.sqrt(2) / 2;
 
     //CONSTANTS FOR IMPORTANT POINTS
     private static final Waypoint TEMP_REG_GREEN = new Waypoint(1902, 306);
@@ -21,97 +50,166 @@ public final class MapOperations {
     private static final Waypoint TEMP_REG_YELLOW = new Waypoint(1578, 838);
     private static final Waypoint TEMP_REG_RED = new Waypoint(1578, 306);
 
-    private static final Waypoint CONTAINER_TOP_LEFT = new Waypoint(871.5F, 756);
-    private static final Waypoint CONTAINER_TOP_RIGHT = new Waypoint(1303.5F, 827);
-    private static final Waypoint CONTAINER_BOTTOM_LEFT = new Waypoint(797.5F, 333);
-    private static final Waypoint CONTAINER_BOTTOM_RIGHT = new Waypoint(1235.5F, 404);
+    private static final Waypoint CONTAINER_TOP_LEFT = new Waypoint(FieldGeometry.CONTAINER_TOP_LEFT);
+    private static final Waypoint CONTAINER_TOP_RIGHT = new Waypoint(FieldGeometry.CONTAINER_TOP_RIGHT);
+    private static final Waypoint CONTAINER_BOTTOM_LEFT = new Waypoint(FieldGeometry.CONTAINER_BOTTOM_LEFT);
+    private static final Waypoint CONTAINER_BOTTOM_RIGHT = new Waypoint(FieldGeometry.CONTAINER_BOTTOM_RIGHT);
 
 
     public static final Waypoint BOAT_ONE = new Waypoint(450, 100);
     public static final Waypoint BOAT_TWO = new Waypoint(450, 300);
     private static final Waypoint BOAT_THREE = new Waypoint(450, 500);
 
+    private static final Waypoint[] CONTAINERS = {CONTAINER_TOP_LEFT, CONTAINER_TOP_RIGHT, CONTAINER_BOTTOM_LEFT, CONTAINER_BOTTOM_RIGHT};
+    private static final Waypoint[] TEMP_REGS = {TEMP_REG_GREEN, TEMP_REG_BLUE, TEMP_REG_YELLOW, TEMP_REG_RED};
+    private static final Waypoint[] BOATS = {BOAT_ONE, BOAT_TWO, BOAT_THREE};
+
     private final PoseProvider poseProvider;
 
+    @NotNull
+    private final PathPlanner planner;
+    @Nullable
+    private final RouteTable routeTable;
+
     public MapOperations(PoseProvider poseProvider) {
         this.poseProvider = poseProvider;
+        this.planner = createPlanner();
+
+        File routeFile = new File(Config.currentMode == RunModes.SIM ? Config.ROUTES_PC_PATH : Config.ROUTES_EV3_PATH);
+        RouteTable table = RouteTable.load(routeFile);
+
+        if (table == null) {
+            Logger.warning(LOG_TAG, "No route table at " + routeFile + ". Run RouteTableGenerator.");
+        } else if (!table.matches(getRouteOrigins(), getRouteTargets())) {
+            Logger.warning(LOG_TAG, "Route table " + routeFile + " is out of date. Run RouteTableGenerator.");
+            table = null;
+        }
+
+        routeTable = table;
+
+        //Without the table, calculates the planner's heuristic for every target now rather than when the robot needs the path
+        if (routeTable == null) {
+            for (Waypoint target : getRouteTargets()) {
+                planner.prepare(target);
+            }
+        }
+    }
+
+    @NotNull
+    static PathPlanner createPlanner() {
+        return new PathPlanner(createObstacleGrid(), ROBOT_RADIUS);
+    }
+
+    /**
+     * @return where the robot can be when it needs a path : the start and the end of every path
+     */
+    @NotNull
+    static List<Waypoint> getRouteOrigins() {
+        List<Waypoint> origins = new ArrayList<>();
+
+        Pose startingPose = NavigatorBuilder.getStartingPose();
+        origins.add(new Waypoint(startingPose.getX(), startingPose.getY()));
+
+        for (Waypoint container : CONTAINERS) origins.add(container);
+        for (Waypoint tempReg : TEMP_REGS) origins.add(tempReg);
+        for (Waypoint boat : BOATS) origins.add(boat);
+
+        return origins;
+    }
+
+    /**
+     * @return where the paths are planned to : the approach points and the boats
+     */
+    @NotNull
+    static List<Waypoint> getRouteTargets() {
+        List<Waypoint> targets = new ArrayList<>();
+
+        for (Waypoint container : CONTAINERS) {
+            targets.add(getApproachLeft(container));
+            targets.add(getApproachRight(container));
+        }
+
+        for (Waypoint tempReg : TEMP_REGS) {
+            targets.add(getApproachTop(tempReg));
+            targets.add(getApproachBottom(tempReg));
+        }
+
+        for (Waypoint boat : BOATS) targets.add(boat);
+
+        return targets;
+    }
+
+    @NotNull
+    static OccupancyGrid createObstacleGrid() {
+        OccupancyGrid grid = new OccupancyGrid(FieldGeometry.FIELD_WIDTH, FieldGeometry.FIELD_HEIGHT, CELL_SIZE);
+
+        grid.addObstacle(0, 0, FieldGeometry.WATER_WIDTH, FieldGeometry.FIELD_HEIGHT);
+
+        float halfBase = FieldGeometry.CONTAINER_BASE_SIZE / 2;
+
+        for (Waypoint container : CONTAINERS) {
+            grid.addObstacle(container.x - halfBase, container.y - halfBase, container.x + halfBase, container.y + halfBase);
+        }
+
+        grid.computeClearances();
+
+        return grid;
     }
 
-    @Contract(pure = true)
     @NotNull
     public Path getPathToContainerTopLeft() {
         return approachLeftRight(CONTAINER_TOP_LEFT, poseProvider.getPose());
     }
 
-    @Contract(pure = true)
     @NotNull
     public Path getPathToContainerTopRight() {
         return approachLeftRight(CONTAINER_TOP_RIGHT, poseProvider.getPose());
     }
 
-    @Contract(pure = true)
     @NotNull
     public Path getPathToContainerBottomLeft() {
         return approachLeftRight(CONTAINER_BOTTOM_LEFT, poseProvider.getPose());
     }
 
-    @Contract(pure = true)
     @NotNull
     public Path getPathToContainerBottomRight() {
         return approachLeftRight(CONTAINER_BOTTOM_RIGHT, poseProvider.getPose());
     }
 
-    @Contract(pure = true)
     @NotNull
     public Path getPathToTempRegGreen() {
         return approachTopOrBottom(TEMP_REG_GREEN, poseProvider.getPose());
     }
 
-    @Contract(pure = true)
     @NotNull
     public Path getPathToTempRegBlue() {
         return approachTopOrBottom(TEMP_REG_BLUE, poseProvider.getPose());
     }
 
-    @Contract(pure = true)
     @NotNull
     public Path getPathToTempRegRed() {
         return approachTopOrBottom(TEMP_REG_RED, poseProvider.getPose());
     }
 
-    @Contract(pure = true)
     @NotNull
     public Path goToTempRegYellow() {
         return approachTopOrBottom(TEMP_REG_YELLOW, poseProvider.getPose());
     }
 
-    @Contract(pure = true)
     @NotNull
     public Path getPathToBoatOne() {
-
-        Path path = new Path();
-        path.add(BOAT_ONE);
-        return path;
-
+        return planPath(BOAT_ONE, poseProvider.getPose());
     }
 
-    @Contract(pure = true)
     @NotNull
     public Path getPathToBoatX(Waypoint waypoint) {
-
-        Path path = new Path();
-        path.add(waypoint);
-        return path;
-
+        return planPath(waypoint, poseProvider.getPose());
     }
 
 
-    @Contract(pure = true)
     @NotNull
     public Path getPathToBoatThree() {
-        Path path = new Path();
-        path.add(new Waypoint(BOAT_THREE.x,BOAT_THREE.y,90));
-        return path;
+        return planPath(new Waypoint(BOAT_THREE.x, BOAT_THREE.y, 90), poseProvider.getPose());
     }
 
 
@@ -120,27 +218,75 @@ public final class MapOperations {
      * Finds the best path knowing it has to approach from the left or the right
      */
     @NotNull
-    @Contract(pure = true)
-    private static Path approachLeftRight(@NotNull Waypoint destination, @NotNull Pose currentPose) {
-        Path path = new Path();
-        path.add(getClosest(currentPose, getApproachLeft(destination), getApproachRight(destination)));
+    private Path approachLeftRight(@NotNull Waypoint destination, @NotNull Pose currentPose) {
+        return approachFromEither(destination, getApproachLeft(destination), getApproachRight(destination), currentPose);
+    }
+
+    /**
+     * Finds the best path knowing it has to approach from the top or the bottom
+     */
+    @NotNull
+    private Path approachTopOrBottom(@NotNull Waypoint destination, @NotNull Pose currentPose) {
+        return approachFromEither(destination, getApproachTop(destination), getApproachBottom(destination), currentPose);
+    }
+
+    /**
+     * Gets the paths to both approaches and keeps the shortest.
+     * If neither can be planned (ex. the robot is lost outside the field), goes straight to the closest approach like before.
+     */
+    @NotNull
+    private Path approachFromEither(@NotNull Waypoint destination, @NotNull Waypoint approach1, @NotNull Waypoint approach2,
+                                    @NotNull Pose currentPose) {
+        Path path1 = getPath(approach1, currentPose);
+        Path path2 = getPath(approach2, currentPose);
+
+        Path path;
+
+        if (path1 == null && path2 == null) {
+            path = new Path();
+            path.add(getClosest(currentPose, approach1, approach2));
+        } else if (path2 == null || (path1 != null && PathPlanner.getLength(currentPose.getX(), currentPose.getY(), path1) <=
+                PathPlanner.getLength(currentPose.getX(), currentPose.getY(), path2))) {
+            path = path1;
+        } else {
+            path = path2;
+        }
+
         path.add(destination);
 
         return path;
     }
 
     /**
-     * Finds the best path knowing it has to approach from the left or the right
+     * @return the planned path to the destination or straight to it if it can't be planned
      */
     @NotNull
-    @Contract(pure = true)
-    private static Path approachTopOrBottom(@NotNull Waypoint destination, @NotNull Pose currentPose) {
-        Path path = new Path();
-        path.add(getClosest(currentPose, getApproachTop(destination), getApproachBottom(destination)));
-        path.add(destination);
+    private Path planPath(@NotNull Waypoint destination, @NotNull Pose currentPose) {
+        Path path = getPath(destination, currentPose);
+
+        if (path == null) {
+            path = new Path();
+            path.add(destination);
+        }
 
         return path;
     }
+
+    /**
+     * @return the route from the table if the robot is near a route's origin and can drive straight to the route's first waypoint,
+     * otherwise the planned path. Null if the target can't be reached.
+     */
+    @Nullable
+    private Path getPath(@NotNull Waypoint target, @NotNull Pose currentPose) {
+        if (routeTable != null) {
+            Path route = routeTable.getRoute(currentPose, target, MAX_CONNECTOR_LENGTH);
+
+            if (route != null && planner.isInSight(currentPose.getX(), currentPose.getY(), route.get(0).x, route.get(0).y)) return route;
+        }
+
+        return planner.plan(currentPose.getX(), currentPose.getY(), target);
+    }
+
     @NotNull
     @Contract(pure = true)
     private static Path approachBottom(@NotNull Waypoint destination) {
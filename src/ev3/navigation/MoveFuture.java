@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import lejos.robotics.navigation.Move;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Completes when a move of the pilot ends, with the move that was actually done. See {@link MyMovePilot#getMoveFuture()}.
+ * <p>
+ * Waiting threads sleep until the pilot's monitor detects the end of the move.
+ * Can't be cancelled, stop the pilot instead.
+ */
+public final class MoveFuture implements Future<Move> {
+    @NotNull
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Move move;
+
+    void complete(@NotNull Move move) {
+        this.move = move;
+        done.countDown();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @NotNull
+    @Override
+    public Move get() throws InterruptedException {
+        done.await();
+        return move;
+    }
+
+    @NotNull
+    @Override
+    public Move get(long timeout, @NotNull TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!done.await(timeout, unit)) throw new TimeoutException();
+        return move;
+    }
+}
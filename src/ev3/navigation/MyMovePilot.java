@@ -15,15 +15,29 @@ import java.util.ArrayList;
 
 /**
  * Taken from the lejos source code and modified to fix several bugs and remove useless stuff
+ * <p>
+ * Nothing spins : the monitor sleeps until a move starts then checks the chassis every MONITOR_PERIOD,
+ * and threads waiting for the end of a move wait on the pilot until the monitor notifies them.
  */
 @SuppressWarnings({"WeakerAccess", "unused"})
 public class MyMovePilot implements MoveProvider {
+    private static final long MONITOR_PERIOD = 10; //ms between two checks of the chassis while moving
+
     @NotNull
     private final Chassis chassis;
     @NotNull
     private final ArrayList<MoveListener> listeners = new ArrayList<>();
     private double minRadius;
     private volatile boolean moveActive = false;
+    //Completed at the end of the current move. Replaced at the start of each move.
+    @NotNull
+    private volatile MoveFuture moveFuture = new MoveFuture();
+
+    //True while the current move was started by steer(). The chassis only measures the displacement since the last
+    //change of speeds so the displacement before it is kept here.
+    private boolean steering = false;
+    private float steeredDistance;
+    private float steeredAngle;
 
     /**
      * Allocates a Pilot object.<br>
@@ -33,6 +47,7 @@ public class MyMovePilot implements MoveProvider {
     MyMovePilot(@NotNull Chassis chassis) {
         this.chassis = chassis;
         minRadius = chassis.getMinRadius();
+        moveFuture.complete(new Move(Move.MoveType.STOP, 0, 0, false)); //No move yet
         new Monitor().start();
     }
 
@@ -169,6 +184,46 @@ public class MyMovePilot implements MoveProvider {
         rotate(Double.NEGATIVE_INFINITY, true);
     }
 
+    /**
+     * Starts or changes a continuous move at the given speeds (used by the navigator to steer along a path).
+     * The move lasts until stop() or another move.
+     * <p>
+     * All the speed changes are one move for the listeners : they are only told when the steering starts and stops.
+     * getMovement() gives the distance and angle since the start of the steering. The pose providers integrate it in small
+     * steps (each getPose() or particle update) so they follow the changes of speed.
+     *
+     * @param linearSpeed  mm/s, negative to go backwards
+     * @param angularSpeed degrees/s, positive turns left
+     */
+    public synchronized void steer(double linearSpeed, double angularSpeed) {
+        if (moveActive && steering) {
+            Move segment = chassis.getDisplacement(new Move(0, 0, false));
+
+            chassis.moveStart();
+            chassis.setVelocity(linearSpeed, angularSpeed);
+
+            steeredDistance += segment.getDistanceTraveled();
+            steeredAngle += segment.getAngleTurned();
+            return;
+        }
+
+        if (moveActive) {
+            Move previousMove = chassis.getDisplacement(new Move(0, 0, false));
+
+            chassis.moveStart();
+            chassis.setVelocity(linearSpeed, angularSpeed);
+            endMove(previousMove);
+        } else {
+            chassis.moveStart();
+            chassis.setVelocity(linearSpeed, angularSpeed);
+        }
+
+        Move.MoveType moveType = angularSpeed == 0 ? Move.MoveType.TRAVEL : linearSpeed == 0 ? Move.MoveType.ROTATE : Move.MoveType.ARC;
+
+        notifyMoveStart(new Move(moveType, 0, 0, (float) linearSpeed, (float) angularSpeed, true));
+        steering = true;
+    }
+
     /**
      * Created custom rotate to avoid the modified arc method
      */
@@ -195,8 +250,15 @@ public class MyMovePilot implements MoveProvider {
         if (!immediateReturn) waitForStop();
     }
 
-    private void waitForStop() {
-        while (moveActive) Thread.yield();
+    /**
+     * Blocks until the monitor detects the end of the move
+     */
+    private synchronized void waitForStop() {
+        try {
+            while (moveActive) wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     public void stop() {
@@ -208,45 +270,108 @@ public class MyMovePilot implements MoveProvider {
         return moveActive;
     }
 
+    /**
+     * Use after starting a move with immediateReturn to wait for the end of it without spinning
+     *
+     * @return the future of the current move, or of the last one if the robot isn't moving (already done)
+     */
+    @NotNull
+    public MoveFuture getMoveFuture() {
+        return moveFuture;
+    }
+
     // Methods dealing the start and end of a move
 
+    /**
+     * Also wakes up the monitor
+     */
     private synchronized void notifyMoveStart(Move move) {
         moveActive = true;
+        moveFuture = new MoveFuture();
 
         for (MoveListener ml : listeners) ml.moveStarted(move, this);
+
+        notifyAll();
     }
 
+    /**
+     * Also wakes up the threads waiting for the end of the move and completes its future
+     */
     private synchronized void notifyStop() {
+        if (!moveActive) return;
+
+        endMove(getDisplacement(false));
+    }
+
+    private synchronized void endMove(@NotNull Move move) {
         moveActive = false;
+        steering = false;
+        steeredDistance = 0;
+        steeredAngle = 0;
 
-        for (MoveListener ml : listeners) ml.moveStopped(chassis.getDisplacement(new Move(0, 0, false)), this);
+        for (MoveListener ml : listeners) ml.moveStopped(move, this);
+
+        moveFuture.complete(move);
+        notifyAll();
     }
 
     public synchronized Move getMovement() {
         if (moveActive) {
-            return chassis.getDisplacement(new Move(0, 0, true));
+            return getDisplacement(true);
         } else {
             return new Move(Move.MoveType.STOP, 0, 0, false);
         }
     }
 
+    /**
+     * While steering, adds the displacement before the last change of speeds to the chassis' displacement.
+     * The result is an arc with the total distance and angle, only exact if the speeds didn't change
+     * but the pose providers only use the difference between two calls close in time.
+     */
+    @NotNull
+    private Move getDisplacement(boolean isMoving) {
+        Move move = chassis.getDisplacement(new Move(0, 0, isMoving));
+
+        if (!steering) return move;
+
+        return new Move(steeredDistance + move.getDistanceTraveled(), steeredAngle + move.getAngleTurned(), isMoving);
+    }
+
 
     /**
      * The monitor class detects end-of-move situations when non blocking move
      * call were made and makes sure these are dealt with.
+     * <p>
+     * Sleeps while the robot isn't moving. While moving checks the chassis every MONITOR_PERIOD.
      */
     private class Monitor extends Thread {
         Monitor() {
             setDaemon(true);
+            setName(Monitor.class.getSimpleName());
         }
 
         public void run() {
-            //noinspection InfiniteLoopStatement
-            for (; ; Thread.yield()) {
-                if (isMoving()) {
-                    if (chassis.isStalled()) MyMovePilot.this.stop();
-                    if (!chassis.isMoving()) notifyStop();
+            try {
+                //noinspection InfiniteLoopStatement
+                while (true) {
+                    waitForMoveStart();
+
+                    Thread.sleep(MONITOR_PERIOD);
+
+                    if (isMoving()) {
+                        //Not MyMovePilot.stop() since it would wait for this thread to notice the stop
+                        if (chassis.isStalled()) chassis.stop();
+                        if (!chassis.isMoving()) notifyStop();
+                    }
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void waitForMoveStart() throws InterruptedException {
+            synchronized (MyMovePilot.this) {
+                while (!moveActive) MyMovePilot.this.wait();
             }
         }
     }
@@ -5,6 +5,9 @@
 
 package ev3.navigation;
 
+import common.logger.Logger;
+import lejos.robotics.chassis.Chassis;
+import lejos.robotics.geometry.Point;
 import lejos.robotics.localization.OdometryPoseProvider;
 import lejos.robotics.localization.PoseProvider;
 import lejos.robotics.navigation.*;
@@ -13,12 +16,37 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Taken from the lejos source code and modified to fix bugs
+ * <p>
+ * Nothing spins : followPath() puts a command in a queue that the Nav thread blocks on,
+ * the Nav thread waits for each move with the pilot's {@link MoveFuture} and waitForStop() waits on the navigator.
+ * <p>
+ * With pure pursuit (see {@link #setPurePursuit(boolean)}) the path is followed in one continuous move instead of driving to each waypoint in turn.
  */
 @SuppressWarnings({"WeakerAccess", "unused"})
 public class MyNavigator implements WaypointListener {
+    private static final String LOG_TAG = MyNavigator.class.getSimpleName();
+
+    private static final Object FOLLOW_PATH = new Object(); //Command telling the Nav thread to follow the current path
+
+    //Pure pursuit
+    private static final long CONTROL_PERIOD = 50; //ms between two steering corrections
+    private static final float LOOKAHEAD = 150; //mm along the path from the robot to the point it steers towards
+    private static final float MIN_LOOKAHEAD = 50; //mm. The lookahead shrinks to this near the end of the path to arrive on the path.
+    private static final float APPROACH_DISTANCE = 150; //mm before a waypoint with a heading where the robot starts lining up
+    private static final float ARRIVAL_TOLERANCE = 10; //mm. Further from the last waypoint, the robot drives the rest waypoint by waypoint.
+    private static final double HEADING_TOLERANCE = 5; //Degrees. With a min radius, the robot drives the rest if its heading is further off.
+    private static final double MIN_SPEED = 20; //mm/s. Slowest the robot goes when slowing down for the end of the path.
+    private static final double MAX_BEARING = 60; //Degrees. Beyond, the robot turns on the spot (or at its min radius) towards the lookahead point.
+    //The pilot is only given new speeds when they changed by at least this much
+    private static final double STEER_LINEAR_THRESHOLD = 5; //mm/s
+    private static final double STEER_ANGULAR_THRESHOLD = 2; //degrees/s
+
     @NotNull
     private Path _path = new Path();
 
@@ -27,13 +55,18 @@ public class MyNavigator implements WaypointListener {
      * reset by stop(), and in Nav if _singleStep is set. or end of path is reached
      * set by followPath(xx) and goTo(xx)
      */
-    private boolean _keepGoing = false;
+    private volatile boolean _keepGoing = false;
 
     /**
      * if true, causes Nav.run to break whenever  waypoint is reached.
      */
     private boolean _singleStep = false;
 
+    /**
+     * if true, Nav.run follows the path with pure pursuit (unless _singleStep is set)
+     */
+    private volatile boolean _purePursuit = false;
+
     /**
      * set by Stop,  reset by followPath() , goTo()
      * used by  Nav.run(), callListeners
@@ -49,6 +82,15 @@ public class MyNavigator implements WaypointListener {
     @NotNull
     private final ArrayList<NavigationListener> _listeners = new ArrayList<>();
 
+    //Commands for the Nav thread
+    @NotNull
+    private final BlockingQueue<Object> _commands = new LinkedBlockingQueue<>();
+    //System.nanoTime() of the first followPath() that hasn't led to a move yet, 0 if none. Used to measure the start latency.
+    private long _pendingRequestTime = 0;
+    private volatile long _startLatency = -1;
+    //Incremented each time the robot stops so that the Nav thread can't mistake a stopped move for a completed one after a new followPath()
+    private volatile int _stopCount = 0;
+
     /**
      * Allocates a Navigator object,  using pilot that implements the ArcMoveController interface.
      */
@@ -158,8 +200,20 @@ public class MyNavigator implements WaypointListener {
         if (_path.isEmpty())
             return;
         _interrupted = false;
-        _keepGoing = true;
-//      RConsole.println("navigator followPath called");
+
+        synchronized (this) {
+            _keepGoing = true;
+            if (_pendingRequestTime == 0) _pendingRequestTime = System.nanoTime();
+        }
+
+        _commands.add(FOLLOW_PATH);
+    }
+
+    /**
+     * @return the time between the last followPath() call and the first motor command it led to in ns, -1 if none yet
+     */
+    public long getStartLatency() {
+        return _startLatency;
     }
 
     /**
@@ -172,6 +226,20 @@ public class MyNavigator implements WaypointListener {
         _singleStep = yes;
     }
 
+    /**
+     * Controls how the path is followed. Applies from the next path.
+     * <p>
+     * false : the robot drives to each waypoint in turn (rotate, travel, rotate or arcs), stopping at each one.
+     * true : the robot steers continuously along the path towards a point LOOKAHEAD ahead of it (pure pursuit),
+     * blending through the waypoints and only slowing down for sharp turns and the end of the path.
+     * The steering uses the pose provider's pose so errors it detects are corrected on the way.
+     *
+     * @param yes if <code>true</code>, use pure pursuit
+     */
+    public void setPurePursuit(boolean yes) {
+        _purePursuit = yes;
+    }
+
     /**
      * Starts the robot moving toward the destination.
      * If no path exists, a new one is created consisting of the destination,
@@ -279,7 +347,7 @@ public class MyNavigator implements WaypointListener {
      * The robot will resume its path traversal if you call {@link #followPath()}.
      */
     public void stop() {
-        _keepGoing = false;
+        setKeepGoing(false);
         _pilot.stop();
         _interrupted = true;
         callListeners();
@@ -312,12 +380,35 @@ public class MyNavigator implements WaypointListener {
      *
      * @return <code> true </code>  if the path is completed
      */
-    public boolean waitForStop() {
-        while (_keepGoing)
-            Thread.yield();
+    public synchronized boolean waitForStop() {
+        try {
+            while (_keepGoing) wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
         return _path.isEmpty();
     }
 
+    /**
+     * Waits at most timeout ms for the robot to stop for any reason
+     *
+     * @return true if the robot stopped, false if it is still moving after the timeout
+     */
+    public synchronized boolean waitForStop(long timeout) {
+        long endTime = System.currentTimeMillis() + timeout;
+
+        try {
+            for (long remaining = timeout; _keepGoing && remaining > 0; remaining = endTime - System.currentTimeMillis()) {
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return !_keepGoing;
+    }
+
     /**
      * Returns <code>true<code> if the robot is moving toward a waypoint.
      *
@@ -343,6 +434,19 @@ public class MyNavigator implements WaypointListener {
 
     }
 
+    /**
+     * Wakes up the threads in waitForStop() when the robot stops
+     */
+    private synchronized void setKeepGoing(boolean keepGoing) {
+        _keepGoing = keepGoing;
+
+        if (!keepGoing) {
+            _stopCount++;
+            _pendingRequestTime = 0;
+            notifyAll();
+        }
+    }
+
     public double normalizeRotationAmount(double amount) {
         while (Math.abs(amount - 360) < Math.abs(amount)) amount -= 360;
         while (Math.abs(amount + 360) < Math.abs(amount)) amount += 360;
@@ -350,72 +454,272 @@ public class MyNavigator implements WaypointListener {
     }
 
     /**
-     * This inner class runs the thread that processes the waypoint queue
+     * This inner class runs the thread that processes the waypoint queue.
+     * Sleeps until followPath() adds a command then follows the path until the end, a stop or a single step.
      */
     private class Nav extends Thread {
         @Override
         public void run() {
-            //noinspection InfiniteLoopStatement
-            for (;;Thread.yield()) {
-                if (_keepGoing && !_path.isEmpty()) {
+            try {
+                //noinspection InfiniteLoopStatement
+                while (true) {
+                    _commands.take(); //Only FOLLOW_PATH for now
+
+                    followCurrentPath();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void followCurrentPath() throws InterruptedException {
+            while (_keepGoing && !_path.isEmpty()) {
+                if (_purePursuit && !_singleStep) {
+                    if (!pursuePath()) return;
+                } else {
+                    _destination = _path.get(0);
+
+                    if (!driveToDestination()) return;
+                }
+
+                if (!_interrupted) {
+                    _path.remove(0);
+                    _sequenceNr++;
+                }
+                callListeners();
+                setKeepGoing(!_path.isEmpty() && !_singleStep);
+            }
+        }
+
+        /**
+         * @return false if the navigator was stopped on the way
+         */
+        private boolean driveToDestination() throws InterruptedException {
+            if (_radius == 0) {
+                //1. Rotate toward destination
+                if (!doMove(new Move(0, poseProvider.getPose().relativeBearing(_destination), false))) return false;
+
+                //2. Travel to destination
+                if (!doMove(new Move(poseProvider.getPose().distanceTo(_destination), 0, false))) return false;
+
+                //3. If required rotate toward final heading
+                if (_destination.isHeadingRequired()) {
+                    return doMove(new Move(0, (float) normalizeRotationAmount(_destination.getHeading()
+                            - poseProvider.getPose().getHeading()), false));
+                }
+
+                return true;
+            }
+
+            // 1. Get shortest path:
+            Move[] moves;
+
+            if (_destination.isHeadingRequired()) {
+                moves = ArcAlgorithms.getBestPath(poseProvider.getPose(),
+                        (float) _pilot.getMinRadius(), _destination.getPose(), (float) _pilot.getMinRadius());
+            } else {
+                moves = ArcAlgorithms.getBestPath(poseProvider.getPose(),
+                        _destination, (float) _pilot.getMinRadius());
+            }
+
+            // 2. Drive the path
+            for (Move move : moves) {
+                if (!doMove(move)) return false;
+            }
+
+            return true;
+        }
+
+        /**
+         * Steers along the path every CONTROL_PERIOD until the end of the path, passing the waypoints on the way.
+         * The robot stops at the last waypoint, which is left in the path with _destination set to it.
+         *
+         * @return false if the navigator was stopped on the way
+         */
+        private boolean pursuePath() throws InterruptedException {
+            int stopCount = _stopCount;
+
+            Pose start = poseProvider.getPose();
+            List<Waypoint> pursuedPath = getPursuedPath(start);
+
+            if (pursuedPath.isEmpty()) {
+                _destination = _path.get(0);
+                return driveToDestination();
+            }
+
+            PurePursuit pursuit = new PurePursuit(start, pursuedPath, APPROACH_DISTANCE);
+
+            Chassis chassis = _pilot.getChassis();
+            double maxLinearSpeed = chassis.getLinearSpeed();
+            double maxAngularSpeed = chassis.getAngularSpeed();
+            double deceleration = chassis.getLinearAcceleration();
+
+            double linearSpeed = Double.NaN;
+            double angularSpeed = Double.NaN;
+
+            while (true) {
+                Pose pose = poseProvider.getPose();
+
+                int waypointsPassed = pursuit.update(pose.getX(), pose.getY());
+
+                if (pursuit.isFinished()) waypointsPassed--; //The last one is passed once the robot stopped
+
+                for (; waypointsPassed > 0; waypointsPassed--) {
                     _destination = _path.get(0);
+                    _path.remove(0);
+                    _sequenceNr++;
+                    callListeners();
+                }
+
+                if (pursuit.isFinished()) break;
+
+                Point target = pursuit.getLookaheadPoint(Math.max(MIN_LOOKAHEAD, Math.min(LOOKAHEAD, pursuit.getRemainingDistance())));
+                float bearing = pose.relativeBearing(target);
+
+                double newLinearSpeed;
+                double newAngularSpeed;
+
+                if (_radius == 0 && Math.abs(bearing) > MAX_BEARING) {
+                    newLinearSpeed = 0;
+                    newAngularSpeed = Math.signum(bearing) * maxAngularSpeed;
+                } else {
+                    double curvature = PurePursuit.getCurvature(pose, target);
 
-                    if (_radius == 0) {
-                        //1. Rotate toward destination
-                        float destinationRelativeBearing = poseProvider.getPose().relativeBearing(_destination);
-                        _pilot.rotate(destinationRelativeBearing, true);
-
-                        while (_pilot.isMoving() && _keepGoing) Thread.yield();
-                        if (!_keepGoing) break;
-
-                        //2. Travel to destination
-                        float distance = poseProvider.getPose().distanceTo(_destination);
-                        _pilot.travel(distance, true);
-
-                        while (_pilot.isMoving() && _keepGoing) Thread.yield();
-                        if (!_keepGoing) break;
-
-                        //3. If required rotate toward final heading
-                        if (_destination.isHeadingRequired()) {
-                            _pilot.rotate(normalizeRotationAmount(_destination.getHeading()
-                                    - poseProvider.getPose().getHeading()), false);
-
-                            while (_pilot.isMoving() && _keepGoing) Thread.yield();
-                            if (!_keepGoing) break;
-                        }
-                    } else {
-                        // 1. Get shortest path:
-                        Move[] moves;
-
-                        if (_destination.isHeadingRequired()) {
-                            moves = ArcAlgorithms.getBestPath(poseProvider.getPose(),
-                                    (float) _pilot.getMinRadius(), _destination.getPose(), (float) _pilot.getMinRadius());
-                        } else {
-                            moves = ArcAlgorithms.getBestPath(poseProvider.getPose(),
-                                    _destination, (float) _pilot.getMinRadius());
-                        }
-
-                        // 2. Drive the path
-                        for (Move move : moves) {
-                            _pilot.move(move, false);
-                            if (!_keepGoing) break;
-                        }
-
-                        while (_pilot.isMoving() && _keepGoing) Thread.yield();
-                        if (!_keepGoing) break;
+                    if (_radius != 0 && (Math.abs(bearing) > MAX_BEARING || Math.abs(curvature) > 1 / _radius)) {
+                        curvature = Math.signum(bearing) / _radius;
                     }
 
-                    if (_keepGoing && !_path.isEmpty()) {
-                        if (!_interrupted) {
-                            _path.remove(0);
-                            _sequenceNr++;
-                        }
-                        callListeners();
-                        _keepGoing = !_path.isEmpty();
-                        if (_singleStep) _keepGoing = false;
+                    //Slow down to stop at the end of the path and to keep the turns under the max angular speed
+                    newLinearSpeed = Math.sqrt(2 * deceleration * pursuit.getRemainingDistance());
+                    newLinearSpeed = Math.min(maxLinearSpeed, Math.max(MIN_SPEED, newLinearSpeed));
+
+                    if (curvature != 0) {
+                        newLinearSpeed = Math.min(newLinearSpeed, Math.toRadians(maxAngularSpeed) / Math.abs(curvature));
                     }
-                } // end while keepGoing
-            }  // end forever loop
-        }  // end run
-    } // end Nav class
-}
\ No newline at end of file
+
+                    newAngularSpeed = Math.toDegrees(newLinearSpeed * curvature);
+                }
+
+                if (Double.isNaN(linearSpeed) || Math.abs(newLinearSpeed - linearSpeed) >= STEER_LINEAR_THRESHOLD ||
+                        Math.abs(newAngularSpeed - angularSpeed) >= STEER_ANGULAR_THRESHOLD) {
+                    linearSpeed = newLinearSpeed;
+                    angularSpeed = newAngularSpeed;
+
+                    if (!steer(stopCount, linearSpeed, angularSpeed)) return false;
+                }
+
+                Thread.sleep(CONTROL_PERIOD);
+            }
+
+            _pilot.stop();
+
+            if (!_keepGoing || stopCount != _stopCount) return false;
+
+            _destination = _path.get(0);
+
+            if (_radius != 0) {
+                //Stopped at the approach point of the destination (see getPursuedPath()), off the destination or not lined up
+                if (pursuedPath.get(pursuedPath.size() - 1) != _destination ||
+                        poseProvider.getPose().distanceTo(_destination) > ARRIVAL_TOLERANCE ||
+                        (_destination.isHeadingRequired() && Math.abs(normalizeRotationAmount(_destination.getHeading()
+                                - poseProvider.getPose().getHeading())) > HEADING_TOLERANCE)) {
+                    return driveToDestination();
+                }
+
+                return true;
+            }
+
+            //Ex. after a sharp turn right before the end
+            if (poseProvider.getPose().distanceTo(_destination) > ARRIVAL_TOLERANCE) return driveToDestination();
+
+            //The approach point lined the robot up so this is only a small correction
+            if (_destination.isHeadingRequired()) {
+                return doMove(new Move(0, (float) normalizeRotationAmount(_destination.getHeading()
+                        - poseProvider.getPose().getHeading()), false));
+            }
+
+            return true;
+        }
+
+        /**
+         * With a min radius the robot can't turn on the spot at the end of the path to face the last waypoint's heading.
+         * If the last waypoint needs a heading the pursuit instead stops at its approach point (or at the waypoint before
+         * if it is closer) and driveToDestination() drives the rest with arcs.
+         *
+         * @return the waypoints to pursue, empty if the robot should drive straight to the last waypoint
+         */
+        @NotNull
+        private List<Waypoint> getPursuedPath(@NotNull Pose start) {
+            Waypoint last = _path.get(_path.size() - 1);
+
+            if (_radius == 0 || !last.isHeadingRequired()) return _path;
+
+            List<Waypoint> pursuedPath = new ArrayList<>(_path.subList(0, _path.size() - 1));
+            Point previous = pursuedPath.isEmpty() ? start.getLocation() : pursuedPath.get(pursuedPath.size() - 1);
+
+            if (previous.distance(last) > APPROACH_DISTANCE + ARRIVAL_TOLERANCE) {
+                double heading = Math.toRadians(last.getHeading());
+
+                pursuedPath.add(new Waypoint(
+                        (float) (last.x - APPROACH_DISTANCE * Math.cos(heading)),
+                        (float) (last.y - APPROACH_DISTANCE * Math.sin(heading))
+                ));
+            }
+
+            return pursuedPath;
+        }
+
+        /**
+         * Gives the pilot new speeds unless the navigator was stopped since the path was started
+         *
+         * @return false if the navigator was stopped
+         */
+        private boolean steer(int stopCount, double linearSpeed, double angularSpeed) {
+            //Synchronized so that stop() can't happen between the check and the new speeds
+            synchronized (MyNavigator.this) {
+                if (!_keepGoing || stopCount != _stopCount) return false;
+
+                _pilot.steer(linearSpeed, angularSpeed);
+
+                recordStartLatency();
+            }
+
+            return true;
+        }
+
+        /**
+         * Starts the move unless the navigator was stopped, then sleeps until the move ends
+         *
+         * @return false if the navigator was stopped
+         */
+        private boolean doMove(@NotNull Move move) throws InterruptedException {
+            int stopCount;
+
+            //Synchronized so that stop() can't happen between the check and the start of the move
+            synchronized (MyNavigator.this) {
+                if (!_keepGoing) return false;
+
+                stopCount = _stopCount;
+
+                _pilot.move(move, true);
+
+                recordStartLatency();
+            }
+
+            _pilot.getMoveFuture().get();
+
+            return _keepGoing && stopCount == _stopCount;
+        }
+
+        /**
+         * Called holding the navigator's lock right after the pilot was given a command
+         */
+        private void recordStartLatency() {
+            if (_pendingRequestTime != 0) {
+                _startLatency = System.nanoTime() - _pendingRequestTime;
+                _pendingRequestTime = 0;
+                Logger.debug(LOG_TAG, "Start latency : " + _startLatency / 1000 + " us");
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import common.Config;
+import common.logger.Logger;
+import common.mapping.MapDataReader;
+import ev3.robot.sim.SimRobot;
+import lejos.robotics.navigation.Pose;
+import lejos.robotics.navigation.Waypoint;
+import lejos.robotics.pathfinding.Path;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures in SIM mode :
+ * - how much CPU time the pilot and navigator use (all threads) while the robot follows a path and while it sits idle.
+ * Time spent checking for the end of a move or waiting for it is CPU time the particle filter doesn't get on the EV3.
+ * - the latency between followPath() and the first motor command
+ * - how long a path through several waypoints takes when driving to each waypoint in turn and with pure pursuit
+ */
+final class NavigationBenchmark {
+    private static final String LOG_TAG = NavigationBenchmark.class.getSimpleName();
+
+    private static final int NUM_PATHS = 5;
+    private static final float PATH_LENGTH = 100;
+    private static final long IDLE_TIME = 2000; //ms
+
+    //Square with a heading at the last two waypoints, like the paths to the containers
+    private static final float[][] MISSION = {{300, 0, Float.NaN}, {300, 300, Float.NaN}, {0, 300, 180}, {-200, 0, -90}};
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws InterruptedException {
+        MyMovePilot pilot = NavigatorBuilder.buildMoveProvider(new SimRobot(new MapDataReader(Config.DATA_PC_PATH)).getChassis());
+        MyNavigator navigator = new MyNavigator(pilot);
+
+        long startCpuTime = getCpuTime();
+        long startTime = System.nanoTime();
+        long totalLatency = 0;
+
+        for (int i = 0; i < NUM_PATHS; i++) {
+            Pose pose = navigator.getPoseProvider().getPose();
+
+            Path path = new Path();
+            path.add(new Waypoint(pose.getX() + (i % 2 == 0 ? PATH_LENGTH : -PATH_LENGTH), pose.getY()));
+
+            navigator.followPath(path);
+            navigator.waitForStop();
+
+            totalLatency += navigator.getStartLatency();
+        }
+
+        report("Following paths", startCpuTime, startTime);
+        Logger.info(LOG_TAG, "Average start latency : " + totalLatency / NUM_PATHS / 1000 + " us");
+
+        startCpuTime = getCpuTime();
+        startTime = System.nanoTime();
+
+        Thread.sleep(IDLE_TIME);
+
+        report("Idle", startCpuTime, startTime);
+
+        timeMission(false);
+        timeMission(true);
+    }
+
+    /**
+     * Follows MISSION from the origin with a new robot
+     */
+    private static void timeMission(boolean purePursuit) {
+        MyMovePilot pilot = NavigatorBuilder.buildMoveProvider(new SimRobot(new MapDataReader(Config.DATA_PC_PATH)).getChassis());
+        MyNavigator navigator = new MyNavigator(pilot);
+        navigator.setPurePursuit(purePursuit);
+
+        Path path = new Path();
+
+        for (float[] waypoint : MISSION) {
+            path.add(Float.isNaN(waypoint[2]) ? new Waypoint(waypoint[0], waypoint[1]) : new Waypoint(waypoint[0], waypoint[1], waypoint[2]));
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        navigator.followPath(path);
+        navigator.waitForStop();
+
+        Logger.info(LOG_TAG, "Mission " + (purePursuit ? "with pure pursuit" : "waypoint by waypoint") + " : " +
+                (System.currentTimeMillis() - startTime) + " ms, ended at " + navigator.getPoseProvider().getPose());
+    }
+
+    private static void report(String name, long startCpuTime, long startTime) {
+        long cpuTime = getCpuTime() - startCpuTime;
+        long elapsedTime = System.nanoTime() - startTime;
+
+        Logger.info(LOG_TAG, name + " : " + cpuTime / 1000000 + " ms of CPU in " + elapsedTime / 1000000 + " ms (" +
+                100 * cpuTime / elapsedTime + "% of a core)");
+    }
+
+    /**
+     * @return the CPU time used by all the live threads in ns
+     */
+    private static long getCpuTime() {
+        long total = 0;
+
+        for (long id : threads.getAllThreadIds()) {
+            long time = threads.getThreadCpuTime(id);
+            if (time > 0) total += time;
+        }
+
+        return total;
+    }
+}
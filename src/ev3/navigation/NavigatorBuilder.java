@@ -30,6 +30,11 @@ public class NavigatorBuilder {
     private static final double WHEEL_OFFSET = 63; //Real value is around 56 but testing shows higher is better
     private static final double WHEEL_DIAMETER = 81.6;
 
+    @NotNull
+    static Pose getStartingPose() {
+        return new Pose(STARTING_POSE.getX(), STARTING_POSE.getY(), STARTING_POSE.getHeading());
+    }
+
     public static MyMovePilot buildMoveProvider(Chassis chassis) {
         MyMovePilot pilot = new MyMovePilot(chassis);
         pilot.setMinRadius(WHEEL_OFFSET);
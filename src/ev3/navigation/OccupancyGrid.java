@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The field split into square cells, each knowing how far it is from the closest obstacle (its clearance).
+ * The robot, seen as a circle, fits on a cell if the cell's clearance is at least the robot's radius.
+ * <p>
+ * Add the obstacles then call {@link #computeClearances()}. The clearances are an exact Euclidean distance transform
+ * (two passes of the lower envelope of parabolas, Felzenszwalb and Huttenlocher) so they are linear in the number of cells.
+ * Outside the field counts as an obstacle.
+ */
+final class OccupancyGrid {
+    private final float cellSize;
+    private final float fieldWidth;
+    private final float fieldHeight;
+
+    private final int width; //In cells
+    private final int height;
+
+    @NotNull
+    private final boolean[] obstacles; //obstacles[y * width + x]
+    @NotNull
+    private final float[] clearances; //mm from the cell's center to the center of the closest obstacle cell or the edge of the field
+
+    OccupancyGrid(float fieldWidth, float fieldHeight, float cellSize) {
+        this.cellSize = cellSize;
+        this.fieldWidth = fieldWidth;
+        this.fieldHeight = fieldHeight;
+
+        width = (int) Math.ceil(fieldWidth / cellSize);
+        height = (int) Math.ceil(fieldHeight / cellSize);
+
+        obstacles = new boolean[width * height];
+        clearances = new float[width * height];
+    }
+
+    /**
+     * Marks every cell the rectangle touches as an obstacle
+     */
+    void addObstacle(float minX, float minY, float maxX, float maxY) {
+        int minCellX = Math.max(0, (int) Math.floor(minX / cellSize));
+        int minCellY = Math.max(0, (int) Math.floor(minY / cellSize));
+        int maxCellX = Math.min(width - 1, (int) Math.floor(maxX / cellSize));
+        int maxCellY = Math.min(height - 1, (int) Math.floor(maxY / cellSize));
+
+        for (int y = minCellY; y <= maxCellY; y++) {
+            for (int x = minCellX; x <= maxCellX; x++) {
+                obstacles[y * width + x] = true;
+            }
+        }
+    }
+
+    /**
+     * Calculates the clearance of every cell. Must be called after the obstacles are added.
+     */
+    void computeClearances() {
+        float infinity = (float) (width + height) * (width + height);
+
+        //Squared distances in cells, first along the columns then along the rows
+        float[] squaredDistances = new float[width * height];
+
+        for (int i = 0; i < squaredDistances.length; i++) {
+            squaredDistances[i] = obstacles[i] ? 0 : infinity;
+        }
+
+        int maxLength = Math.max(width, height);
+        float[] line = new float[maxLength];
+        float[] result = new float[maxLength];
+        int[] parabolas = new int[maxLength];
+        float[] boundaries = new float[maxLength + 1];
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) line[y] = squaredDistances[y * width + x];
+
+            transformLine(line, height, result, parabolas, boundaries);
+
+            for (int y = 0; y < height; y++) squaredDistances[y * width + x] = result[y];
+        }
+
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(squaredDistances, y * width, line, 0, width);
+
+            transformLine(line, width, result, parabolas, boundaries);
+
+            System.arraycopy(result, 0, squaredDistances, y * width, width);
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = y * width + x;
+                float centerX = getCenterX(cell);
+                float centerY = getCenterY(cell);
+
+                float distanceToEdge = Math.min(Math.min(centerX, fieldWidth - centerX), Math.min(centerY, fieldHeight - centerY));
+
+                clearances[cell] = Math.max(0, Math.min((float) Math.sqrt(squaredDistances[cell]) * cellSize, distanceToEdge));
+            }
+        }
+    }
+
+    /**
+     * 1D squared distance transform : result[q] = min over p of (q - p)^2 + line[p]
+     */
+    private static void transformLine(@NotNull float[] line, int length, @NotNull float[] result,
+                                      @NotNull int[] parabolas, @NotNull float[] boundaries) {
+        int numParabolas = 0; //Index of the last parabola of the lower envelope
+        parabolas[0] = 0;
+        boundaries[0] = Float.NEGATIVE_INFINITY;
+        boundaries[1] = Float.POSITIVE_INFINITY;
+
+        for (int q = 1; q < length; q++) {
+            float intersection = getIntersection(line, q, parabolas[numParabolas]);
+
+            //Never goes below 0 since boundaries[0] is -infinity
+            while (intersection <= boundaries[numParabolas]) {
+                numParabolas--;
+                intersection = getIntersection(line, q, parabolas[numParabolas]);
+            }
+
+            numParabolas++;
+            parabolas[numParabolas] = q;
+            boundaries[numParabolas] = intersection;
+            boundaries[numParabolas + 1] = Float.POSITIVE_INFINITY;
+        }
+
+        int parabola = 0;
+
+        for (int q = 0; q < length; q++) {
+            while (boundaries[parabola + 1] < q) parabola++;
+
+            int p = parabolas[parabola];
+            result[q] = (q - p) * (q - p) + line[p];
+        }
+    }
+
+    /**
+     * @return where the parabolas rooted at q and p (p < q) intersect
+     */
+    @Contract(pure = true)
+    private static float getIntersection(@NotNull float[] line, int q, int p) {
+        return ((line[q] + q * q) - (line[p] + p * p)) / (2 * q - 2 * p);
+    }
+
+    /**
+     * Points outside the field are put in the closest cell
+     */
+    @Contract(pure = true)
+    int getCell(float x, float y) {
+        int cellX = Math.max(0, Math.min(width - 1, (int) Math.floor(x / cellSize)));
+        int cellY = Math.max(0, Math.min(height - 1, (int) Math.floor(y / cellSize)));
+
+        return cellY * width + cellX;
+    }
+
+    @Contract(pure = true)
+    float getCenterX(int cell) {
+        return (cell % width + 0.5F) * cellSize;
+    }
+
+    @Contract(pure = true)
+    float getCenterY(int cell) {
+        return (cell / width + 0.5F) * cellSize;
+    }
+
+    @Contract(pure = true)
+    boolean isObstacle(int cell) {
+        return obstacles[cell];
+    }
+
+    @Contract(pure = true)
+    float getClearance(int cell) {
+        return clearances[cell];
+    }
+
+    @Contract(pure = true)
+    float getCellSize() {
+        return cellSize;
+    }
+
+    @Contract(pure = true)
+    int getWidth() {
+        return width;
+    }
+
+    @Contract(pure = true)
+    int getHeight() {
+        return height;
+    }
+
+    @Contract(pure = true)
+    int getNumCells() {
+        return width * height;
+    }
+}
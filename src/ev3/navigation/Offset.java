@@ -10,6 +10,11 @@ import org.jetbrains.annotations.NotNull;
 
 /**
  * Offsets a pose to a different spot on the robot
+ * <p>
+ * The offset is also stored in polar form (distance and angle from the center of the robot) since both are the same
+ * for every pose. {@link #offset(Pose)} only needs one cos and one sin. The methods used by the particle algorithm
+ * ({@link #offsetX(float, float)}, {@link #offsetY(float, float)} and the batch {@link #offset(float[], float[], float[], int, float[], float[])})
+ * look the angles up in a {@link TrigTable} instead.
  */
 public final class Offset {
     // (x,y) offsets when robot is facing to the right (heading = 0)
@@ -20,9 +25,15 @@ public final class Offset {
     private final float deltaX;
     private final float deltaY;
 
+    private final double hypotenuse; //Distance between the robot's center and the spot
+    private final double angle; //Angle of the spot from the robot's heading in radians
+
     public Offset(float deltaX, float deltaY) {
         this.deltaX = deltaX;
         this.deltaY = deltaY;
+
+        this.hypotenuse = Math.sqrt(deltaX * deltaX + deltaY * deltaY); //Pythagorean theorem
+        this.angle = Math.atan2(deltaY, deltaX);
     }
 
     /**
@@ -31,19 +42,52 @@ public final class Offset {
      */
     @NotNull
     public Point offset(@NotNull Pose pose) {
-        return calculateOffset(pose, deltaX, deltaY);
+        return calculateOffset(pose, angle);
+    }
+
+    /**
+     * Same as {@link #offset(Pose)} but only returns the x value. Doesn't create any objects.
+     * Uses the {@link TrigTable} so the result is within 0.2 mm of {@link #offset(Pose)}.
+     */
+    public float offsetX(float x, float heading) {
+        return x + deltaX * TrigTable.cos(heading) - deltaY * TrigTable.sin(heading);
+    }
+
+    /**
+     * Same as {@link #offset(Pose)} but only returns the y value. Doesn't create any objects.
+     * Uses the {@link TrigTable} so the result is within 0.2 mm of {@link #offset(Pose)}.
+     */
+    public float offsetY(float y, float heading) {
+        return y + deltaX * TrigTable.sin(heading) + deltaY * TrigTable.cos(heading);
+    }
+
+    /**
+     * Offsets many poses at once. Same results as {@link #offsetX(float, float)} and {@link #offsetY(float, float)}.
+     *
+     * @param numPoses number of poses to offset from the start of the arrays
+     * @param resultXs array where the offset x of pose i is written at index i
+     * @param resultYs array where the offset y of pose i is written at index i
+     */
+    public void offset(@NotNull float[] xs, @NotNull float[] ys, @NotNull float[] headings, int numPoses,
+                       @NotNull float[] resultXs, @NotNull float[] resultYs) {
+        for (int i = 0; i < numPoses; i++) {
+            int index = TrigTable.getIndex(headings[i]);
+            float cos = TrigTable.cosAt(index);
+            float sin = TrigTable.sinAt(index);
+
+            resultXs[i] = xs[i] + deltaX * cos - deltaY * sin;
+            resultYs[i] = ys[i] + deltaX * sin + deltaY * cos;
+        }
     }
 
     @NotNull
     public Point reverseOffset(@NotNull Pose pose) {
-        return calculateOffset(pose, -deltaX, -deltaY);
+        return calculateOffset(pose, angle + Math.PI); //Opposite direction
     }
 
     @NotNull
-    private static Point calculateOffset(@NotNull Pose pose, float deltaX, float deltaY) {
-        double hypotenuse = Math.sqrt(deltaX * deltaX + deltaY * deltaY); //Pythagorean theorem
-
-        double newTheta = Math.atan2(deltaY, deltaX) + Math.toRadians(pose.getHeading()); //Find angle formed by offset and add pose's heading
+    private Point calculateOffset(@NotNull Pose pose, double offsetAngle) {
+        double newTheta = offsetAngle + Math.toRadians(pose.getHeading()); //Add pose's heading to the angle formed by the offset
 
         float newXOffset = (float) (Math.cos(newTheta) * hypotenuse);
         float newYOffset = (float) (Math.sin(newTheta) * hypotenuse);
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import common.logger.Logger;
+import lejos.robotics.geometry.Point;
+import lejos.robotics.navigation.Pose;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+
+/**
+ * Compares the time taken to offset many poses with the different Offset methods and with the original implementation
+ * (sqrt, atan2, cos and sin on every call). Can be run on the PC or on the EV3.
+ * <p>
+ * Each method is run WARM_UP_ROUNDS times so that the JIT compiles it, then the best of MEASURED_ROUNDS is printed.
+ */
+final class OffsetBenchmark {
+    private static final String LOG_TAG = OffsetBenchmark.class.getSimpleName();
+
+    private static final int NUM_POSES = 10000;
+    private static final int WARM_UP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 20;
+
+    private static final Offset OFFSET = Offset.LEFT_COLOR_SENSOR;
+
+    private static final float[] xs = new float[NUM_POSES];
+    private static final float[] ys = new float[NUM_POSES];
+    private static final float[] headings = new float[NUM_POSES];
+    private static final Pose[] poses = new Pose[NUM_POSES];
+
+    private static final float[] resultXs = new float[NUM_POSES];
+    private static final float[] resultYs = new float[NUM_POSES];
+
+    private static float sink; //Results are added here so that the JIT can't skip the work
+
+    private interface Method {
+        void run();
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(2018);
+
+        for (int i = 0; i < NUM_POSES; i++) {
+            xs[i] = random.nextFloat() * 2362;
+            ys[i] = random.nextFloat() * 1143;
+            headings[i] = random.nextFloat() * 720 - 360;
+            poses[i] = new Pose(xs[i], ys[i], headings[i]);
+        }
+
+        measure("original", new Method() {
+            @Override
+            public void run() {
+                for (Pose pose : poses) {
+                    Point point = originalOffset(pose, -171, 80);
+                    sink += point.x + point.y;
+                }
+            }
+        });
+
+        measure("offset(Pose)", new Method() {
+            @Override
+            public void run() {
+                for (Pose pose : poses) {
+                    Point point = OFFSET.offset(pose);
+                    sink += point.x + point.y;
+                }
+            }
+        });
+
+        measure("offsetX/offsetY", new Method() {
+            @Override
+            public void run() {
+                for (int i = 0; i < NUM_POSES; i++) {
+                    sink += OFFSET.offsetX(xs[i], headings[i]) + OFFSET.offsetY(ys[i], headings[i]);
+                }
+            }
+        });
+
+        measure("batch", new Method() {
+            @Override
+            public void run() {
+                OFFSET.offset(xs, ys, headings, NUM_POSES, resultXs, resultYs);
+                sink += resultXs[NUM_POSES - 1] + resultYs[NUM_POSES - 1];
+            }
+        });
+
+        Logger.debug(LOG_TAG, "Checksum " + sink);
+    }
+
+    private static void measure(@NotNull String name, @NotNull Method method) {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            method.run();
+        }
+
+        long bestTime = Long.MAX_VALUE;
+
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long startTime = System.nanoTime();
+            method.run();
+            bestTime = Math.min(bestTime, System.nanoTime() - startTime);
+        }
+
+        Logger.info(LOG_TAG, name + " : " + bestTime / NUM_POSES + " ns per pose");
+    }
+
+    /**
+     * Offset.calculateOffset() before the polar form was precomputed
+     */
+    @NotNull
+    private static Point originalOffset(@NotNull Pose pose, float deltaX, float deltaY) {
+        double hypotenuse = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+
+        double newTheta = Math.atan2(deltaY, deltaX) + Math.toRadians(pose.getHeading());
+
+        float newXOffset = (float) (Math.cos(newTheta) * hypotenuse);
+        float newYOffset = (float) (Math.sin(newTheta) * hypotenuse);
+
+        return new Point(pose.getX() + newXOffset, pose.getY() + newYOffset);
+    }
+}
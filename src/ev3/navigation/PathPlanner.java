@@ -0,0 +1,485 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import lejos.robotics.geometry.Point;
+import lejos.robotics.navigation.Waypoint;
+import lejos.robotics.pathfinding.Path;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plans the shortest path that keeps the robot (a circle of robotRadius) off the obstacles of an {@link OccupancyGrid}.
+ * <p>
+ * Theta* : A* over the cells where a cell's parent can be any cell in sight instead of only a neighbour,
+ * so paths are straight lines between the corners of the obstacles instead of zigzags along the grid.
+ * The heuristic is the distance to the goal around the obstacles (Dijkstra from the goal over the whole grid) divided by
+ * the most a path along the grid can be longer than a straight line, so that it never overestimates. It is
+ * calculated once per goal and cached (see {@link #prepare(Point)}) so that planning only visits the cells near the path.
+ * <p>
+ * A start or goal the robot doesn't fit on (ex. a container the robot drives up to) is joined to the closest cell it fits on
+ * with a straight line. Not thread safe.
+ */
+final class PathPlanner {
+    private static final float DIAGONAL = (float) Math.sqrt(2);
+    //Largest ratio between the length of a path along the grid (8 directions) and a straight line (at 22.5 degrees)
+    private static final float GRID_OVERESTIMATE = (float) Math.sqrt(4 - 2 * Math.sqrt(2));
+    private static final int MAX_CACHED_GOALS = 32;
+
+    private static final int[] NEIGHBOUR_XS = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] NEIGHBOUR_YS = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    @NotNull
+    private final OccupancyGrid grid;
+    private final float robotRadius;
+
+    //Distance from each cell to the goal around the obstacles, by goal cell
+    @NotNull
+    private final Map<Integer, float[]> goalDistances = new HashMap<>();
+
+    //Search state, reused between searches. A cell's values are only valid if its stamp is the current search's.
+    @NotNull
+    private final float[] costs;
+    @NotNull
+    private final int[] parents;
+    @NotNull
+    private final int[] stamps;
+    @NotNull
+    private final boolean[] closed;
+    private int stamp = 0;
+
+    @NotNull
+    private final CellHeap open = new CellHeap();
+
+    PathPlanner(@NotNull OccupancyGrid grid, float robotRadius) {
+        this.grid = grid;
+        this.robotRadius = robotRadius;
+
+        costs = new float[grid.getNumCells()];
+        parents = new int[grid.getNumCells()];
+        stamps = new int[grid.getNumCells()];
+        closed = new boolean[grid.getNumCells()];
+    }
+
+    /**
+     * Calculates and caches the heuristic of a goal so that the first path to it is as fast as the next ones
+     */
+    void prepare(@NotNull Point goal) {
+        int goalCell = getClosestFreeCell(grid.getCell(goal.x, goal.y));
+
+        if (goalCell != -1) getGoalDistances(goalCell);
+    }
+
+    /**
+     * @return the waypoints from the start (not included) to the goal, null if the goal can't be reached
+     */
+    @Nullable
+    Path plan(float startX, float startY, @NotNull Waypoint goal) {
+        int requestedStart = grid.getCell(startX, startY);
+        int requestedGoal = grid.getCell(goal.x, goal.y);
+
+        int start = getClosestFreeCell(requestedStart);
+        int end = getClosestFreeCell(requestedGoal);
+
+        if (start == -1 || end == -1) return null;
+
+        float[] heuristic = getGoalDistances(end);
+
+        if (heuristic[start] == Float.POSITIVE_INFINITY) return null;
+
+        search(start, end, heuristic);
+
+        //Cells from the start to the goal
+        int numCells = 0;
+        for (int cell = end; cell != start; cell = parents[cell]) numCells++;
+
+        int[] cells = new int[numCells];
+        for (int cell = end, i = numCells - 1; cell != start; cell = parents[cell], i--) cells[i] = cell;
+
+        Path path = new Path();
+
+        if (start != requestedStart) path.add(getWaypoint(start));
+
+        //Theta* only links a cell to its neighbour's parent so a few corners can still be skipped
+        int previous = start;
+
+        for (int i = 0; i < numCells - 1; i++) {
+            if (isInSight(previous, cells[i + 1])) continue;
+
+            path.add(getWaypoint(cells[i]));
+            previous = cells[i];
+        }
+
+        if (end != requestedGoal && numCells != 0) path.add(getWaypoint(end));
+
+        path.add(goal);
+
+        return path;
+    }
+
+    /**
+     * @return the length of the path from the start in mm
+     */
+    @Contract(pure = true)
+    static float getLength(float startX, float startY, @NotNull Path path) {
+        float length = 0;
+
+        for (Waypoint waypoint : path) {
+            length += (float) Math.sqrt((waypoint.x - startX) * (waypoint.x - startX) + (waypoint.y - startY) * (waypoint.y - startY));
+            startX = waypoint.x;
+            startY = waypoint.y;
+        }
+
+        return length;
+    }
+
+    /**
+     * Theta*. The goal must be reachable (finite heuristic at the start).
+     */
+    private void search(int start, int end, @NotNull float[] heuristic) {
+        stamp++;
+        open.clear();
+
+        visit(start, start, 0);
+        open.add(start, heuristic[start]);
+
+        while (!open.isEmpty()) {
+            int cell = open.poll();
+
+            if (closed[cell]) continue; //Added again with a lower cost since
+            closed[cell] = true;
+
+            if (cell == end) return;
+
+            int cellX = cell % grid.getWidth();
+            int cellY = cell / grid.getWidth();
+            int parent = parents[cell];
+
+            for (int i = 0; i < NEIGHBOUR_XS.length; i++) {
+                int neighbourX = cellX + NEIGHBOUR_XS[i];
+                int neighbourY = cellY + NEIGHBOUR_YS[i];
+
+                if (neighbourX < 0 || neighbourY < 0 || neighbourX >= grid.getWidth() || neighbourY >= grid.getHeight()) continue;
+
+                int neighbour = neighbourY * grid.getWidth() + neighbourX;
+
+                if (heuristic[neighbour] == Float.POSITIVE_INFINITY) continue; //Robot doesn't fit or can't reach the goal from there
+                if (stamps[neighbour] == stamp && closed[neighbour]) continue;
+
+                //Link straight to the parent if it is in sight, otherwise through this cell
+                int newParent = isInSight(parent, neighbour) ? parent : cell;
+
+                if (newParent == cell && !isInSight(cell, neighbour)) continue; //Cutting the corner of an obstacle
+
+                float cost = costs[newParent] + getDistance(newParent, neighbour);
+
+                if (stamps[neighbour] != stamp || cost < costs[neighbour]) {
+                    visit(neighbour, newParent, cost);
+                    open.add(neighbour, cost + heuristic[neighbour]);
+                }
+            }
+        }
+    }
+
+    private void visit(int cell, int parent, float cost) {
+        if (stamps[cell] != stamp) {
+            stamps[cell] = stamp;
+            closed[cell] = false;
+        }
+
+        parents[cell] = parent;
+        costs[cell] = cost;
+    }
+
+    /**
+     * @return a lower bound of the distance from each cell to the goal cell without leaving the cells the robot fits on,
+     * infinity if it can't be reached
+     */
+    @NotNull
+    private float[] getGoalDistances(int goal) {
+        float[] distances = goalDistances.get(goal);
+
+        if (distances != null) return distances;
+
+        if (goalDistances.size() == MAX_CACHED_GOALS) goalDistances.clear();
+
+        distances = new float[grid.getNumCells()];
+        Arrays.fill(distances, Float.POSITIVE_INFINITY);
+
+        //Dijkstra
+        CellHeap heap = new CellHeap();
+        distances[goal] = 0;
+        heap.add(goal, 0);
+
+        while (!heap.isEmpty()) {
+            float distance = heap.peekKey();
+            int cell = heap.poll();
+
+            if (distance > distances[cell]) continue; //Added again with a lower distance since
+
+            int cellX = cell % grid.getWidth();
+            int cellY = cell / grid.getWidth();
+
+            for (int i = 0; i < NEIGHBOUR_XS.length; i++) {
+                int neighbourX = cellX + NEIGHBOUR_XS[i];
+                int neighbourY = cellY + NEIGHBOUR_YS[i];
+
+                if (neighbourX < 0 || neighbourY < 0 || neighbourX >= grid.getWidth() || neighbourY >= grid.getHeight()) continue;
+
+                int neighbour = neighbourY * grid.getWidth() + neighbourX;
+
+                if (!isFree(neighbour)) continue;
+
+                boolean diagonal = NEIGHBOUR_XS[i] != 0 && NEIGHBOUR_YS[i] != 0;
+
+                //No cutting corners
+                if (diagonal && (!isFree(cellY * grid.getWidth() + neighbourX) || !isFree(neighbourY * grid.getWidth() + cellX))) continue;
+
+                float newDistance = distance + (diagonal ? DIAGONAL : 1) * grid.getCellSize();
+
+                if (newDistance < distances[neighbour]) {
+                    distances[neighbour] = newDistance;
+                    heap.add(neighbour, newDistance);
+                }
+            }
+        }
+
+        //The straight lines of Theta* can be shorter than the path along the grid
+        for (int cell = 0; cell < distances.length; cell++) distances[cell] /= GRID_OVERESTIMATE;
+
+        goalDistances.put(goal, distances);
+
+        return distances;
+    }
+
+    /**
+     * Breadth first search that never goes from a cell into an obstacle, only out of one (ex. the robot is on a container's base),
+     * so that the robot isn't joined to a cell on the other side of an obstacle
+     *
+     * @return the cell itself if the robot fits on it, otherwise the closest cell it fits on. -1 if none.
+     */
+    private int getClosestFreeCell(int cell) {
+        if (isFree(cell)) return cell;
+
+        stamp++;
+
+        int[] queue = new int[grid.getNumCells()];
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = cell;
+        stamps[cell] = stamp;
+
+        int best = -1;
+        float bestDistance = Float.POSITIVE_INFINITY;
+
+        while (head < tail) {
+            int current = queue[head++];
+
+            float distance = getDistance(cell, current);
+
+            if (distance > bestDistance) continue; //Everything further in the queue is even further away
+
+            if (isFree(current)) {
+                best = current;
+                bestDistance = distance;
+                continue;
+            }
+
+            int currentX = current % grid.getWidth();
+            int currentY = current / grid.getWidth();
+
+            for (int i = 0; i < NEIGHBOUR_XS.length; i++) {
+                int neighbourX = currentX + NEIGHBOUR_XS[i];
+                int neighbourY = currentY + NEIGHBOUR_YS[i];
+
+                if (neighbourX < 0 || neighbourY < 0 || neighbourX >= grid.getWidth() || neighbourY >= grid.getHeight()) continue;
+
+                int neighbour = neighbourY * grid.getWidth() + neighbourX;
+
+                if (stamps[neighbour] == stamp || (grid.isObstacle(neighbour) && !grid.isObstacle(current))) continue;
+
+                stamps[neighbour] = stamp;
+                queue[tail++] = neighbour;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Checks a line the robot drives along without planning (ex. to join a route planned offline).
+     * Like the lines joining a start or goal the robot doesn't fit on to the closest cell it fits on, the line can start and end
+     * on cells the robot doesn't fit on (ex. the robot is at a container) but it never goes into an obstacle.
+     *
+     * @return true if the robot can drive straight from (fromX, fromY) to (toX, toY)
+     */
+    @Contract(pure = true)
+    boolean isInSight(float fromX, float fromY, float toX, float toY) {
+        return isInSight(grid.getCell(fromX, fromY), grid.getCell(toX, toY), true);
+    }
+
+    @Contract(pure = true)
+    private boolean isInSight(int from, int to) {
+        return isInSight(from, to, false);
+    }
+
+    /**
+     * Walks along the line between the centers of the cells (every cell it touches)
+     *
+     * @param joins true if the line can start and end on cells the robot doesn't fit on
+     * @return true if the robot fits on every cell of the line (except at its ends if joins)
+     */
+    @Contract(pure = true)
+    private boolean isInSight(int from, int to, boolean joins) {
+        int x = from % grid.getWidth();
+        int y = from / grid.getWidth();
+        int endX = to % grid.getWidth();
+        int endY = to / grid.getWidth();
+
+        int dx = Math.abs(endX - x);
+        int dy = Math.abs(endY - y);
+        int stepX = endX > x ? 1 : -1;
+        int stepY = endY > y ? 1 : -1;
+
+        int error = dx - dy;
+        dx *= 2;
+        dy *= 2;
+
+        boolean reachedFree = false; //Reached the cells the robot fits on
+        boolean leftFree = false; //Left them again, only allowed at the end of the line
+        int previous = from;
+
+        for (int n = 1 + (dx + dy) / 2; n > 0; n--) {
+            int cell = y * grid.getWidth() + x;
+
+            if (isFree(cell)) {
+                if (leftFree) return false;
+                reachedFree = true;
+            } else if (!joins || (grid.isObstacle(cell) && !grid.isObstacle(previous))) {
+                return false;
+            } else if (reachedFree) {
+                leftFree = true;
+            }
+
+            previous = cell;
+
+            if (error > 0) {
+                x += stepX;
+                error -= dy;
+            } else if (error < 0) {
+                y += stepY;
+                error += dx;
+            } else {
+                //Goes exactly through a corner so the robot must fit on both cells beside it
+                if ((!joins || (reachedFree && !leftFree)) &&
+                        (!isFree(y * grid.getWidth() + x + stepX) || !isFree((y + stepY) * grid.getWidth() + x))) return false;
+
+                x += stepX;
+                y += stepY;
+                error += dx - dy;
+                n--;
+            }
+        }
+
+        return true;
+    }
+
+    @Contract(pure = true)
+    private boolean isFree(int cell) {
+        return grid.getClearance(cell) >= robotRadius;
+    }
+
+    @Contract(pure = true)
+    private float getDistance(int from, int to) {
+        float dx = grid.getCenterX(to) - grid.getCenterX(from);
+        float dy = grid.getCenterY(to) - grid.getCenterY(from);
+
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @NotNull
+    @Contract("_ -> new")
+    private Waypoint getWaypoint(int cell) {
+        return new Waypoint(grid.getCenterX(cell), grid.getCenterY(cell));
+    }
+
+    /**
+     * Binary min heap of cells by key. A cell can be added more than once.
+     */
+    private static final class CellHeap {
+        @NotNull
+        private int[] cells = new int[64];
+        @NotNull
+        private float[] keys = new float[64];
+        private int size = 0;
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float peekKey() {
+            return keys[0];
+        }
+
+        void add(int cell, float key) {
+            if (size == cells.length) {
+                cells = Arrays.copyOf(cells, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+
+            int i = size++;
+
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+
+                if (keys[parent] <= key) break;
+
+                cells[i] = cells[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+
+            cells[i] = cell;
+            keys[i] = key;
+        }
+
+        int poll() {
+            int top = cells[0];
+
+            size--;
+            int lastCell = cells[size];
+            float lastKey = keys[size];
+
+            int i = 0;
+
+            while (true) {
+                int child = 2 * i + 1;
+
+                if (child >= size) break;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (keys[child] >= lastKey) break;
+
+                cells[i] = cells[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+
+            cells[i] = lastCell;
+            keys[i] = lastKey;
+
+            return top;
+        }
+    }
+}
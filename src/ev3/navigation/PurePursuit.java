@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import lejos.robotics.geometry.Point;
+import lejos.robotics.navigation.Pose;
+import lejos.robotics.navigation.Waypoint;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Geometry of the pure pursuit path follower (see {@link MyNavigator#setPurePursuit(boolean)}).
+ * <p>
+ * The path is the line through the robot's starting position and the waypoints. Each update, the robot's position is projected
+ * onto the segment it is on and the robot steers along the arc through the lookahead point (the point a fixed distance further along the path).
+ * The lookahead point moves on to the next segment before the robot reaches a waypoint so the robot blends through the waypoints
+ * instead of stopping and turning at each one.
+ * <p>
+ * A waypoint with a heading gets an extra point approachDistance before it along the heading so that the robot arrives lined up.
+ */
+final class PurePursuit {
+    @NotNull
+    private final float[] xs;
+    @NotNull
+    private final float[] ys;
+    @NotNull
+    private final boolean[] isWaypoint; //False for the starting position and the approach points
+    @NotNull
+    private final float[] lengthsToEnd; //Length of the path from each point to the end
+
+    private int segment = 0; //The robot is on the segment from point segment to point segment + 1
+
+    //Projection of the robot's position on the segment (0 = start, 1 = end)
+    private float projection = 0;
+
+    PurePursuit(@NotNull Pose start, @NotNull List<Waypoint> waypoints, float approachDistance) {
+        int maxPoints = 1 + 2 * waypoints.size();
+
+        float[] xs = new float[maxPoints];
+        float[] ys = new float[maxPoints];
+        boolean[] isWaypoint = new boolean[maxPoints];
+
+        xs[0] = start.getX();
+        ys[0] = start.getY();
+        int numPoints = 1;
+
+        for (Waypoint waypoint : waypoints) {
+            if (waypoint.isHeadingRequired()) {
+                double heading = Math.toRadians(waypoint.getHeading());
+                float approachX = (float) (waypoint.x - approachDistance * Math.cos(heading));
+                float approachY = (float) (waypoint.y - approachDistance * Math.sin(heading));
+
+                //Not worth it if the previous point is already closer than the approach point
+                if (distance(xs[numPoints - 1], ys[numPoints - 1], waypoint.x, waypoint.y) > approachDistance) {
+                    xs[numPoints] = approachX;
+                    ys[numPoints] = approachY;
+                    numPoints++;
+                }
+            }
+
+            xs[numPoints] = waypoint.x;
+            ys[numPoints] = waypoint.y;
+            isWaypoint[numPoints] = true;
+            numPoints++;
+        }
+
+        this.xs = new float[numPoints];
+        this.ys = new float[numPoints];
+        this.isWaypoint = new boolean[numPoints];
+        this.lengthsToEnd = new float[numPoints];
+
+        System.arraycopy(xs, 0, this.xs, 0, numPoints);
+        System.arraycopy(ys, 0, this.ys, 0, numPoints);
+        System.arraycopy(isWaypoint, 0, this.isWaypoint, 0, numPoints);
+
+        for (int i = numPoints - 2; i >= 0; i--) {
+            lengthsToEnd[i] = lengthsToEnd[i + 1] + getSegmentLength(i);
+        }
+    }
+
+    /**
+     * Moves on to the next segments if the robot passed the end of its segment or is closer to the next one (cutting a corner)
+     *
+     * @return the number of waypoints passed
+     */
+    int update(float x, float y) {
+        if (segment >= xs.length - 1) return 0; //Already at the end
+
+        int waypointsPassed = 0;
+
+        projection = getProjection(segment, x, y);
+
+        while (segment < xs.length - 2) {
+            boolean passedEnd = projection >= 1;
+            boolean cuttingCorner = getDistanceToSegment(segment + 1, x, y) < getDistanceToSegment(segment, x, y);
+
+            if (!passedEnd && !cuttingCorner) break;
+
+            segment++;
+            if (isWaypoint[segment]) waypointsPassed++;
+
+            projection = getProjection(segment, x, y);
+        }
+
+        //The last waypoint is passed once the robot reaches the end of the path
+        if (projection >= 1) {
+            segment++;
+            if (isWaypoint[segment]) waypointsPassed++;
+        }
+
+        return waypointsPassed;
+    }
+
+    /**
+     * @return true once the robot's projection reached the end of the path
+     */
+    @Contract(pure = true)
+    boolean isFinished() {
+        return segment == xs.length - 1;
+    }
+
+    /**
+     * @return the length of the path from the robot's projection to the end
+     */
+    @Contract(pure = true)
+    float getRemainingDistance() {
+        if (segment >= xs.length - 1) return 0;
+
+        return Math.max(0, lengthsToEnd[segment + 1] + (1 - projection) * getSegmentLength(segment));
+    }
+
+    /**
+     * Past the end of the path, the lookahead point continues along the last segment so the robot stays lined up with it.
+     *
+     * @return the point lookahead further along the path than the robot's projection
+     */
+    @NotNull
+    @Contract("_ -> new")
+    Point getLookaheadPoint(float lookahead) {
+        int i = Math.min(segment, xs.length - 2);
+        float t = i == segment ? Math.max(0, projection) : 1;
+
+        float remaining = lookahead + t * getSegmentLength(i);
+
+        while (i < xs.length - 2 && remaining > getSegmentLength(i)) {
+            remaining -= getSegmentLength(i);
+            i++;
+        }
+
+        float length = getSegmentLength(i);
+
+        if (length == 0) return new Point(xs[i + 1], ys[i + 1]);
+
+        float fraction = remaining / length;
+
+        return new Point(xs[i] + fraction * (xs[i + 1] - xs[i]), ys[i] + fraction * (ys[i + 1] - ys[i]));
+    }
+
+    /**
+     * @return the curvature (1 / radius in mm, positive to the left) of the arc from the robot's pose through the point
+     */
+    @Contract(pure = true)
+    static float getCurvature(@NotNull Pose pose, @NotNull Point point) {
+        float distance = pose.distanceTo(point);
+
+        if (distance == 0) return 0;
+
+        return (float) (2 * Math.sin(Math.toRadians(pose.relativeBearing(point))) / distance);
+    }
+
+    /**
+     * @return where (x, y) projects onto the line of the segment (0 = start, 1 = end)
+     */
+    @Contract(pure = true)
+    private float getProjection(int i, float x, float y) {
+        float dx = xs[i + 1] - xs[i];
+        float dy = ys[i + 1] - ys[i];
+        float lengthSquared = dx * dx + dy * dy;
+
+        if (lengthSquared == 0) return 1;
+
+        return ((x - xs[i]) * dx + (y - ys[i]) * dy) / lengthSquared;
+    }
+
+    @Contract(pure = true)
+    private float getDistanceToSegment(int i, float x, float y) {
+        float t = Math.max(0, Math.min(1, getProjection(i, x, y)));
+
+        return distance(x, y, xs[i] + t * (xs[i + 1] - xs[i]), ys[i] + t * (ys[i + 1] - ys[i]));
+    }
+
+    @Contract(pure = true)
+    private float getSegmentLength(int i) {
+        return distance(xs[i], ys[i], xs[i + 1], ys[i + 1]);
+    }
+
+    @Contract(pure = true)
+    private static float distance(float x1, float y1, float x2, float y2) {
+        return (float) Math.sqrt((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1));
+    }
+}
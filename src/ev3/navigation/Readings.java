@@ -4,8 +4,9 @@
 
 package ev3.navigation;
 
-import lejos.robotics.navigation.Pose;
-
 public interface Readings {
-    float calculateWeight(Pose pose);
+    /**
+     * Takes the pose as primitives so that the particle algorithm doesn't need to create a Pose for each particle
+     */
+    float calculateWeight(float x, float y, float heading);
 }
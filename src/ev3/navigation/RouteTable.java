@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import common.logger.Logger;
+import lejos.robotics.geometry.Point;
+import lejos.robotics.navigation.Pose;
+import lejos.robotics.navigation.Waypoint;
+import lejos.robotics.pathfinding.Path;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * Routes planned offline (see {@link RouteTableGenerator}) between the points the robot goes to so that they don't have to be planned during the run.
+ * <p>
+ * A route goes from an origin (where the robot is after a path, ex. a container) to a target (ex. the approach point of a container)
+ * and is the list of waypoints in between. The robot drives straight from its pose to the route's first waypoint
+ * so a route is only used if the robot is close to its origin (and MapOperations checks that nothing is in the way).
+ * <p>
+ * Format (big endian) : MAGIC (int), VERSION (int), number of origins (int), number of targets (int),
+ * the origins then the targets (x, y as floats), then for each origin and each target the number of waypoints (short, -1 if the
+ * target can't be reached) followed by the waypoints (x, y as floats).
+ */
+final class RouteTable {
+    private static final String LOG_TAG = RouteTable.class.getSimpleName();
+
+    private static final int MAGIC = 0x57524F52; //"WROR"
+    private static final int VERSION = 1;
+
+    private static final float POINT_TOLERANCE = 0.5F; //mm. Targets are looked up by their coordinates.
+
+    @NotNull
+    private final float[] origins; //{x0, y0, x1, y1, ...}
+    @NotNull
+    private final float[] targets;
+
+    //routes[origin * number of targets + target] = {x0, y0, x1, y1, ...} for the waypoints between the origin and the target, null if none
+    @NotNull
+    private final float[][] routes;
+
+    private RouteTable(@NotNull float[] origins, @NotNull float[] targets, @NotNull float[][] routes) {
+        this.origins = origins;
+        this.targets = targets;
+        this.routes = routes;
+    }
+
+    /**
+     * @param routes routes[origin * targets.size() + target] is the path from the origin to the target (target included), null if none
+     */
+    @NotNull
+    @Contract("_, _, _ -> new")
+    static RouteTable create(@NotNull List<? extends Point> origins, @NotNull List<? extends Point> targets, @NotNull Path[] routes) {
+        float[][] routeValues = new float[routes.length][];
+
+        for (int i = 0; i < routes.length; i++) {
+            if (routes[i] == null) continue;
+
+            routeValues[i] = new float[2 * (routes[i].size() - 1)]; //Without the target
+
+            for (int j = 0; j < routes[i].size() - 1; j++) {
+                routeValues[i][2 * j] = routes[i].get(j).x;
+                routeValues[i][2 * j + 1] = routes[i].get(j).y;
+            }
+        }
+
+        return new RouteTable(toArray(origins), toArray(targets), routeValues);
+    }
+
+    /**
+     * @return the table in the file or null if the file doesn't exist or can't be read (ex. corrupt or truncated)
+     */
+    @Nullable
+    static RouteTable load(@NotNull File file) {
+        if (!file.exists()) return null;
+
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (dis.readInt() != MAGIC || dis.readInt() != VERSION) throw new IOException("Not a route table : " + file);
+
+            int numOrigins = dis.readInt();
+            int numTargets = dis.readInt();
+
+            //Checked before allocating so that a corrupt count doesn't run out of memory
+            if (numOrigins < 0 || numTargets < 0 || 8L * numOrigins + 8L * numTargets + 2L * numOrigins * numTargets > file.length()) {
+                throw new IOException("Invalid number of points : " + numOrigins + ", " + numTargets);
+            }
+
+            float[] origins = new float[2 * numOrigins];
+            float[] targets = new float[2 * numTargets];
+
+            for (int i = 0; i < origins.length; i++) origins[i] = dis.readFloat();
+            for (int i = 0; i < targets.length; i++) targets[i] = dis.readFloat();
+
+            float[][] routes = new float[origins.length / 2 * targets.length / 2][];
+
+            for (int i = 0; i < routes.length; i++) {
+                int numWaypoints = dis.readShort();
+
+                if (numWaypoints == -1) continue;
+                if (numWaypoints < 0) throw new IOException("Invalid number of waypoints : " + numWaypoints);
+
+                routes[i] = new float[2 * numWaypoints];
+
+                for (int j = 0; j < routes[i].length; j++) routes[i][j] = dis.readFloat();
+            }
+
+            return new RouteTable(origins, targets, routes);
+        } catch (IOException e) {
+            Logger.warning(LOG_TAG, "Unable to read the route table " + file + " : " + e);
+            return null;
+        }
+    }
+
+    void write(@NotNull File file) throws IOException {
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+            dos.writeInt(origins.length / 2);
+            dos.writeInt(targets.length / 2);
+
+            for (float value : origins) dos.writeFloat(value);
+            for (float value : targets) dos.writeFloat(value);
+
+            for (float[] route : routes) {
+                if (route == null) {
+                    dos.writeShort(-1);
+                    continue;
+                }
+
+                dos.writeShort(route.length / 2);
+
+                for (float value : route) dos.writeFloat(value);
+            }
+        }
+    }
+
+    /**
+     * @return true if the table was generated for these origins and targets (false means the points moved since)
+     */
+    @Contract(pure = true)
+    boolean matches(@NotNull List<? extends Point> origins, @NotNull List<? extends Point> targets) {
+        return matches(this.origins, origins) && matches(this.targets, targets);
+    }
+
+    /**
+     * @param maxConnectorLength how far the robot can be from the route's origin
+     * @return the path from the pose to the target (target included) or null if there is no route from near the pose to the target
+     */
+    @Nullable
+    @Contract(pure = true)
+    Path getRoute(@NotNull Pose pose, @NotNull Waypoint target, float maxConnectorLength) {
+        int targetIndex = indexOf(targets, target.x, target.y, POINT_TOLERANCE);
+        int originIndex = indexOf(origins, pose.getX(), pose.getY(), maxConnectorLength);
+
+        if (targetIndex == -1 || originIndex == -1) return null;
+
+        float[] route = routes[originIndex * (targets.length / 2) + targetIndex];
+
+        if (route == null) return null;
+
+        Path path = new Path();
+
+        for (int i = 0; i < route.length; i += 2) {
+            path.add(new Waypoint(route[i], route[i + 1]));
+        }
+
+        path.add(target);
+
+        return path;
+    }
+
+    /**
+     * @return the index of the closest point within maxDistance of (x, y), -1 if none
+     */
+    @Contract(pure = true)
+    private static int indexOf(@NotNull float[] points, float x, float y, float maxDistance) {
+        int closest = -1;
+        float closestDistance = maxDistance;
+
+        for (int i = 0; i < points.length / 2; i++) {
+            float distance = (float) Math.sqrt((points[2 * i] - x) * (points[2 * i] - x) + (points[2 * i + 1] - y) * (points[2 * i + 1] - y));
+
+            if (distance <= closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+
+        return closest;
+    }
+
+    @Contract(pure = true)
+    private static boolean matches(@NotNull float[] values, @NotNull List<? extends Point> points) {
+        if (values.length != 2 * points.size()) return false;
+
+        for (int i = 0; i < points.size(); i++) {
+            if (Math.abs(values[2 * i] - points.get(i).x) > POINT_TOLERANCE ||
+                    Math.abs(values[2 * i + 1] - points.get(i).y) > POINT_TOLERANCE) return false;
+        }
+
+        return true;
+    }
+
+    @NotNull
+    @Contract(pure = true)
+    private static float[] toArray(@NotNull List<? extends Point> points) {
+        float[] values = new float[2 * points.size()];
+
+        for (int i = 0; i < points.size(); i++) {
+            values[2 * i] = points.get(i).x;
+            values[2 * i + 1] = points.get(i).y;
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import common.Config;
+import common.logger.Logger;
+import lejos.robotics.navigation.Waypoint;
+import lejos.robotics.pathfinding.Path;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Plans the route from every origin to every target of {@link MapOperations} and writes them to Config.ROUTES_PC_PATH (see {@link RouteTable}).
+ * <p>
+ * Run again whenever the points or the obstacles in MapOperations change, then upload the file to the EV3 (Config.ROUTES_EV3_PATH)
+ * with the image uploader. MapOperations ignores a table that doesn't match its points.
+ */
+final class RouteTableGenerator {
+    private static final String LOG_TAG = RouteTableGenerator.class.getSimpleName();
+
+    private RouteTableGenerator() {
+    }
+
+    public static void main(String[] args) {
+        long startTime = System.currentTimeMillis();
+
+        List<Waypoint> origins = MapOperations.getRouteOrigins();
+        List<Waypoint> targets = MapOperations.getRouteTargets();
+
+        RouteTable table = generate(MapOperations.createPlanner(), origins, targets);
+
+        try {
+            table.write(new File(Config.ROUTES_PC_PATH));
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+
+        Logger.info(LOG_TAG, "Planned " + origins.size() * targets.size() + " routes to " + Config.ROUTES_PC_PATH + " in " +
+                (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    @NotNull
+    static RouteTable generate(@NotNull PathPlanner planner, @NotNull List<Waypoint> origins, @NotNull List<Waypoint> targets) {
+        Path[] routes = new Path[origins.size() * targets.size()];
+
+        for (int i = 0; i < origins.size(); i++) {
+            for (int j = 0; j < targets.size(); j++) {
+                routes[i * targets.size() + j] = planner.plan(origins.get(i).x, origins.get(i).y, targets.get(j));
+            }
+        }
+
+        return RouteTable.create(origins, targets, routes);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import org.jetbrains.annotations.Contract;
+
+/**
+ * Sine and cosine looked up in a table instead of calculated. The angle is rounded to the nearest STEP degrees
+ * so the result is off by at most sin(STEP / 2) = 0.0009 (under 0.2 mm at the distance of the color sensors).
+ * <p>
+ * Used in the particle algorithm where the same functions are called for every particle on every update.
+ */
+public final class TrigTable {
+    private static final int STEPS_PER_DEGREE = 10; //STEP is 0.1 degrees
+    private static final int STEPS_PER_TURN = 360 * STEPS_PER_DEGREE;
+    private static final int QUARTER_TURN = STEPS_PER_TURN / 4;
+
+    //SINES[i] = sin(i * STEP). Has an extra quarter turn so that cos(i) = SINES[i + QUARTER_TURN].
+    private static final float[] SINES = new float[STEPS_PER_TURN + QUARTER_TURN];
+
+    static {
+        for (int i = 0; i < SINES.length; i++) {
+            SINES[i] = (float) Math.sin(Math.toRadians((double) i / STEPS_PER_DEGREE));
+        }
+    }
+
+    private TrigTable() {
+    }
+
+    @Contract(pure = true)
+    public static float sin(float degrees) {
+        return SINES[getIndex(degrees)];
+    }
+
+    @Contract(pure = true)
+    public static float cos(float degrees) {
+        return SINES[getIndex(degrees) + QUARTER_TURN];
+    }
+
+    @Contract(pure = true)
+    public static float sinAt(int index) {
+        return SINES[index];
+    }
+
+    @Contract(pure = true)
+    public static float cosAt(int index) {
+        return SINES[index + QUARTER_TURN];
+    }
+
+    /**
+     * @return the index of the closest step in the first turn. Used with {@link #sinAt(int)} and {@link #cosAt(int)}
+     * to only round the angle once when both are needed.
+     */
+    @Contract(pure = true)
+    public static int getIndex(float degrees) {
+        int index = Math.round(degrees * STEPS_PER_DEGREE) % STEPS_PER_TURN;
+
+        return index < 0 ? index + STEPS_PER_TURN : index;
+    }
+}
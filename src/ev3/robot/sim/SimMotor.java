@@ -122,9 +122,14 @@ class SimMotor implements RegulatedMotor {
         return endTachoCount == currentTachoCount ? 0 : speed; //Ternary operator
     }
 
+    /**
+     * Restarts the timing of the current rotation from here so that the new speed only applies from now on
+     */
     @Override
-    public void setSpeed(int i) {
+    public synchronized void setSpeed(int i) {
         update();
+        startTachoCount = currentTachoCount;
+        timeAtStart = System.currentTimeMillis();
         this.speed = (int) (i * Config.SIM_SPEED_FACTOR);
     }
 
@@ -4,6 +4,9 @@
 
 package imagegenerator;
 
+import common.mapping.DirtyRegions;
+import org.jetbrains.annotations.NotNull;
+
 import java.awt.*;
 
 /**
@@ -21,4 +24,24 @@ abstract class ColorRegion {
     }
 
     public abstract boolean contains(float x, float y);
+
+    /**
+     * @return the pixels that can be contained by this region
+     */
+    @NotNull
+    abstract DirtyRegions.Box getBounds();
+
+    /**
+     * @return a description of the shape (ex. its corners). Two regions with the same description and color are the same.
+     */
+    @NotNull
+    abstract String getShapeDescription();
+
+    /**
+     * @return a line for the manifest that changes when anything about the region changes
+     */
+    @NotNull
+    String getDescription() {
+        return getClass().getSimpleName() + " " + Integer.toHexString(mColor.getRGB()) + " " + getShapeDescription();
+    }
 }
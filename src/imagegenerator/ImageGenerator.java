@@ -7,32 +7,49 @@ package imagegenerator;
 import common.Config;
 import common.logger.Logger;
 import common.mapping.ColorJavaLejos;
+import common.mapping.DirtyRegions;
+import common.mapping.FieldGeometry;
 import lejos.robotics.geometry.Point;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Generates the surface map image
+ * <p>
+ * The regions the image was painted with are saved in a manifest (see {@link RegionManifest}). If the image and the
+ * manifest exist, only the bounding boxes of the regions that changed are repainted. The repainted boxes are added to
+ * the dirty regions so that DataGenerator only recomputes the map data around them.
  */
 class ImageGenerator {
     private static final String LOG_TAG = ImageGenerator.class.getSimpleName();
 
-    private static final Rectangle boundingRectangle = new Rectangle(Color.WHITE, 0, 0, 2362, 1143);
+    private static final int BAND_HEIGHT = 16; //Number of rows painted by one task
 
-    private static final ArrayList<ColorRegion> regions = new ArrayList<>();
+    static final Rectangle boundingRectangle = new Rectangle(Color.WHITE, 0, 0, FieldGeometry.FIELD_WIDTH, FieldGeometry.FIELD_HEIGHT);
+
+    static final ArrayList<ColorRegion> regions = new ArrayList<>();
 
     static {
-        regions.add(new Rectangle(ColorJavaLejos.MAP_BLUE, 0, 0, 412.5F, 1143));
+        regions.add(new Rectangle(ColorJavaLejos.MAP_BLUE, 0, 0, FieldGeometry.WATER_WIDTH, FieldGeometry.FIELD_HEIGHT));
 
         //Vertical lines
         regions.add(new Rectangle(Color.BLACK, 180, 0, 20, 1143));
-        regions.add(new Rectangle(Color.BLACK, 412.5F, 0, 20, 1143));
+        regions.add(new Rectangle(Color.BLACK, FieldGeometry.WATER_WIDTH, 0, 20, 1143));
         regions.add(new Rectangle(Color.BLACK, 655.5F, 138, 20, 867));
         regions.add(new Rectangle(Color.BLACK, 1044.5F, 0, 20, 1143));
         regions.add(new Rectangle(Color.BLACK, 1722.5F, 0, 20, 1143));
@@ -75,20 +92,20 @@ class ImageGenerator {
         )));
 
         //Containers base
-        regions.add(new Rectangle(Color.LIGHT_GRAY, 827.5F, 343, 88, 88)); //Top-left
-        regions.add(new Rectangle(Color.LIGHT_GRAY, 1259.5F, 272, 88, 88)); //Top-right
-        regions.add(new Rectangle(Color.LIGHT_GRAY, 753.5F, 766, 88, 88)); //Bottom-left
-        regions.add(new Rectangle(Color.LIGHT_GRAY, 1191.5F, 695, 88, 88)); //Bottom-right
+        regions.add(createSquare(Color.LIGHT_GRAY, FieldGeometry.CONTAINER_TOP_LEFT, FieldGeometry.CONTAINER_BASE_SIZE));
+        regions.add(createSquare(Color.LIGHT_GRAY, FieldGeometry.CONTAINER_TOP_RIGHT, FieldGeometry.CONTAINER_BASE_SIZE));
+        regions.add(createSquare(Color.LIGHT_GRAY, FieldGeometry.CONTAINER_BOTTOM_LEFT, FieldGeometry.CONTAINER_BASE_SIZE));
+        regions.add(createSquare(Color.LIGHT_GRAY, FieldGeometry.CONTAINER_BOTTOM_RIGHT, FieldGeometry.CONTAINER_BASE_SIZE));
 
         //Containers base white small rectangle
-        regions.add(new Rectangle(Color.WHITE, 847.5F, 363, 48, 48)); //Top-left
-        regions.add(new Rectangle(Color.WHITE, 1279.5F, 292, 48, 48)); //Top-right
-        regions.add(new Rectangle(Color.WHITE, 773.5F, 786, 48, 48)); //Bottom-left
-        regions.add(new Rectangle(Color.WHITE, 1211.5F, 715, 48, 48)); //Bottom-right
+        regions.add(createSquare(Color.WHITE, FieldGeometry.CONTAINER_TOP_LEFT, FieldGeometry.CONTAINER_BASE_INNER_SIZE));
+        regions.add(createSquare(Color.WHITE, FieldGeometry.CONTAINER_TOP_RIGHT, FieldGeometry.CONTAINER_BASE_INNER_SIZE));
+        regions.add(createSquare(Color.WHITE, FieldGeometry.CONTAINER_BOTTOM_LEFT, FieldGeometry.CONTAINER_BASE_INNER_SIZE));
+        regions.add(createSquare(Color.WHITE, FieldGeometry.CONTAINER_BOTTOM_RIGHT, FieldGeometry.CONTAINER_BASE_INNER_SIZE));
 
         //Starting area
         regions.add(new Rectangle(ColorJavaLejos.MAP_GREEN, 2102, 435, 260, 270));
-        regions.add(new Rectangle(Color.WHITE, 2112, 445, 250, 250));
+        regions.add(new Rectangle(Color.WHITE, 2112, 445, FieldGeometry.START_AREA_SIZE, FieldGeometry.START_AREA_SIZE));
 
         //Boats
         for (int i = 0; i < 6; i++) {
@@ -98,47 +115,144 @@ class ImageGenerator {
         }
     }
 
-    private static Color getDisplayColor(float x, float y) {
-        Color colorUnderPoint = boundingRectangle.getDisplayColor();
-
-        for (ColorRegion region : ImageGenerator.regions) {
-            if (region.contains(x, y)) {
-                colorUnderPoint = region.getDisplayColor();
-            }
-        }
+    /**
+     * @param center center of the square in the robot's coordinates (see {@link FieldGeometry})
+     */
+    @NotNull
+    private static Rectangle createSquare(@NotNull Color color, @NotNull Point center, float size) {
+        return new Rectangle(color, center.x - size / 2, FieldGeometry.FIELD_HEIGHT - center.y - size / 2, size, size);
+    }
 
-        return colorUnderPoint;
+    @NotNull
+    static RegionIndex createRegionIndex() {
+        return new RegionIndex(regions, boundingRectangle.getDisplayColor(),
+                (int) boundingRectangle.getWidth(), (int) boundingRectangle.getHeight());
     }
 
     /**
-     * Generates an image
+     * Generates the image or only repaints what changed since the last time
      *
      * @param pathToSave where to save the image
      */
     @SuppressWarnings("SameParameterValue")
     private static void generateImage(String pathToSave) {
-        BufferedImage image = new BufferedImage(
-                (int) boundingRectangle.getWidth(),
-                (int) boundingRectangle.getHeight(),
-                BufferedImage.TYPE_INT_RGB
-        );
-
-        //Loop through every pixel
-        for (int x = 0; x < image.getWidth(); x++) {
-            for (int y = 0; y < image.getHeight(); y++) {
-                image.setRGB(x, y, getDisplayColor(x, y).getRGB());
-            }
+        long startTime = System.currentTimeMillis();
+
+        int width = (int) boundingRectangle.getWidth();
+        int height = (int) boundingRectangle.getHeight();
+
+        RegionManifest manifest = RegionManifest.create(width, height, regions);
+
+        File file = new File(pathToSave);
+        BufferedImage image = null;
+        List<DirtyRegions.Box> changedBoxes = null;
+
+        RegionManifest previousManifest = RegionManifest.load(new File(Config.MAP_MANIFEST_PATH));
+
+        if (previousManifest != null && file.exists()) {
+            changedBoxes = manifest.getChangedBoxes(previousManifest);
+            image = changedBoxes == null ? null : readImage(file);
+        }
+
+        if (image == null) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            changedBoxes = Collections.singletonList(new DirtyRegions.Box(0, 0, width - 1, height - 1));
+        }
+
+        if (changedBoxes.isEmpty()) {
+            Logger.info(LOG_TAG, "Image is up to date");
+            return;
         }
 
+        paint(image, changedBoxes, createRegionIndex());
+
         //Save Image
         try {
-            File file = new File(pathToSave);
             ImageIO.write(image, "png", file);
         } catch (IOException e) {
             Logger.error(LOG_TAG, "Failed to write Image to file" + e);
+            return;
+        }
+
+        //Dirty regions before the manifest so that a change is never lost
+        DirtyRegions.add(new File(Config.MAP_DIRTY_PATH), changedBoxes);
+        manifest.save(new File(Config.MAP_MANIFEST_PATH));
+
+        Logger.info(LOG_TAG, "Painted " + changedBoxes.size() + " boxes in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /**
+     * Paints every pixel of the boxes that is on the image. The boxes are split into bands of rows painted in parallel
+     * directly in the image's pixel array. Overlapping boxes write the same values so the order doesn't matter.
+     *
+     * @param image must be TYPE_INT_RGB
+     */
+    static void paint(@NotNull BufferedImage image, @NotNull List<DirtyRegions.Box> boxes, @NotNull final RegionIndex regionIndex) {
+        final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        final int width = image.getWidth();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        try {
+            List<Future<?>> bands = new ArrayList<>();
+
+            for (DirtyRegions.Box box : boxes) {
+                final int minX = Math.max(0, box.minX);
+                final int maxX = Math.min(width - 1, box.maxX);
+                int minY = Math.max(0, box.minY);
+                int maxY = Math.min(image.getHeight() - 1, box.maxY);
+
+                for (int bandStart = minY; bandStart <= maxY; bandStart += BAND_HEIGHT) {
+                    final int startY = bandStart;
+                    final int endY = Math.min(maxY, bandStart + BAND_HEIGHT - 1);
+
+                    bands.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            for (int y = startY; y <= endY; y++) {
+                                for (int x = minX; x <= maxX; x++) {
+                                    pixels[y * width + x] = regionIndex.getRGB(x, y) & 0xFFFFFF; //TYPE_INT_RGB has no alpha
+                                }
+                            }
+                        }
+                    }));
+                }
+            }
+
+            for (Future<?> band : bands) band.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e.toString());
+        } finally {
+            executor.shutdown();
         }
     }
 
+    @Nullable
+    private static BufferedImage readImage(@NotNull File file) {
+        BufferedImage savedImage;
+
+        try {
+            savedImage = ImageIO.read(file);
+        } catch (IOException e) {
+            Logger.warning(LOG_TAG, "Failed to read the previous image, regenerating it " + e);
+            return null;
+        }
+
+        //The image must be the right size to be repainted (otherwise it is regenerated)
+        if (savedImage == null || savedImage.getWidth() != (int) boundingRectangle.getWidth() ||
+                savedImage.getHeight() != (int) boundingRectangle.getHeight()) {
+            return null;
+        }
+
+        //PNGs are not always read back as TYPE_INT_RGB
+        BufferedImage image = new BufferedImage(savedImage.getWidth(), savedImage.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.drawImage(savedImage, 0, 0, null);
+        graphics.dispose();
+
+        return image;
+    }
+
     public static void main(String[] args) {
         generateImage(Config.MAP_PATH);
     }
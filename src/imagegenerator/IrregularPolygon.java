@@ -5,6 +5,7 @@
 package imagegenerator;
 
 import com.snatik.polygon.Polygon;
+import common.mapping.DirtyRegions;
 import lejos.robotics.geometry.Point;
 import org.jetbrains.annotations.NotNull;
 
@@ -18,10 +19,15 @@ class IrregularPolygon extends ColorRegion {
 
     private final Polygon polygon;
 
+    @NotNull
+    private final List<Point> vertexes;
+
     @SuppressWarnings("SameParameterValue")
     IrregularPolygon(Color color, @NotNull List<Point> vertexes) {
         super(color);
 
+        this.vertexes = vertexes;
+
         Polygon.Builder builder = Polygon.Builder();
 
         for (Point currentPoint : vertexes) {
@@ -35,4 +41,34 @@ class IrregularPolygon extends ColorRegion {
     public boolean contains(float x, float y) {
         return polygon.contains(new com.snatik.polygon.Point(x, y));
     }
+
+    @NotNull
+    @Override
+    DirtyRegions.Box getBounds() {
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+
+        for (Point vertex : vertexes) {
+            minX = Math.min(minX, vertex.x);
+            minY = Math.min(minY, vertex.y);
+            maxX = Math.max(maxX, vertex.x);
+            maxY = Math.max(maxY, vertex.y);
+        }
+
+        return new DirtyRegions.Box((int) Math.floor(minX), (int) Math.floor(minY), (int) Math.ceil(maxX), (int) Math.ceil(maxY));
+    }
+
+    @NotNull
+    @Override
+    String getShapeDescription() {
+        StringBuilder description = new StringBuilder();
+
+        for (Point vertex : vertexes) {
+            description.append(vertex.x).append(" ").append(vertex.y).append(" ");
+        }
+
+        return description.toString().trim();
+    }
 }
@@ -4,6 +4,7 @@
 
 package imagegenerator;
 
+import common.mapping.DirtyRegions;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
@@ -26,6 +27,23 @@ class Rectangle extends ColorRegion {
         return mRectangle.contains(x, y);
     }
 
+    @NotNull
+    @Override
+    DirtyRegions.Box getBounds() {
+        return new DirtyRegions.Box(
+                (int) Math.floor(mRectangle.x),
+                (int) Math.floor(mRectangle.y),
+                (int) Math.ceil(mRectangle.x + mRectangle.width),
+                (int) Math.ceil(mRectangle.y + mRectangle.height)
+        );
+    }
+
+    @NotNull
+    @Override
+    String getShapeDescription() {
+        return mRectangle.x + " " + mRectangle.y + " " + mRectangle.width + " " + mRectangle.height;
+    }
+
     float getWidth() {
         return mRectangle.width;
     }
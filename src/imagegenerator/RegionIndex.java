@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package imagegenerator;
+
+import common.mapping.DirtyRegions;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uniform grid over the image where each cell knows which regions have bounds overlapping it.
+ * A pixel only tests the regions of its cell instead of every region.
+ * <p>
+ * The regions of a cell are kept in painting order and are tested from the last to the first so the first match
+ * is the color the pixel would get by painting every region in order (the last region containing the pixel wins).
+ */
+final class RegionIndex {
+    private static final int CELL_SIZE = 64;
+
+    @NotNull
+    private final ColorRegion[] regions;
+
+    //RGB value of regions[i]
+    @NotNull
+    private final int[] regionColors;
+
+    //cells[cellY][cellX] indexes of the regions that can contain pixels of the cell, in painting order
+    @NotNull
+    private final int[][][] cells;
+
+    private final int backgroundColor;
+
+    RegionIndex(@NotNull List<ColorRegion> regions, @NotNull Color backgroundColor, int width, int height) {
+        this.regions = regions.toArray(new ColorRegion[0]);
+        this.regionColors = new int[this.regions.length];
+        this.backgroundColor = backgroundColor.getRGB();
+
+        int cellsX = (width + CELL_SIZE - 1) / CELL_SIZE;
+        int cellsY = (height + CELL_SIZE - 1) / CELL_SIZE;
+
+        List<List<Integer>> cellLists = new ArrayList<>(cellsX * cellsY);
+
+        for (int i = 0; i < cellsX * cellsY; i++) {
+            cellLists.add(new ArrayList<Integer>());
+        }
+
+        for (int i = 0; i < this.regions.length; i++) {
+            regionColors[i] = this.regions[i].getDisplayColor().getRGB();
+
+            DirtyRegions.Box bounds = this.regions[i].getBounds();
+
+            int minCellX = Math.max(0, bounds.minX / CELL_SIZE);
+            int maxCellX = Math.min(cellsX - 1, bounds.maxX / CELL_SIZE);
+            int minCellY = Math.max(0, bounds.minY / CELL_SIZE);
+            int maxCellY = Math.min(cellsY - 1, bounds.maxY / CELL_SIZE);
+
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                    cellLists.get(cellY * cellsX + cellX).add(i);
+                }
+            }
+        }
+
+        cells = new int[cellsY][cellsX][];
+
+        for (int cellY = 0; cellY < cellsY; cellY++) {
+            for (int cellX = 0; cellX < cellsX; cellX++) {
+                List<Integer> cellList = cellLists.get(cellY * cellsX + cellX);
+                int[] cell = new int[cellList.size()];
+
+                for (int i = 0; i < cell.length; i++) {
+                    cell[i] = cellList.get(i);
+                }
+
+                cells[cellY][cellX] = cell;
+            }
+        }
+    }
+
+    /**
+     * @return the RGB value of the pixel (same as {@link Color#getRGB()}). The pixel must be on the image.
+     */
+    int getRGB(int x, int y) {
+        int[] cell = cells[y / CELL_SIZE][x / CELL_SIZE];
+
+        for (int i = cell.length - 1; i >= 0; i--) {
+            if (regions[cell[i]].contains(x, y)) return regionColors[cell[i]];
+        }
+
+        return backgroundColor;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package imagegenerator;
+
+import common.mapping.DirtyRegions;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The list of regions the map image was painted with, saved next to the image.
+ * Comparing it with the current regions gives the parts of the image that need to be repainted.
+ * <p>
+ * File format : first line is "width height" of the image, then one line per region in painting order
+ * "minX minY maxX maxY description". The bounds are saved so that removed regions can still be located.
+ */
+final class RegionManifest {
+    @NotNull
+    private final String size;
+
+    @NotNull
+    private final List<String> lines;
+
+    private RegionManifest(@NotNull String size, @NotNull List<String> lines) {
+        this.size = size;
+        this.lines = lines;
+    }
+
+    @NotNull
+    static RegionManifest create(int width, int height, @NotNull List<ColorRegion> regions) {
+        List<String> lines = new ArrayList<>(regions.size());
+
+        for (ColorRegion region : regions) {
+            lines.add(region.getBounds() + " " + region.getDescription());
+        }
+
+        return new RegionManifest(width + " " + height, lines);
+    }
+
+    /**
+     * @return the saved manifest or null if there is none
+     */
+    @Nullable
+    static RegionManifest load(@NotNull File file) {
+        if (!file.exists()) return null;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String size = reader.readLine();
+
+            if (size == null) return null;
+
+            List<String> lines = new ArrayList<>();
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.add(line);
+            }
+
+            return new RegionManifest(size, lines);
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
+
+    void save(@NotNull File file) {
+        try (Writer writer = new FileWriter(file)) {
+            writer.append(size).append("\n");
+
+            for (String line : lines) {
+                writer.append(line).append("\n");
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
+
+    /**
+     * A pixel takes the color of the last region containing it. The regions both manifests have in common
+     * (longest common subsequence) stay in the same order so only the pixels of the other regions can change color.
+     *
+     * @return the bounds of the regions that were added, removed or changed since the previous manifest.
+     * null if the image size changed (everything must be repainted).
+     */
+    @Nullable
+    List<DirtyRegions.Box> getChangedBoxes(@NotNull RegionManifest previous) {
+        if (!size.equals(previous.size)) return null;
+
+        boolean[] keptLines = new boolean[lines.size()];
+        boolean[] keptPreviousLines = new boolean[previous.lines.size()];
+
+        findCommonLines(previous.lines, lines, keptPreviousLines, keptLines);
+
+        List<DirtyRegions.Box> boxes = new ArrayList<>();
+
+        addBoxesOfChangedLines(previous.lines, keptPreviousLines, boxes);
+        addBoxesOfChangedLines(lines, keptLines, boxes);
+
+        return boxes;
+    }
+
+    /**
+     * Marks the lines that are part of the longest common subsequence of the two lists
+     */
+    private static void findCommonLines(@NotNull List<String> a, @NotNull List<String> b, @NotNull boolean[] keptA, @NotNull boolean[] keptB) {
+        //lengths[i][j] is the length of the longest common subsequence of a[i..] and b[j..]
+        int[][] lengths = new int[a.size() + 1][b.size() + 1];
+
+        for (int i = a.size() - 1; i >= 0; i--) {
+            for (int j = b.size() - 1; j >= 0; j--) {
+                if (a.get(i).equals(b.get(j))) {
+                    lengths[i][j] = lengths[i + 1][j + 1] + 1;
+                } else {
+                    lengths[i][j] = Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+                }
+            }
+        }
+
+        int i = 0;
+        int j = 0;
+
+        while (i < a.size() && j < b.size()) {
+            if (a.get(i).equals(b.get(j))) {
+                keptA[i++] = true;
+                keptB[j++] = true;
+            } else if (lengths[i + 1][j] >= lengths[i][j + 1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+    }
+
+    private static void addBoxesOfChangedLines(@NotNull List<String> lines, @NotNull boolean[] kept, @NotNull List<DirtyRegions.Box> boxes) {
+        for (int i = 0; i < lines.size(); i++) {
+            if (!kept[i]) boxes.add(getBounds(lines.get(i)));
+        }
+    }
+
+    @NotNull
+    @Contract(pure = true)
+    private static DirtyRegions.Box getBounds(@NotNull String line) {
+        String[] values = line.split(" ", 5);
+
+        return new DirtyRegions.Box(
+                Integer.parseInt(values[0]),
+                Integer.parseInt(values[1]),
+                Integer.parseInt(values[2]),
+                Integer.parseInt(values[3])
+        );
+    }
+}
@@ -15,6 +15,8 @@ import java.nio.file.StandardCopyOption;
 /**
  * Uploads an image to the EV3
  * Not pretty but works
+ * <p>
+ * Argument : where to save the file (Config.DATA_EV3_PATH if none). Ex. Config.ROUTES_EV3_PATH
  */
 class EV3 {
     public static void main(String[] args) {
@@ -23,7 +25,7 @@ class EV3 {
                     ConnectionUtil.getInputStream(
                             ConnectionUtil.createServerSocket(Config.PORT_TO_CONNECT_ON_EV3)
                     ),
-                    new File(Config.DATA_EV3_PATH).toPath(),
+                    new File(args.length == 0 ? Config.DATA_EV3_PATH : args[0]).toPath(),
                     StandardCopyOption.REPLACE_EXISTING
             );
         } catch (IOException e) {
@@ -14,6 +14,8 @@ import java.nio.file.Files;
 /**
  * Uploads an image to the EV3
  * Not pretty but works
+ * <p>
+ * Argument : the file to upload (Config.DATA_PC_PATH if none). Ex. Config.ROUTES_PC_PATH
  */
 class PC {
     // --Commented out by Inspection (25/04/18 8:38 PM):private static final String LOG_TAG = PC.class.getSimpleName();
@@ -21,7 +23,7 @@ class PC {
     public static void main(String[] args) {
         try {
             Files.copy(
-                    new File(Config.DATA_PC_PATH).toPath(),
+                    new File(args.length == 0 ? Config.DATA_PC_PATH : args[0]).toPath(),
                     ConnectionUtil.createOutputStream(
                             ConnectionUtil.createServerSocket(Config.PORT_TO_CONNECT_ON_EV3)
                     )
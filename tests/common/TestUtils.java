@@ -4,7 +4,12 @@
 
 package common;
 
+import common.mapping.MapDataFile;
+import common.mapping.MapDataReader;
 import common.particles.Particle;
+import ev3.navigation.MyMovePilot;
+import ev3.navigation.NavigatorBuilder;
+import ev3.robot.sim.SimRobot;
 import lejos.robotics.geometry.Point;
 import lejos.robotics.navigation.Pose;
 import org.jetbrains.annotations.Contract;
@@ -12,6 +17,9 @@ import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.io.IOException;
+
 public class TestUtils {
     @Test
     public static void assertPoseEqual(Pose pose1, Pose pose2) {
@@ -27,6 +35,32 @@ public class TestUtils {
     }
 
 
+    /**
+     * Writes the values (values[y][x]) to a temporary binary map file that is deleted on exit
+     */
+    @NotNull
+    public static File createMapFile(@NotNull float[][] values) throws IOException {
+        File file = File.createTempFile("mapData", ".bin");
+        file.deleteOnExit();
+
+        MapDataFile.write(file, values);
+
+        return file;
+    }
+
+    @NotNull
+    public static MapDataReader createMap(@NotNull float[][] values) throws IOException {
+        return new MapDataReader(createMapFile(values).getPath());
+    }
+
+    /**
+     * @return the pilot of a simulated robot on a blank map
+     */
+    @NotNull
+    public static MyMovePilot createSimPilot() throws IOException {
+        return NavigatorBuilder.buildMoveProvider(new SimRobot(createMap(new float[8][8])).getChassis());
+    }
+
     @Contract(pure = true)
     static boolean sumOfWeightsIsOne(@NotNull Particle[] particles) {
         float totalWeight = 0;
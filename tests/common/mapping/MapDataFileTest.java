@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package common.mapping;
+
+import common.TestUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+class MapDataFileTest {
+    private static final float[][] VALUES = {
+            {0.05F, 0.3F, 0.6F},
+            {0.85F, 0.9F, 0.4F}
+    };
+
+    @Test
+    void writeAndReadBinary() throws IOException {
+        File file = TestUtils.createMapFile(VALUES);
+
+        Assertions.assertTrue(MapDataFile.isBinaryMap(file));
+        assertMapEquals(new MapDataReader(file.getPath()));
+    }
+
+    @Test
+    void csvFallback() throws IOException {
+        File file = File.createTempFile("mapData", ".txt");
+        file.deleteOnExit();
+
+        FileWriter writer = new FileWriter(file);
+        for (float[] row : VALUES) {
+            for (float value : row) {
+                writer.write(value + ",");
+            }
+            writer.write("\n");
+        }
+        writer.close();
+
+        Assertions.assertFalse(MapDataFile.isBinaryMap(file));
+        assertMapEquals(new MapDataReader(file.getPath()));
+    }
+
+    private static void assertMapEquals(MapDataReader reader) {
+        Assertions.assertEquals(VALUES[0].length, reader.getWidth());
+        Assertions.assertEquals(VALUES.length, reader.getHeight());
+
+        for (int y = 0; y < VALUES.length; y++) {
+            for (int x = 0; x < VALUES[0].length; x++) {
+                Assertions.assertEquals(VALUES[y][x], reader.getColorAtPoint(x, y), 0.0001F);
+            }
+        }
+    }
+
+    @Test
+    void bilinearSampling() throws IOException {
+        MapDataReader reader = TestUtils.createMap(VALUES);
+
+        //On a cell center bilinear gives the cell value
+        Assertions.assertEquals(VALUES[1][1], reader.getColorAtPoint(1.5F, 1.5F, MapDataReader.Sampling.BILINEAR), 0.0001F);
+
+        //Halfway between two cell centers gives the average
+        Assertions.assertEquals((VALUES[0][0] + VALUES[0][1]) / 2, reader.getColorAtPoint(1, 0.5F, MapDataReader.Sampling.BILINEAR), 0.0001F);
+
+        float[] results = new float[2];
+        reader.getColorsAtPoints(new float[]{0.2F, 2.9F}, new float[]{0.2F, 1.9F}, 2, results, MapDataReader.Sampling.NEAREST);
+        Assertions.assertEquals(VALUES[0][0], results[0], 0.0001F);
+        Assertions.assertEquals(VALUES[1][2], results[1], 0.0001F);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package common.mapping;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MapPyramidTest {
+
+    @Test
+    void downsampleAverages() {
+        MapDataReader map = new MapDataReader(3, 2, 0, 0.01F, new byte[]{
+                10, 20, 50,
+                30, 40, 70
+        });
+
+        MapDataReader downsampled = map.downsample();
+
+        Assertions.assertEquals(2, downsampled.getWidth());
+        Assertions.assertEquals(1, downsampled.getHeight());
+        Assertions.assertEquals(25, downsampled.getCellAtPoint(0, 0));
+        Assertions.assertEquals(60, downsampled.getCellAtPoint(1, 0));
+    }
+
+    @Test
+    void pointsUseFullMapCoordinates() {
+        MapDataReader map = new MapDataReader(4, 4, 0, 0.01F, new byte[]{
+                0, 0, 100, 100,
+                0, 0, 100, 100,
+                0, 0, 0, 0,
+                0, 0, 0, 0
+        });
+
+        MapPyramid pyramid = new MapPyramid(map, "doesNotExist.bin", 2);
+
+        Assertions.assertEquals(100, pyramid.getCellAtPoint(1, 3.5F, 0.5F));
+        Assertions.assertEquals(0, pyramid.getCellAtPoint(1, 0.5F, 3.5F));
+        Assertions.assertFalse(pyramid.contains(1, 4.5F, 0));
+    }
+
+    @Test
+    void levelPath() {
+        Assertions.assertEquals("res/mapData_2.bin", MapPyramid.getLevelPath("res/mapData.bin", 2));
+        Assertions.assertEquals("/mapData_1.bin", MapPyramid.getLevelPath("/mapData.bin", 1));
+        Assertions.assertEquals("res.d/mapData_3", MapPyramid.getLevelPath("res.d/mapData", 3));
+    }
+}
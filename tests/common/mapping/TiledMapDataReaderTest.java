@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package common.mapping;
+
+import common.TestUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+class TiledMapDataReaderTest {
+    private static final int WIDTH = 150;
+    private static final int HEIGHT = 100;
+
+    @Test
+    void sameCellsAsFullMap() throws IOException {
+        File file = createMap();
+
+        MapDataReader fullMap = new MapDataReader(file.getPath());
+        TiledMapDataReader tiledMap = TiledMapDataReader.open(file.getPath(), 16, 3);
+
+        Assertions.assertEquals(WIDTH, tiledMap.getWidth());
+        Assertions.assertEquals(HEIGHT, tiledMap.getHeight());
+
+        Random random = new Random(2018);
+
+        for (int i = 0; i < 10000; i++) {
+            float x = random.nextFloat() * WIDTH;
+            float y = random.nextFloat() * HEIGHT;
+
+            Assertions.assertEquals(fullMap.getCellAtPoint(x, y), tiledMap.getCellAtPoint(x, y));
+            Assertions.assertEquals(fullMap.getColorAtPoint(x, y, MapDataReader.Sampling.BILINEAR),
+                    tiledMap.getColorAtPoint(x, y, MapDataReader.Sampling.BILINEAR), 0.0001F);
+        }
+
+        Assertions.assertTrue(tiledMap.getNumLoadedTiles() <= 3);
+
+        tiledMap.close();
+    }
+
+    @Test
+    void leastRecentlyUsedTileIsDropped() throws IOException {
+        TiledMapDataReader tiledMap = TiledMapDataReader.open(createMap().getPath(), 16, 2);
+
+        tiledMap.getCellAtPoint(0, 0); //Miss tile A
+        tiledMap.getCellAtPoint(20, 0); //Miss tile B
+        tiledMap.getCellAtPoint(1, 1); //Hit tile A
+        tiledMap.getCellAtPoint(40, 0); //Miss tile C, drops B
+        tiledMap.getCellAtPoint(2, 2); //Hit tile A
+        tiledMap.getCellAtPoint(21, 0); //Miss tile B, drops C
+
+        Assertions.assertEquals(2, tiledMap.getHitCount());
+        Assertions.assertEquals(4, tiledMap.getMissCount());
+        Assertions.assertEquals(2, tiledMap.getNumLoadedTiles());
+
+        tiledMap.close();
+    }
+
+    private static File createMap() throws IOException {
+        float[][] values = new float[HEIGHT][WIDTH];
+        Random random = new Random(7);
+
+        for (float[] row : values) {
+            for (int x = 0; x < WIDTH; x++) {
+                row[x] = random.nextFloat();
+            }
+        }
+
+        return TestUtils.createMapFile(values);
+    }
+}
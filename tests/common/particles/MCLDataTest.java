@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package common.particles;
+
+import common.TestUtils;
+import lejos.robotics.navigation.Pose;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+class MCLDataTest {
+
+    @Test
+    void dumpAndLoad() throws IOException {
+        Particle[] particles = {
+                new Particle(1, 2, 3, 0.25F),
+                new Particle(4, 5, 6, 0.75F)
+        };
+
+        MCLData sent = new MCLData(particles, new Pose(7, 8, 9));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sent.dumpObject(new DataOutputStream(out));
+
+        MCLData received = new MCLData(new Particle[0], new Pose());
+        received.loadObject(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+
+        TestUtils.assertPoseEqual(sent.getCurrentPose(), received.getCurrentPose());
+        Assertions.assertEquals(2, received.getNumParticles());
+
+        Particle[] receivedParticles = received.getParticles();
+
+        for (int i = 0; i < particles.length; i++) {
+            TestUtils.assertPoseEqual(particles[i].getPose(), receivedParticles[i].getPose());
+            Assertions.assertEquals(particles[i].weight, receivedParticles[i].weight);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package datagenerator;
+
+import common.TestUtils;
+import common.mapping.DirtyRegions;
+import common.mapping.MapDataReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class DataGeneratorTest {
+    private static final int WIDTH = 150;
+    private static final int HEIGHT = 100;
+
+    @Test
+    void regenerateMatchesGenerate() throws IOException, ExecutionException, InterruptedException {
+        float[][] pixels = new float[HEIGHT][WIDTH];
+        Random random = new Random(2018);
+
+        for (float[] row : pixels) {
+            for (int x = 0; x < WIDTH; x++) {
+                row[x] = random.nextFloat();
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            MapDataReader previousMap = TestUtils.createMap(getRows(DataGenerator.generate(pixels, new DiscKernel(5), executor)));
+
+            //Change a box of the image (swing coordinates)
+            DirtyRegions.Box box = new DirtyRegions.Box(70, 10, 80, 20);
+
+            for (int y = box.minY; y <= box.maxY; y++) {
+                for (int x = box.minX; x <= box.maxX; x++) {
+                    pixels[HEIGHT - 1 - y][x] = 1;
+                }
+            }
+
+            boolean[][] dirtyTiles = DataGenerator.getDirtyTiles(Collections.singletonList(box), WIDTH, HEIGHT, 5);
+
+            Assertions.assertFalse(dirtyTiles[0][0]);
+            Assertions.assertTrue(dirtyTiles[1][1]);
+
+            float[][] expected = getRows(DataGenerator.generate(pixels, new DiscKernel(5), executor));
+            float[][] actual = getRows(DataGenerator.regenerate(pixels, new DiscKernel(5), previousMap, dirtyTiles, executor));
+
+            for (int y = 0; y < HEIGHT; y++) {
+                Assertions.assertArrayEquals(expected[y], actual[y], 0.001F);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static float[][] getRows(List<Future<float[]>> futures) throws ExecutionException, InterruptedException {
+        float[][] rows = new float[futures.size()][];
+
+        for (int y = 0; y < rows.length; y++) {
+            rows[y] = futures.get(y).get();
+        }
+
+        return rows;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package datagenerator;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+class SensorKernelTest {
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+
+    @Test
+    void discMatchesMeasuredKernel() throws IOException {
+        int radius = 4;
+        StringBuilder weights = new StringBuilder();
+
+        for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                weights.append(Math.sqrt(dx * dx + dy * dy) < radius ? "1 " : "0 ");
+            }
+            weights.append("\n");
+        }
+
+        assertSameRows(new DiscKernel(radius), loadKernel(weights.toString()));
+    }
+
+    @Test
+    void gaussianMatchesMeasuredKernel() throws IOException {
+        float sigma = 1.5F;
+        int radius = (int) Math.ceil(3 * sigma);
+        StringBuilder weights = new StringBuilder();
+
+        for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                weights.append(Math.exp(-(dx * dx + dy * dy) / (2.0 * sigma * sigma))).append(",");
+            }
+            weights.append("\n");
+        }
+
+        assertSameRows(new GaussianKernel(sigma), loadKernel(weights.toString()));
+    }
+
+    @Test
+    void parse() {
+        Assertions.assertEquals("disc-10", SensorKernel.parse("disc:10").getName());
+        Assertions.assertEquals("gaussian-4.0", SensorKernel.parse("gaussian:4").getName());
+
+        try {
+            SensorKernel.parse("square:3");
+            Assertions.fail("Unknown kernel type should throw");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    private static MeasuredKernel loadKernel(String weights) throws IOException {
+        File file = File.createTempFile("kernel", ".txt");
+        file.deleteOnExit();
+
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(weights);
+        }
+
+        return MeasuredKernel.load(file);
+    }
+
+    private static void assertSameRows(SensorKernel expectedKernel, SensorKernel actualKernel) {
+        float[][] pixels = new float[HEIGHT][WIDTH];
+        Random random = new Random(2018);
+
+        for (float[] row : pixels) {
+            for (int x = 0; x < WIDTH; x++) {
+                row[x] = random.nextFloat();
+            }
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            expectedKernel.prepare(pixels, executor);
+            actualKernel.prepare(pixels, executor);
+
+            for (int y = 0; y < HEIGHT; y++) {
+                Assertions.assertArrayEquals(expectedKernel.filterRow(y), actualKernel.filterRow(y), 0.011F);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
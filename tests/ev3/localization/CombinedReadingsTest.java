@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import ev3.navigation.Readings;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CombinedReadingsTest {
+
+    @Test
+    void weightIsProduct() {
+        CombinedReadings readings = new CombinedReadings(constantReadings(0.5F), constantReadings(0.4F));
+
+        Assertions.assertEquals(0.2F, readings.calculateWeight(0, 0, 0), 0.00001F);
+    }
+
+    @Test
+    void zeroReadingGivesZero() {
+        CombinedReadings readings = new CombinedReadings(constantReadings(0), constantReadings(0.4F));
+
+        Assertions.assertEquals(0, readings.calculateWeight(0, 0, 0));
+    }
+
+    private static Readings constantReadings(final float weight) {
+        return new Readings() {
+            @Override
+            public float calculateWeight(float x, float y, float heading) {
+                return weight;
+            }
+        };
+    }
+}
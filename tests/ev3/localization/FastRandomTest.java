@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class FastRandomTest {
+    private static final int NUM_SAMPLES = 1000000;
+
+    @Test
+    void sameSeedSameNumbers() {
+        FastRandom random1 = new FastRandom(42);
+        FastRandom random2 = new FastRandom(42);
+
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(random1.nextInt(), random2.nextInt());
+        }
+    }
+
+    @Test
+    void floatIsUniform() {
+        FastRandom random = new FastRandom(2018);
+        int[] buckets = new int[10];
+
+        for (int i = 0; i < NUM_SAMPLES; i++) {
+            float value = random.nextFloat();
+
+            Assertions.assertTrue(0 <= value && value < 1);
+            buckets[(int) (value * 10)]++;
+        }
+
+        for (int bucket : buckets) {
+            Assertions.assertEquals(NUM_SAMPLES / 10, bucket, NUM_SAMPLES / 100);
+        }
+    }
+
+    @Test
+    void gaussianIsStandardNormal() {
+        FastRandom random = new FastRandom(2018);
+
+        double sum = 0;
+        double sumOfSquares = 0;
+        int withinOneDeviation = 0;
+        int beyondThreeDeviations = 0;
+
+        for (int i = 0; i < NUM_SAMPLES; i++) {
+            float value = random.nextGaussian();
+
+            sum += value;
+            sumOfSquares += value * value;
+
+            if (Math.abs(value) < 1) withinOneDeviation++;
+            if (Math.abs(value) > 3) beyondThreeDeviations++;
+        }
+
+        Assertions.assertEquals(0, sum / NUM_SAMPLES, 0.01);
+        Assertions.assertEquals(1, sumOfSquares / NUM_SAMPLES, 0.01);
+        Assertions.assertEquals(0.6827, (double) withinOneDeviation / NUM_SAMPLES, 0.005);
+        Assertions.assertEquals(0.0027, (double) beyondThreeDeviations / NUM_SAMPLES, 0.0005);
+    }
+}
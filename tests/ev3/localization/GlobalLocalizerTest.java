@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import common.TestUtils;
+import common.mapping.MapDataReader;
+import common.mapping.MapPyramid;
+import ev3.navigation.Offset;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+class GlobalLocalizerTest {
+
+    /**
+     * Map with a dark left half and a light right half. Reading light on both sensors should only give poses with
+     * both sensors on the right half. Half the map matches so there is a particle for every pose kept.
+     */
+    @Test
+    void findsMatchingPoses() throws IOException {
+        float[][] values = new float[512][1024];
+
+        for (float[] row : values) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = x < row.length / 2 ? 0.1F : 0.9F;
+            }
+        }
+
+        File file = TestUtils.createMapFile(values);
+
+        MapDataReader map = new MapDataReader(file.getPath());
+        GlobalLocalizer localizer = new GlobalLocalizer(new MapPyramid(map, file.getPath(), 4), new LikelihoodTable(map));
+
+        float[] xs = new float[2 * GlobalLocalizer.MAX_SURVIVORS];
+        float[] ys = new float[xs.length];
+        float[] headings = new float[xs.length];
+        float[] weights = new float[xs.length];
+
+        int numParticles = localizer.localize(0.9F, 0.9F, xs, ys, headings, weights);
+
+        Assertions.assertEquals(GlobalLocalizer.MAX_SURVIVORS, numParticles);
+
+        for (int i = 0; i < numParticles; i++) {
+            Assertions.assertTrue(Offset.LEFT_COLOR_SENSOR.offsetX(xs[i], headings[i]) >= 512);
+            Assertions.assertTrue(Offset.RIGHT_COLOR_SENSOR.offsetX(xs[i], headings[i]) >= 512);
+            Assertions.assertTrue(weights[i] > 0);
+        }
+    }
+
+    /**
+     * Every pose matches a uniform map equally well so the particles must be spread over the whole map and every heading
+     * (not the first poses found) and the headings must be refined between the coarse ones
+     */
+    @Test
+    void spreadsTiedPoses() throws IOException {
+        float[][] values = new float[512][1024];
+
+        for (float[] row : values) Arrays.fill(row, 0.9F);
+
+        File file = TestUtils.createMapFile(values);
+
+        MapDataReader map = new MapDataReader(file.getPath());
+        GlobalLocalizer localizer = new GlobalLocalizer(new MapPyramid(map, file.getPath(), 4), new LikelihoodTable(map));
+
+        float[] xs = new float[GlobalLocalizer.MAX_SURVIVORS];
+        float[] ys = new float[xs.length];
+        float[] headings = new float[xs.length];
+        float[] weights = new float[xs.length];
+
+        int numParticles = localizer.localize(0.9F, 0.9F, xs, ys, headings, weights);
+
+        Assertions.assertEquals(GlobalLocalizer.MAX_SURVIVORS, numParticles);
+
+        //Particles in every 256 x 256 block of the map and every 30 degrees of heading
+        boolean[] blocks = new boolean[8];
+        boolean[] headingRanges = new boolean[12];
+        boolean refined = false;
+
+        for (int i = 0; i < numParticles; i++) {
+            blocks[(int) (ys[i] / 256) * 4 + (int) (xs[i] / 256)] = true;
+            headingRanges[(int) (headings[i] / 30)] = true;
+
+            if (headings[i] % 30 != 0) refined = true;
+        }
+
+        for (boolean block : blocks) Assertions.assertTrue(block);
+        for (boolean headingRange : headingRanges) Assertions.assertTrue(headingRange);
+        Assertions.assertTrue(refined);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class KLDSamplerTest {
+    private static final int MIN = 50;
+    private static final int MAX = 1000;
+    private static final float MAX_ERROR = 0.05F;
+    private static final float UPPER_QUANTILE = 2.326F;
+
+    @Test
+    void convergedParticlesUseMinimum() {
+        KLDSampler sampler = new KLDSampler(2362, 1143, MIN, MAX, MAX_ERROR, UPPER_QUANTILE);
+
+        for (int i = 0; i < 100; i++) {
+            sampler.addSample(1000, 500, 90);
+        }
+
+        Assertions.assertEquals(MIN, sampler.getRequiredNumParticles());
+    }
+
+    @Test
+    void spreadParticlesNeedMore() {
+        KLDSampler sampler = new KLDSampler(2362, 1143, MIN, MAX, MAX_ERROR, UPPER_QUANTILE);
+
+        for (int i = 0; i < 40; i++) {
+            sampler.addSample(i * 50, 500, 90);
+        }
+
+        int required = sampler.getRequiredNumParticles();
+
+        Assertions.assertTrue(required > MIN);
+        Assertions.assertTrue(required <= MAX);
+        Assertions.assertFalse(sampler.isDone(40));
+    }
+
+    @Test
+    void resetClearsBins() {
+        KLDSampler sampler = new KLDSampler(2362, 1143, MIN, MAX, MAX_ERROR, UPPER_QUANTILE);
+
+        for (int i = 0; i < 40; i++) {
+            sampler.addSample(i * 50, 500, -i * 20);
+        }
+
+        sampler.reset();
+        sampler.addSample(0, 0, 0);
+
+        Assertions.assertEquals(MIN, sampler.getRequiredNumParticles());
+    }
+
+    /**
+     * A smaller error bound needs more particles for the same bins
+     */
+    @Test
+    void smallerErrorNeedsMore() {
+        KLDSampler sampler = new KLDSampler(2362, 1143, MIN, MAX, MAX_ERROR, UPPER_QUANTILE);
+        KLDSampler preciseSampler = new KLDSampler(2362, 1143, MIN, MAX, MAX_ERROR / 2, UPPER_QUANTILE);
+
+        for (int i = 0; i < 10; i++) {
+            sampler.addSample(i * 50, 500, 90);
+            preciseSampler.addSample(i * 50, 500, 90);
+        }
+
+        Assertions.assertTrue(preciseSampler.getRequiredNumParticles() > sampler.getRequiredNumParticles());
+    }
+}
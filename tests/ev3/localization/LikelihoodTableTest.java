@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import common.mapping.MapDataReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+class LikelihoodTableTest {
+    //Half a bin of error on the reading times the max slope of the bell curve (~0.61)
+    private static final float TOLERANCE = 0.004F;
+
+    @Test
+    void matchesExactFunction() throws IOException {
+        MapDataReader map = createMap();
+        LikelihoodTable table = new LikelihoodTable(map);
+
+        for (float reading = 0; reading <= 1; reading += 0.003F) {
+            float[] likelihoods = table.getLikelihoodsForReading(reading);
+
+            for (int x = 0; x < map.getWidth(); x++) {
+                for (int y = 0; y < map.getHeight(); y++) {
+                    float exact = Util.bellCurveFunction(reading - map.getColorAtPoint(x, y));
+                    float lookedUp = likelihoods[map.getCellAtPoint(x, y)];
+
+                    Assertions.assertEquals(exact, lookedUp, TOLERANCE);
+                }
+            }
+        }
+    }
+
+    @Test
+    void valuesOutOfRangeAreClamped() {
+        Assertions.assertEquals(0, LikelihoodTable.getBin(-1));
+        Assertions.assertEquals(0, LikelihoodTable.getBin(0));
+        Assertions.assertEquals(LikelihoodTable.getBin(1), LikelihoodTable.getBin(7));
+    }
+
+    /**
+     * Creates a map with one row containing every value from 0 to 1 in steps of 0.01
+     */
+    private static MapDataReader createMap() throws IOException {
+        File file = File.createTempFile("mapData", ".txt");
+        file.deleteOnExit();
+
+        FileWriter writer = new FileWriter(file);
+        for (int i = 0; i <= 100; i++) {
+            writer.write(i / 100F + ",");
+        }
+        writer.close();
+
+        return new MapDataReader(file.getPath());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LostDetectorTest {
+    private static final int MIN_UPDATES = 20;
+
+    @Test
+    void notLostWhileReadingsMatch() {
+        LostDetector detector = createDetector();
+
+        //Short drops (ex. a sensor on the edge between two colors) aren't enough
+        for (int i = 0; i < 500; i++) {
+            Assertions.assertFalse(detector.update(i % 20 < 2 ? 0.5F : 0.95F));
+        }
+    }
+
+    @Test
+    void lostWhenReadingsStopMatching() {
+        LostDetector detector = createDetector();
+
+        for (int i = 0; i < 200; i++) detector.update(0.95F);
+
+        int numUpdates = 0;
+        while (!detector.update(0.5F)) numUpdates++;
+
+        Assertions.assertTrue(numUpdates > 2);
+        Assertions.assertTrue(numUpdates < 20);
+    }
+
+    @Test
+    void resetWaitsForMinUpdates() {
+        LostDetector detector = createDetector();
+
+        for (int i = 0; i < 200; i++) detector.update(0.95F);
+        for (int i = 0; i < 50; i++) detector.update(0.5F);
+
+        Assertions.assertTrue(detector.isLost());
+
+        detector.reset();
+
+        for (int i = 0; i < MIN_UPDATES - 1; i++) {
+            Assertions.assertFalse(detector.update(i < 5 ? 0.95F : 0.5F));
+        }
+    }
+
+    private static LostDetector createDetector() {
+        return new LostDetector(0.01F, 0.1F, 0.75F, MIN_UPDATES);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import lejos.robotics.navigation.Move;
+import lejos.robotics.navigation.Pose;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class OdometryMotionModelTest {
+    private static final int NUM_PARTICLES = 10000;
+
+    @Test
+    void withoutNoiseMatchesMovePose() {
+        MotionModel motionModel = new OdometryMotionModel(0, 0, 0, 0);
+
+        Move[] moves = {
+                new Move(150, 0, false),
+                new Move(-80, 0, false),
+                new Move(0, -120, false),
+                new Move(Move.MoveType.ARC, (float) (Math.PI * 50), 90, 0, 0, false),
+                new Move(Move.MoveType.ARC, -200, -45, 0, 0, false)
+        };
+
+        for (Move move : moves) {
+            Pose expected = Util.movePose(new Pose(100, 200, 30), move);
+
+            float[] xs = {100};
+            float[] ys = {200};
+            float[] headings = {30};
+
+            motionModel.movePoses(xs, ys, headings, 0, 1, move, new FastRandom(1));
+
+            Assertions.assertEquals(expected.getX(), xs[0], 0.2F);
+            Assertions.assertEquals(expected.getY(), ys[0], 0.2F);
+            Assertions.assertEquals(expected.getHeading(), headings[0], 0.01F);
+        }
+    }
+
+    @Test
+    void rotationSpreadsPosition() {
+        float alpha4 = 20;
+
+        float[] xs = new float[NUM_PARTICLES];
+        float[] ys = new float[NUM_PARTICLES];
+        float[] headings = new float[NUM_PARTICLES];
+
+        new OdometryMotionModel(0, 0, 0, alpha4).movePoses(xs, ys, headings, 0, NUM_PARTICLES, new Move(0, 90, false), new FastRandom(7));
+
+        double sumOfSquares = 0;
+
+        for (int i = 0; i < NUM_PARTICLES; i++) {
+            sumOfSquares += xs[i] * xs[i] + ys[i] * ys[i];
+            Assertions.assertEquals(90, headings[i], 0.001F);
+        }
+
+        double expectedVariance = alpha4 * Math.pow(Math.PI / 2, 2);
+
+        Assertions.assertEquals(expectedVariance, sumOfSquares / NUM_PARTICLES, expectedVariance * 0.05);
+    }
+
+    @Test
+    void calibratorFindsAlphas() {
+        float[] alphas = {0.04F, 0.00000001F, 0.01F, 20};
+        MotionModel motionModel = new OdometryMotionModel(alphas[0], alphas[1], alphas[2], alphas[3]);
+
+        FastRandom random = new FastRandom(2018);
+        List<MotionModelCalibrator.Sample> samples = new ArrayList<>();
+
+        for (int i = 0; i < 30000; i++) {
+            Move move;
+
+            switch (i % 3) {
+                case 0:
+                    move = new Move(random.nextFloat() * 1000 - 500, 0, false);
+                    break;
+                case 1:
+                    move = new Move(0, random.nextFloat() * 360 - 180, false);
+                    break;
+                default:
+                    move = new Move(Move.MoveType.ARC, random.nextFloat() * 400 + 100, random.nextFloat() * 180 - 90, 0, 0, false);
+            }
+
+            Pose startPose = new Pose(random.nextFloat() * 2000, random.nextFloat() * 1000, random.nextFloat() * 360);
+
+            float[] xs = {startPose.getX()};
+            float[] ys = {startPose.getY()};
+            float[] headings = {startPose.getHeading()};
+
+            motionModel.movePoses(xs, ys, headings, 0, 1, move, random);
+
+            samples.add(new MotionModelCalibrator.Sample(move, startPose, new Pose(xs[0], ys[0], headings[0])));
+        }
+
+        float[] fittedAlphas = MotionModelCalibrator.fitAlphas(samples);
+
+        for (int i = 0; i < alphas.length; i++) {
+            Assertions.assertEquals(alphas[i], fittedAlphas[i], alphas[i] * 0.25F); //alpha2 is the noisiest since it only adds a little to the rotation error
+        }
+    }
+}
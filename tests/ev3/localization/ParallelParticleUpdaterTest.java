@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import ev3.navigation.Readings;
+import lejos.robotics.navigation.Move;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+class ParallelParticleUpdaterTest {
+    private static final int NUM_PARTICLES = 10000;
+
+    @Test
+    void reweightMatchesSequential() {
+        float[] xs = new float[NUM_PARTICLES];
+        float[] ys = new float[NUM_PARTICLES];
+        float[] headings = new float[NUM_PARTICLES];
+        float[] parallelWeights = new float[NUM_PARTICLES];
+        float[] sequentialWeights = new float[NUM_PARTICLES];
+
+        for (int i = 0; i < NUM_PARTICLES; i++) {
+            xs[i] = i;
+            parallelWeights[i] = 1F / NUM_PARTICLES;
+            sequentialWeights[i] = 1F / NUM_PARTICLES;
+        }
+
+        Readings readings = new Readings() {
+            @Override
+            public float calculateWeight(float x, float y, float heading) {
+                return x % 7 / 7;
+            }
+        };
+
+        float parallelTotal = new ParallelParticleUpdater().reweight(xs, ys, headings, parallelWeights, NUM_PARTICLES, readings);
+        float sequentialTotal = Util.reweight(xs, ys, headings, sequentialWeights, 0, NUM_PARTICLES, readings);
+
+        Assertions.assertArrayEquals(sequentialWeights, parallelWeights);
+        Assertions.assertEquals(sequentialTotal, parallelTotal, 0.0001F);
+    }
+
+    @Test
+    void moveIsDeterministic() {
+        float[] xs1 = new float[NUM_PARTICLES];
+        float[] ys1 = new float[NUM_PARTICLES];
+        float[] headings1 = new float[NUM_PARTICLES];
+        float[] xs2 = new float[NUM_PARTICLES];
+        float[] ys2 = new float[NUM_PARTICLES];
+        float[] headings2 = new float[NUM_PARTICLES];
+
+        Move move = new Move(100, 0, false);
+        MotionModel motionModel = new ProportionalMotionModel(0.4F, 0.08F);
+
+        new ParallelParticleUpdater().movePoses(xs1, ys1, headings1, NUM_PARTICLES, move, motionModel);
+        new ParallelParticleUpdater().movePoses(xs2, ys2, headings2, NUM_PARTICLES, move, motionModel);
+
+        Assertions.assertTrue(Arrays.equals(xs1, xs2));
+        Assertions.assertTrue(Arrays.equals(ys1, ys2));
+        Assertions.assertTrue(Arrays.equals(headings1, headings2));
+    }
+}
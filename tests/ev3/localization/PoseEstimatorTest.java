@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PoseEstimatorTest {
+    private static final int NUM_PARTICLES = 1000;
+
+    @Test
+    void headingWrapsAround() {
+        float[] xs = {500, 510, 490, 500};
+        float[] ys = {300, 300, 300, 310};
+        float[] headings = {350, 10, -5, 365};
+        float[] weights = {0.25F, 0.25F, 0.25F, 0.25F};
+
+        PoseEstimate estimate = new PoseEstimator(2000, 1000, 4).estimate(xs, ys, headings, weights, 4);
+
+        Assertions.assertEquals(500, estimate.getX(), 0.001F);
+        Assertions.assertEquals(302.5F, estimate.getY(), 0.001F);
+        Assertions.assertEquals(0, estimate.getHeading(), 0.2F); //Not 180
+        Assertions.assertEquals(1, estimate.getNumClusters());
+    }
+
+    @Test
+    void picksHeaviestCluster() {
+        float[] xs = new float[NUM_PARTICLES];
+        float[] ys = new float[NUM_PARTICLES];
+        float[] headings = new float[NUM_PARTICLES];
+        float[] weights = new float[NUM_PARTICLES];
+
+        FastRandom random = new FastRandom(3);
+
+        //A light group around (300, 300) and a heavy group around (1500, 700)
+        for (int i = 0; i < NUM_PARTICLES; i++) {
+            boolean heavy = i % 2 == 0;
+
+            xs[i] = (heavy ? 1500 : 300) + 10 * random.nextGaussian();
+            ys[i] = (heavy ? 700 : 300) + 10 * random.nextGaussian();
+            headings[i] = (heavy ? 90 : 270) + 3 * random.nextGaussian();
+            weights[i] = heavy ? 1.5F / NUM_PARTICLES : 0.5F / NUM_PARTICLES;
+        }
+
+        PoseEstimator estimator = new PoseEstimator(2000, 1000, NUM_PARTICLES);
+        PoseEstimate estimate = estimator.estimate(xs, ys, headings, weights, NUM_PARTICLES);
+
+        Assertions.assertEquals(1500, estimate.getX(), 2);
+        Assertions.assertEquals(700, estimate.getY(), 2);
+        Assertions.assertEquals(90, estimate.getHeading(), 1);
+        Assertions.assertEquals(2, estimate.getNumClusters());
+        Assertions.assertEquals(0.75F, estimate.getClusterWeight(), 0.001F);
+
+        //The grid is cleared after each estimate
+        Assertions.assertEquals(estimate.toString(), estimator.estimate(xs, ys, headings, weights, NUM_PARTICLES).toString());
+    }
+
+    @Test
+    void covarianceMatchesTwoPass() {
+        float[] xs = new float[NUM_PARTICLES];
+        float[] ys = new float[NUM_PARTICLES];
+        float[] headings = new float[NUM_PARTICLES];
+        float[] weights = new float[NUM_PARTICLES];
+
+        FastRandom random = new FastRandom(11);
+
+        for (int i = 0; i < NUM_PARTICLES; i++) {
+            float noise = random.nextGaussian();
+
+            xs[i] = 1000 + 20 * noise;
+            ys[i] = 500 + 15 * random.nextGaussian() - 10 * noise;
+            headings[i] = 180 + 4 * random.nextGaussian() + 2 * noise; //Around the wrap of atan2
+            weights[i] = 1F / NUM_PARTICLES;
+        }
+
+        double meanX = 0;
+        double meanY = 0;
+        double meanHeading = 0;
+
+        for (int i = 0; i < NUM_PARTICLES; i++) {
+            meanX += xs[i] * weights[i];
+            meanY += ys[i] * weights[i];
+            meanHeading += headings[i] * weights[i];
+        }
+
+        double[][] expected = new double[3][3];
+
+        for (int i = 0; i < NUM_PARTICLES; i++) {
+            double[] deviation = {xs[i] - meanX, ys[i] - meanY, headings[i] - meanHeading};
+
+            for (int row = 0; row < 3; row++) {
+                for (int column = 0; column < 3; column++) {
+                    expected[row][column] += deviation[row] * deviation[column] * weights[i];
+                }
+            }
+        }
+
+        PoseEstimate estimate = new PoseEstimator(2000, 1000, NUM_PARTICLES).estimate(xs, ys, headings, weights, NUM_PARTICLES);
+
+        Assertions.assertEquals(meanX, estimate.getX(), 0.01);
+        Assertions.assertEquals(meanY, estimate.getY(), 0.01);
+        Assertions.assertEquals(meanHeading, Util.normalizeHeading(estimate.getHeading() + 360), 0.1);
+
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                Assertions.assertEquals(expected[row][column], estimate.getCovariance(row, column),
+                        Math.abs(expected[row][column]) * 0.03 + 0.5);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.localization;
+
+import common.TestUtils;
+import common.mapping.MapDataReader;
+import ev3.navigation.MyMovePilot;
+import ev3.navigation.NavigatorBuilder;
+import ev3.robot.sim.SimRobot;
+import lejos.robotics.navigation.Pose;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+class RobotPoseProviderTest {
+    private static final int NUM_READERS = 4;
+
+    /**
+     * Readers hammer getPoseEstimate() while the simulated robot drives and the updater runs the particle filter.
+     * Every read must be a sane pose and the filter must still get its updates in.
+     */
+    @Test
+    void readersAndFilterDontBlockEachOther() throws IOException, InterruptedException {
+        MapDataReader map = createMap();
+        SimRobot robot = new SimRobot(map);
+        MyMovePilot pilot = NavigatorBuilder.buildMoveProvider(robot.getChassis());
+
+        final RobotPoseProvider poseProvider = new RobotPoseProvider(map, pilot, new Pose(200, 256, 0));
+        robot.setPoseProvider(poseProvider);
+        poseProvider.startUpdater(robot.getColorSensors());
+
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final AtomicLong numReads = new AtomicLong();
+        final AtomicBoolean done = new AtomicBoolean(false);
+
+        Thread[] readers = new Thread[NUM_READERS];
+
+        for (int i = 0; i < NUM_READERS; i++) {
+            readers[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while (!done.get()) {
+                            PoseEstimate estimate = poseProvider.getPoseEstimate();
+
+                            if (!(estimate.getX() > 100 && estimate.getX() < 700 && estimate.getY() > 150 && estimate.getY() < 350) ||
+                                    Float.isNaN(estimate.getCovariance(PoseEstimate.X, PoseEstimate.X))) {
+                                failure.compareAndSet(null, "Bad pose : " + estimate);
+                            }
+
+                            numReads.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e.toString());
+                    }
+                }
+            };
+            readers[i].start();
+        }
+
+        pilot.travel(300, false);
+
+        done.set(true);
+
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        Assertions.assertNull(failure.get());
+        Assertions.assertTrue(numReads.get() > 1000);
+        Assertions.assertTrue(poseProvider.getUpdateCount() > 0);
+
+        Pose pose = poseProvider.getPose();
+        Assertions.assertEquals(500, pose.getX(), 60);
+        Assertions.assertEquals(256, pose.getY(), 60);
+    }
+
+    /**
+     * Holds the provider's lock (as a long particle update would) and checks that the pose can still be read
+     */
+    @Test
+    void readersDontWaitForFilter() throws IOException, InterruptedException {
+        MapDataReader map = createMap();
+        MyMovePilot pilot = NavigatorBuilder.buildMoveProvider(new SimRobot(map).getChassis());
+
+        final RobotPoseProvider poseProvider = new RobotPoseProvider(map, pilot, new Pose(200, 256, 0));
+        final AtomicLong numReads = new AtomicLong();
+
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 1000; i++) {
+                    poseProvider.getPose();
+                    numReads.incrementAndGet();
+                }
+            }
+        };
+
+        //noinspection SynchronizationOnLocalVariableOrMethodParameter
+        synchronized (poseProvider) {
+            reader.start();
+            reader.join(5000);
+
+            Assertions.assertEquals(1000, numReads.get());
+        }
+    }
+
+    /**
+     * Stripes so that the readings change as the robot drives
+     */
+    private static MapDataReader createMap() throws IOException {
+        float[][] values = new float[512][1024];
+
+        for (float[] row : values) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = (x / 40) % 2 == 0 ? 0.2F : 0.8F;
+            }
+        }
+
+        return TestUtils.createMap(values);
+    }
+}
@@ -38,7 +38,7 @@ class SurfaceReadingsTest {
 
         SurfaceMap surfaceMap = new SurfaceMap();
         MapDataReader mapDataReader = new MapDataReader(Config.DATA_PC_PATH);
-        SurfaceReadings readings = new SurfaceReadings(mapDataReader, Color.GREEN, new Offset(0, 0));
+        SurfaceReadings readings = new SurfaceReadings(new LikelihoodTable(mapDataReader), Color.GREEN, new Offset(0, 0));
 
         for (int x = 0; x < surfaceMap.getImage().getWidth(); x += 10) {
             for (int y = 0; y < surfaceMap.getImage().getHeight(); y += 10) {
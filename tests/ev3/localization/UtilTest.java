@@ -29,6 +29,38 @@ class UtilTest {
         Assertions.assertEquals(newPose.getHeading(), 270);
     }
 
+    @Test
+    void movePoseArc() {
+        //Quarter circle of radius 100 turning left
+        Pose newPose = Util.movePose(new Pose(0, 0, 0), new Move(Move.MoveType.ARC, (float) (Math.PI * 50), 90, 0, 0, false));
+
+        Assertions.assertEquals(100, newPose.getX(), 0.001F);
+        Assertions.assertEquals(100, newPose.getY(), 0.001F);
+        Assertions.assertEquals(90, newPose.getHeading(), 0.001F);
+    }
+
+    @Test
+    void movePosesWithoutNoiseMatchesMovePose() {
+        Move[] moves = {new Move(30, 0, true), new Move(0, 45, true), new Move(Move.MoveType.ARC, 200, -60, 0, 0, false)};
+        float[] startingHeadings = {0, 33.3F, 90, 181, -45, 359.9F};
+
+        for (Move move : moves) {
+            float[] xs = new float[startingHeadings.length];
+            float[] ys = new float[startingHeadings.length];
+            float[] headings = startingHeadings.clone();
+
+            Util.movePoses(xs, ys, headings, 0, headings.length, move, 0, 0, new FastRandom(1));
+
+            for (int i = 0; i < headings.length; i++) {
+                Pose expected = Util.movePose(new Pose(0, 0, startingHeadings[i]), move);
+
+                Assertions.assertEquals(expected.getX(), xs[i], 0.2F);
+                Assertions.assertEquals(expected.getY(), ys[i], 0.2F);
+                Assertions.assertEquals(expected.getHeading(), headings[i], 0.001F);
+            }
+        }
+    }
+
     @Test
     void subtractMoveTravel() {
         Move move1 = new Move(100, 0, true);
@@ -53,4 +85,9 @@ class UtilTest {
         Assertions.assertEquals(result.getMoveType(), Move.MoveType.ROTATE);
     }
 
+    @Test
+    void effectiveSampleSize() {
+        Assertions.assertEquals(4, Util.calculateEffectiveSampleSize(new float[]{0.25F, 0.25F, 0.25F, 0.25F}, 4), 0.0001F);
+        Assertions.assertEquals(1, Util.calculateEffectiveSampleSize(new float[]{1, 0, 0, 0}, 4), 0.0001F);
+    }
 }
\ No newline at end of file
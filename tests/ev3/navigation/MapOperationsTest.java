@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import lejos.robotics.localization.PoseProvider;
+import lejos.robotics.navigation.Pose;
+import lejos.robotics.navigation.Waypoint;
+import lejos.robotics.pathfinding.Path;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MapOperationsTest {
+    /**
+     * Every path the Brain can ask for (from the start or any point it ends up at to any approach point or boat)
+     * can be planned around the real obstacles without the robot touching them
+     */
+    @Test
+    void planEveryRoute() {
+        OccupancyGrid grid = MapOperations.createObstacleGrid();
+        PathPlanner planner = MapOperations.createPlanner();
+
+        for (Waypoint origin : MapOperations.getRouteOrigins()) {
+            for (Waypoint target : MapOperations.getRouteTargets()) {
+                Path path = planner.plan(origin.x, origin.y, target);
+
+                Assertions.assertNotNull(path, origin + " -> " + target);
+                assertClear(grid, origin.x, origin.y, path);
+            }
+        }
+    }
+
+    /**
+     * The Brain's paths from every point it ends up at end at the right destination
+     */
+    @Test
+    void getBrainPaths() {
+        final Pose pose = new Pose();
+
+        MapOperations mapOperations = new MapOperations(new PoseProvider() {
+            @Override
+            public Pose getPose() {
+                return new Pose(pose.getX(), pose.getY(), pose.getHeading());
+            }
+
+            @Override
+            public void setPose(Pose aPose) {
+                pose.setLocation(aPose.getLocation());
+                pose.setHeading(aPose.getHeading());
+            }
+        });
+
+        for (Waypoint origin : MapOperations.getRouteOrigins()) {
+            pose.setLocation(origin);
+
+            assertEndsAt(MapOperations.BOAT_ONE, mapOperations.getPathToBoatOne());
+            assertEndsAt(MapOperations.BOAT_TWO, mapOperations.getPathToBoatX(MapOperations.BOAT_TWO));
+            assertEndsAt(new Waypoint(450, 500), mapOperations.getPathToBoatThree());
+
+            Path[] approached = {
+                    mapOperations.getPathToContainerTopLeft(),
+                    mapOperations.getPathToContainerTopRight(),
+                    mapOperations.getPathToContainerBottomLeft(),
+                    mapOperations.getPathToContainerBottomRight(),
+                    mapOperations.getPathToTempRegGreen(),
+                    mapOperations.getPathToTempRegBlue(),
+                    mapOperations.getPathToTempRegRed(),
+                    mapOperations.goToTempRegYellow()
+            };
+
+            for (Path path : approached) {
+                //Ends with the approach point then the destination 250 mm further
+                Assertions.assertTrue(path.size() >= 2, origin + " : " + path);
+                Assertions.assertEquals(250, path.get(path.size() - 2).distance(path.get(path.size() - 1)), 0.1);
+            }
+        }
+    }
+
+    private static void assertEndsAt(Waypoint expected, Path path) {
+        Waypoint last = path.get(path.size() - 1);
+
+        Assertions.assertEquals(expected.x, last.x, 0.01);
+        Assertions.assertEquals(expected.y, last.y, 0.01);
+    }
+
+    /**
+     * Checks every 5 mm of the path that the robot is off the obstacles (within half a cell).
+     * The lines joining a start or goal the robot doesn't fit on (ex. a container) to the closest cell it fits on aren't checked.
+     */
+    private static void assertClear(OccupancyGrid grid, float startX, float startY, Path path) {
+        for (Waypoint waypoint : path) {
+            boolean fits = grid.getClearance(grid.getCell(startX, startY)) >= MapOperations.ROBOT_RADIUS &&
+                    grid.getClearance(grid.getCell(waypoint.x, waypoint.y)) >= MapOperations.ROBOT_RADIUS;
+
+            float length = (float) Math.sqrt((waypoint.x - startX) * (waypoint.x - startX) + (waypoint.y - startY) * (waypoint.y - startY));
+
+            for (float distance = 0; fits && distance <= length; distance += 5) {
+                float x = startX + (waypoint.x - startX) * distance / length;
+                float y = startY + (waypoint.y - startY) * distance / length;
+
+                Assertions.assertTrue(grid.getClearance(grid.getCell(x, y)) >= MapOperations.ROBOT_RADIUS - grid.getCellSize(), x + ", " + y);
+            }
+
+            startX = waypoint.x;
+            startY = waypoint.y;
+        }
+    }
+}
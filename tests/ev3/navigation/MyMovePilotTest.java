@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import common.TestUtils;
+import lejos.robotics.navigation.Move;
+import lejos.robotics.navigation.MoveListener;
+import lejos.robotics.navigation.MoveProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+class MyMovePilotTest {
+
+    @Test
+    void travelWaitsForEndOfMove() throws IOException {
+        MyMovePilot pilot = TestUtils.createSimPilot();
+        final List<Move> stops = new ArrayList<>();
+
+        pilot.addMoveListener(new MoveListener() {
+            @Override
+            public void moveStarted(Move move, MoveProvider moveProvider) {
+            }
+
+            @Override
+            public void moveStopped(Move move, MoveProvider moveProvider) {
+                stops.add(move);
+            }
+        });
+
+        pilot.travel(50);
+
+        Assertions.assertFalse(pilot.isMoving());
+        Assertions.assertEquals(1, stops.size());
+        Assertions.assertEquals(50, stops.get(0).getDistanceTraveled(), 1);
+    }
+
+    @Test
+    void stopEndsMove() throws IOException {
+        MyMovePilot pilot = TestUtils.createSimPilot();
+        final List<Move> stops = new ArrayList<>();
+
+        pilot.addMoveListener(new MoveListener() {
+            @Override
+            public void moveStarted(Move move, MoveProvider moveProvider) {
+            }
+
+            @Override
+            public void moveStopped(Move move, MoveProvider moveProvider) {
+                stops.add(move);
+            }
+        });
+
+        pilot.travel(1000, true);
+        Assertions.assertTrue(pilot.isMoving());
+
+        pilot.stop();
+
+        Assertions.assertFalse(pilot.isMoving());
+        Assertions.assertEquals(1, stops.size());
+        Assertions.assertTrue(stops.get(0).getDistanceTraveled() < 1000);
+    }
+
+    /**
+     * Changing the speeds while steering is still one move for the listeners, with the distance and angle of all the speeds
+     */
+    @Test
+    void steerIsOneMove() throws IOException, InterruptedException {
+        MyMovePilot pilot = TestUtils.createSimPilot();
+        final List<Move> starts = new ArrayList<>();
+        final List<Move> stops = new ArrayList<>();
+
+        pilot.addMoveListener(new MoveListener() {
+            @Override
+            public void moveStarted(Move move, MoveProvider moveProvider) {
+                starts.add(move);
+            }
+
+            @Override
+            public void moveStopped(Move move, MoveProvider moveProvider) {
+                stops.add(move);
+            }
+        });
+
+        pilot.steer(100, 0);
+        Thread.sleep(300);
+        pilot.steer(100, 30);
+        Thread.sleep(300);
+        pilot.steer(50, 0);
+        Thread.sleep(300);
+
+        Assertions.assertTrue(pilot.getMovement().getDistanceTraveled() > 50);
+
+        pilot.stop();
+
+        Assertions.assertEquals(1, starts.size());
+        Assertions.assertEquals(1, stops.size());
+
+        //100 * 0.3 + 100 * 0.3 + 50 * 0.3 = 75 mm and 30 * 0.3 = 9 degrees
+        Assertions.assertEquals(75, stops.get(0).getDistanceTraveled(), 10);
+        Assertions.assertEquals(9, stops.get(0).getAngleTurned(), 2);
+    }
+}
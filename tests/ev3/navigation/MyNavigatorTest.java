@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import common.TestUtils;
+import lejos.robotics.navigation.NavigationListener;
+import lejos.robotics.navigation.Pose;
+import lejos.robotics.navigation.Waypoint;
+import lejos.robotics.pathfinding.Path;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+class MyNavigatorTest {
+
+    @Test
+    void followPath() throws IOException {
+        MyNavigator navigator = createNavigator();
+
+        Path path = new Path();
+        path.add(new Waypoint(100, 0));
+
+        navigator.followPath(path);
+
+        Assertions.assertTrue(navigator.waitForStop());
+
+        Pose pose = navigator.getPoseProvider().getPose();
+        Assertions.assertEquals(100, pose.getX(), 5);
+        Assertions.assertEquals(0, pose.getY(), 5);
+
+        Assertions.assertTrue(navigator.getStartLatency() >= 0);
+        Assertions.assertTrue(navigator.getStartLatency() < 100000000); //100 ms
+    }
+
+    /**
+     * The navigator must keep working after being stopped
+     */
+    @Test
+    void followPathAfterStop() throws IOException, InterruptedException {
+        MyNavigator navigator = createNavigator();
+
+        Path path = new Path();
+        path.add(new Waypoint(200, 0));
+
+        navigator.followPath(path);
+        Assertions.assertFalse(navigator.waitForStop(300));
+
+        navigator.stop();
+
+        Assertions.assertTrue(navigator.waitForStop(0));
+        Assertions.assertFalse(navigator.getMoveController().isMoving());
+        Assertions.assertTrue(navigator.getPoseProvider().getPose().getX() < 190);
+
+        navigator.followPath();
+
+        Assertions.assertTrue(navigator.waitForStop());
+        Assertions.assertEquals(200, navigator.getPoseProvider().getPose().getX(), 5);
+    }
+
+    @Test
+    void followPathWithPurePursuit() throws IOException {
+        MyNavigator navigator = createNavigator();
+        navigator.setPurePursuit(true);
+
+        final int[] waypointsReached = {0};
+
+        navigator.addNavigationListener(new NavigationListener() {
+            @Override
+            public void atWaypoint(Waypoint waypoint, Pose pose, int sequence) {
+                waypointsReached[0]++;
+            }
+
+            @Override
+            public void pathComplete(Waypoint waypoint, Pose pose, int sequence) {
+            }
+
+            @Override
+            public void pathInterrupted(Waypoint waypoint, Pose pose, int sequence) {
+            }
+        });
+
+        Path path = new Path();
+        path.add(new Waypoint(200, 0));
+        path.add(new Waypoint(200, 200, 180));
+
+        navigator.followPath(path);
+
+        Assertions.assertTrue(navigator.waitForStop());
+        Assertions.assertEquals(2, waypointsReached[0]);
+
+        Pose pose = navigator.getPoseProvider().getPose();
+        Assertions.assertEquals(200, pose.getX(), 10);
+        Assertions.assertEquals(200, pose.getY(), 10);
+        Assertions.assertEquals(180, Math.abs(pose.getHeading()), 5);
+    }
+
+    /**
+     * With the pilot's min radius (arcs instead of turning on the spot) the robot must still end on the last waypoint, lined up
+     */
+    @Test
+    void followPathWithPurePursuitAtMinRadius() throws IOException {
+        MyMovePilot pilot = TestUtils.createSimPilot();
+        Assertions.assertTrue(pilot.getMinRadius() > 0);
+
+        MyNavigator navigator = new MyNavigator(pilot);
+        navigator.setPurePursuit(true);
+
+        Path path = new Path();
+        path.add(new Waypoint(400, 0));
+        path.add(new Waypoint(400, 400, 90));
+
+        navigator.followPath(path);
+
+        Assertions.assertTrue(navigator.waitForStop());
+
+        Pose pose = navigator.getPoseProvider().getPose();
+        Assertions.assertEquals(400, pose.getX(), 10);
+        Assertions.assertEquals(400, pose.getY(), 10);
+        Assertions.assertEquals(90, pose.getHeading(), 5);
+    }
+
+    private static MyNavigator createNavigator() throws IOException {
+        MyMovePilot pilot = TestUtils.createSimPilot();
+        pilot.setMinRadius(0); //Rotate then travel instead of arcs
+
+        return new MyNavigator(pilot);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class OccupancyGridTest {
+
+    /**
+     * The distance transform must give the same clearances as checking every obstacle cell
+     */
+    @Test
+    void computeClearances() {
+        OccupancyGrid grid = new OccupancyGrid(1000, 600, 20);
+        Random random = new Random(1);
+
+        for (int i = 0; i < 10; i++) {
+            float x = random.nextFloat() * 1000;
+            float y = random.nextFloat() * 600;
+            grid.addObstacle(x, y, x + random.nextFloat() * 100, y + random.nextFloat() * 100);
+        }
+
+        grid.computeClearances();
+
+        for (int cell = 0; cell < grid.getNumCells(); cell++) {
+            float x = grid.getCenterX(cell);
+            float y = grid.getCenterY(cell);
+
+            float expected = Math.min(Math.min(x, 1000 - x), Math.min(y, 600 - y));
+
+            for (int obstacle = 0; obstacle < grid.getNumCells(); obstacle++) {
+                if (!grid.isObstacle(obstacle)) continue;
+
+                float dx = grid.getCenterX(obstacle) - x;
+                float dy = grid.getCenterY(obstacle) - y;
+                expected = Math.min(expected, (float) Math.sqrt(dx * dx + dy * dy));
+            }
+
+            Assertions.assertEquals(expected, grid.getClearance(cell), 0.01);
+        }
+    }
+
+    @Test
+    void getCell() {
+        OccupancyGrid grid = new OccupancyGrid(1000, 600, 20);
+
+        Assertions.assertEquals(0, grid.getCell(-10, -10));
+        Assertions.assertEquals(2 * 50 + 3, grid.getCell(70, 50));
+        Assertions.assertEquals(grid.getNumCells() - 1, grid.getCell(2000, 2000));
+
+        Assertions.assertEquals(70, grid.getCenterX(grid.getCell(65, 50)), 0.01);
+        Assertions.assertEquals(50, grid.getCenterY(grid.getCell(65, 50)), 0.01);
+    }
+}
@@ -7,8 +7,11 @@ package ev3.navigation;
 import common.TestUtils;
 import lejos.robotics.geometry.Point;
 import lejos.robotics.navigation.Pose;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 class OffsetTest {
     private static final float TOLERANCE = 0.000001F;
 
@@ -55,4 +58,43 @@ class OffsetTest {
                 new Point(0, 0), TOLERANCE
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void reverseOffset() {
+        TestUtils.assertPointEquals(
+                new Offset(1, 1).reverseOffset(new Pose(1, 1, 90)),
+                new Point(2, 0),
+                TOLERANCE
+        );
+    }
+
+    @Test
+    void fastPathMatchesOffset() {
+        Offset offset = Offset.LEFT_COLOR_SENSOR;
+        Random random = new Random(2018);
+
+        int numPoses = 1000;
+        float[] xs = new float[numPoses];
+        float[] ys = new float[numPoses];
+        float[] headings = new float[numPoses];
+
+        for (int i = 0; i < numPoses; i++) {
+            xs[i] = random.nextFloat() * 2000;
+            ys[i] = random.nextFloat() * 1000;
+            headings[i] = random.nextFloat() * 720 - 360;
+        }
+
+        float[] resultXs = new float[numPoses];
+        float[] resultYs = new float[numPoses];
+        offset.offset(xs, ys, headings, numPoses, resultXs, resultYs);
+
+        for (int i = 0; i < numPoses; i++) {
+            Point expected = offset.offset(new Pose(xs[i], ys[i], headings[i]));
+
+            Assertions.assertEquals(expected.x, offset.offsetX(xs[i], headings[i]), 0.2F);
+            Assertions.assertEquals(expected.y, offset.offsetY(ys[i], headings[i]), 0.2F);
+            Assertions.assertEquals(offset.offsetX(xs[i], headings[i]), resultXs[i]);
+            Assertions.assertEquals(offset.offsetY(ys[i], headings[i]), resultYs[i]);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import lejos.robotics.navigation.Waypoint;
+import lejos.robotics.pathfinding.Path;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PathPlannerTest {
+    private static final float ROBOT_RADIUS = 50;
+
+    @Test
+    void planStraight() {
+        PathPlanner planner = new PathPlanner(createGrid(), ROBOT_RADIUS);
+
+        Waypoint goal = new Waypoint(900, 500);
+        Path path = planner.plan(100, 100, goal);
+
+        Assertions.assertNotNull(path);
+        Assertions.assertEquals(1, path.size());
+        Assertions.assertSame(goal, path.get(0));
+    }
+
+    /**
+     * The only way from one side of the wall to the other is over it
+     */
+    @Test
+    void planAroundWall() {
+        OccupancyGrid grid = createGrid();
+        grid.addObstacle(480, 0, 520, 400);
+        grid.computeClearances();
+
+        PathPlanner planner = new PathPlanner(grid, ROBOT_RADIUS);
+
+        Path path = planner.plan(300, 100, new Waypoint(700, 100));
+
+        Assertions.assertNotNull(path);
+        assertClear(grid, 300, 100, path);
+
+        //Shortest is over the corners of the inflated wall (430, 450) and (570, 450) : 2 * sqrt(130^2 + 350^2) + 140
+        Assertions.assertEquals(887, PathPlanner.getLength(300, 100, path), 30);
+    }
+
+    /**
+     * The heuristic must not overestimate the straight lines at an angle to the grid or the path isn't the shortest
+     */
+    @Test
+    void planAroundBlock() {
+        OccupancyGrid grid = createGrid();
+        grid.addObstacle(300, 300, 700, 700);
+        grid.computeClearances();
+
+        PathPlanner planner = new PathPlanner(grid, ROBOT_RADIUS);
+
+        Path path = planner.plan(100, 150, new Waypoint(900, 850));
+
+        Assertions.assertNotNull(path);
+        assertClear(grid, 100, 150, path);
+
+        //Shortest is over a corner of the inflated block (750, 250) or (250, 750) : sqrt(650^2 + 100^2) + sqrt(150^2 + 600^2)
+        Assertions.assertEquals(1276, PathPlanner.getLength(100, 150, path), 20);
+    }
+
+    @Test
+    void planFromObstacle() {
+        OccupancyGrid grid = createGrid();
+        grid.addObstacle(400, 400, 600, 600);
+        grid.computeClearances();
+
+        PathPlanner planner = new PathPlanner(grid, ROBOT_RADIUS);
+
+        //Starts in the obstacle so the first waypoint gets the robot out
+        Path path = planner.plan(500, 590, new Waypoint(500, 900));
+
+        Assertions.assertNotNull(path);
+        Assertions.assertEquals(2, path.size());
+        Assertions.assertEquals(500, path.get(0).x, 20);
+        Assertions.assertEquals(650, path.get(0).y, 20);
+    }
+
+    /**
+     * The lines the robot drives along without planning can leave an obstacle (ex. the robot is at a container) but not cross one
+     */
+    @Test
+    void isInSight() {
+        OccupancyGrid grid = createGrid();
+        grid.addObstacle(400, 400, 600, 600);
+        grid.computeClearances();
+
+        PathPlanner planner = new PathPlanner(grid, ROBOT_RADIUS);
+
+        Assertions.assertTrue(planner.isInSight(100, 100, 900, 100));
+        Assertions.assertTrue(planner.isInSight(500, 590, 500, 700));
+        Assertions.assertTrue(planner.isInSight(500, 700, 500, 620));
+        Assertions.assertFalse(planner.isInSight(500, 300, 500, 700));
+        Assertions.assertFalse(planner.isInSight(300, 300, 700, 700));
+    }
+
+    @Test
+    void planUnreachable() {
+        OccupancyGrid grid = createGrid();
+        grid.addObstacle(0, 480, 1000, 520);
+        grid.computeClearances();
+
+        PathPlanner planner = new PathPlanner(grid, ROBOT_RADIUS);
+
+        Assertions.assertNull(planner.plan(500, 200, new Waypoint(500, 800)));
+    }
+
+    private static OccupancyGrid createGrid() {
+        OccupancyGrid grid = new OccupancyGrid(1000, 1000, 20);
+        grid.computeClearances();
+        return grid;
+    }
+
+    /**
+     * Checks every 5 mm of the path that the robot is off the obstacles (within half a cell)
+     */
+    private static void assertClear(OccupancyGrid grid, float startX, float startY, Path path) {
+        for (Waypoint waypoint : path) {
+            float length = (float) Math.sqrt((waypoint.x - startX) * (waypoint.x - startX) + (waypoint.y - startY) * (waypoint.y - startY));
+
+            for (float distance = 0; distance <= length; distance += 5) {
+                float x = startX + (waypoint.x - startX) * distance / length;
+                float y = startY + (waypoint.y - startY) * distance / length;
+
+                Assertions.assertTrue(grid.getClearance(grid.getCell(x, y)) >= ROBOT_RADIUS - grid.getCellSize(), x + ", " + y);
+            }
+
+            startX = waypoint.x;
+            startY = waypoint.y;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import lejos.robotics.geometry.Point;
+import lejos.robotics.navigation.Pose;
+import lejos.robotics.navigation.Waypoint;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+class PurePursuitTest {
+
+    @Test
+    void lookaheadPointAfterCorner() {
+        PurePursuit pursuit = new PurePursuit(new Pose(0, 0, 0), Arrays.asList(new Waypoint(100, 0), new Waypoint(100, 100)), 50);
+
+        Assertions.assertEquals(0, pursuit.update(50, 0));
+        Assertions.assertEquals(150, pursuit.getRemainingDistance(), 0.01);
+
+        Point point = pursuit.getLookaheadPoint(100);
+        Assertions.assertEquals(100, point.x, 0.01);
+        Assertions.assertEquals(50, point.y, 0.01);
+    }
+
+    @Test
+    void passWaypoints() {
+        PurePursuit pursuit = new PurePursuit(new Pose(0, 0, 0), Arrays.asList(new Waypoint(100, 0), new Waypoint(100, 100)), 50);
+
+        //Cutting the corner : closer to the second segment than to the first
+        Assertions.assertEquals(1, pursuit.update(95, 10));
+        Assertions.assertFalse(pursuit.isFinished());
+
+        Assertions.assertEquals(1, pursuit.update(101, 100));
+        Assertions.assertTrue(pursuit.isFinished());
+        Assertions.assertEquals(0, pursuit.getRemainingDistance(), 0.01);
+
+        Assertions.assertEquals(0, pursuit.update(101, 100)); //Only passed once
+    }
+
+    /**
+     * A waypoint with a heading is approached along the heading
+     */
+    @Test
+    void approachPoint() {
+        PurePursuit pursuit = new PurePursuit(new Pose(0, 0, 0), Arrays.asList(new Waypoint(100, 100, 90)), 50);
+
+        Assertions.assertEquals(0, pursuit.update(0, 0));
+        Assertions.assertEquals(Math.sqrt(100 * 100 + 50 * 50) + 50, pursuit.getRemainingDistance(), 0.01);
+
+        //Counts as a waypoint only at the end
+        Assertions.assertEquals(0, pursuit.update(100, 50));
+
+        Point point = pursuit.getLookaheadPoint(20);
+        Assertions.assertEquals(100, point.x, 0.01);
+        Assertions.assertEquals(70, point.y, 0.01);
+    }
+
+    @Test
+    void getCurvature() {
+        //Circle through the origin and (100, 100) tangent to the x axis : centered on (0, 100)
+        Assertions.assertEquals(0.01, PurePursuit.getCurvature(new Pose(0, 0, 0), new Point(100, 100)), 0.0001);
+        Assertions.assertEquals(-0.01, PurePursuit.getCurvature(new Pose(0, 0, 0), new Point(100, -100)), 0.0001);
+        Assertions.assertEquals(0, PurePursuit.getCurvature(new Pose(0, 0, 0), new Point(100, 0)), 0.0001);
+    }
+}
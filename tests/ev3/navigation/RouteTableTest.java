@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package ev3.navigation;
+
+import lejos.robotics.navigation.Pose;
+import lejos.robotics.navigation.Waypoint;
+import lejos.robotics.pathfinding.Path;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+class RouteTableTest {
+    private static final float ROBOT_RADIUS = 50;
+    private static final float MAX_CONNECTOR_LENGTH = 100;
+
+    private static final List<Waypoint> ORIGINS = Arrays.asList(new Waypoint(300, 100), new Waypoint(300, 800));
+    private static final List<Waypoint> TARGETS = Arrays.asList(new Waypoint(700, 100), new Waypoint(700, 800));
+
+    /**
+     * The routes are the same as the ones the planner finds
+     */
+    @Test
+    void generate() {
+        PathPlanner planner = new PathPlanner(createGrid(), ROBOT_RADIUS);
+        RouteTable table = RouteTableGenerator.generate(planner, ORIGINS, TARGETS);
+
+        for (Waypoint origin : ORIGINS) {
+            for (Waypoint target : TARGETS) {
+                assertSamePath(planner.plan(origin.x, origin.y, target), table.getRoute(new Pose(origin.x, origin.y, 0), target, MAX_CONNECTOR_LENGTH));
+            }
+        }
+    }
+
+    @Test
+    void writeAndLoad() throws IOException {
+        PathPlanner planner = new PathPlanner(createGrid(), ROBOT_RADIUS);
+        RouteTable table = RouteTableGenerator.generate(planner, ORIGINS, TARGETS);
+
+        File file = File.createTempFile("routes", ".bin");
+        file.deleteOnExit();
+
+        table.write(file);
+        RouteTable loaded = RouteTable.load(file);
+
+        Assertions.assertNotNull(loaded);
+        Assertions.assertTrue(loaded.matches(ORIGINS, TARGETS));
+        Assertions.assertFalse(loaded.matches(ORIGINS, Arrays.asList(new Waypoint(700, 100), new Waypoint(700, 700))));
+
+        for (Waypoint origin : ORIGINS) {
+            for (Waypoint target : TARGETS) {
+                Pose pose = new Pose(origin.x, origin.y, 0);
+                assertSamePath(table.getRoute(pose, target, MAX_CONNECTOR_LENGTH), loaded.getRoute(pose, target, MAX_CONNECTOR_LENGTH));
+            }
+        }
+
+        Assertions.assertNull(RouteTable.load(new File(file.getPath() + ".missing")));
+    }
+
+    /**
+     * A truncated or corrupt file is ignored rather than crashing the Brain
+     */
+    @Test
+    void loadCorrupt() throws IOException {
+        PathPlanner planner = new PathPlanner(createGrid(), ROBOT_RADIUS);
+        RouteTable table = RouteTableGenerator.generate(planner, ORIGINS, TARGETS);
+
+        File file = File.createTempFile("routes", ".bin");
+        file.deleteOnExit();
+
+        table.write(file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+        Assertions.assertNull(RouteTable.load(file));
+
+        //Huge number of origins
+        bytes[8] = 0x7F;
+        Files.write(file.toPath(), bytes);
+        Assertions.assertNull(RouteTable.load(file));
+
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        Assertions.assertNull(RouteTable.load(file));
+    }
+
+    @Test
+    void getRoute() {
+        PathPlanner planner = new PathPlanner(createGrid(), ROBOT_RADIUS);
+        RouteTable table = RouteTableGenerator.generate(planner, ORIGINS, TARGETS);
+
+        //Close to the first origin : the route around the wall ends with the target itself (heading included)
+        Waypoint target = new Waypoint(700, 100, 90);
+        Path route = table.getRoute(new Pose(320, 150, 0), target, MAX_CONNECTOR_LENGTH);
+
+        Assertions.assertNotNull(route);
+        Assertions.assertTrue(route.size() > 1);
+        Assertions.assertSame(target, route.get(route.size() - 1));
+        Assertions.assertEquals(90, route.get(route.size() - 1).getHeading(), 0.01);
+
+        //Too far from both origins and not a target of the table
+        Assertions.assertNull(table.getRoute(new Pose(300, 450, 0), target, MAX_CONNECTOR_LENGTH));
+        Assertions.assertNull(table.getRoute(new Pose(300, 100, 0), new Waypoint(700, 450), MAX_CONNECTOR_LENGTH));
+    }
+
+    /**
+     * Same as PathPlannerTest with a wall in the middle so that the routes have waypoints
+     */
+    private static OccupancyGrid createGrid() {
+        OccupancyGrid grid = new OccupancyGrid(1000, 1000, 20);
+        grid.addObstacle(480, 0, 520, 400);
+        grid.computeClearances();
+        return grid;
+    }
+
+    private static void assertSamePath(Path expected, Path actual) {
+        Assertions.assertNotNull(expected);
+        Assertions.assertNotNull(actual);
+        Assertions.assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i).x, actual.get(i).x, 0.01);
+            Assertions.assertEquals(expected.get(i).y, actual.get(i).y, 0.01);
+        }
+    }
+}
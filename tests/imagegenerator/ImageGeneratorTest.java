@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package imagegenerator;
+
+import common.mapping.DirtyRegions;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+
+class ImageGeneratorTest {
+
+    /**
+     * The indexed parallel painting must give exactly the image of painting every region in order on every pixel
+     */
+    @Test
+    void paintMatchesPaintingEveryRegion() {
+        int width = (int) ImageGenerator.boundingRectangle.getWidth();
+        int height = (int) ImageGenerator.boundingRectangle.getHeight();
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ImageGenerator.paint(image, Collections.singletonList(new DirtyRegions.Box(0, 0, width - 1, height - 1)),
+                ImageGenerator.createRegionIndex());
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int expectedColor = ImageGenerator.boundingRectangle.getDisplayColor().getRGB();
+
+                for (ColorRegion region : ImageGenerator.regions) {
+                    if (region.contains(x, y)) expectedColor = region.getDisplayColor().getRGB();
+                }
+
+                if (expectedColor != image.getRGB(x, y)) {
+                    Assertions.fail("Pixel (" + x + ", " + y + ") is " + Integer.toHexString(image.getRGB(x, y)) +
+                            " instead of " + Integer.toHexString(expectedColor));
+                }
+            }
+        }
+    }
+}
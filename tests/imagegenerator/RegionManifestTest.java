@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) [2018] [Jonathan McIntosh, Martin Staadecker, Ryan Zazo]
+ */
+
+package imagegenerator;
+
+import common.mapping.DirtyRegions;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class RegionManifestTest {
+    private static final ColorRegion BLUE = new Rectangle(Color.BLUE, 10, 20, 30, 40);
+    private static final ColorRegion BLACK = new Rectangle(Color.BLACK, 100.5F, 0, 20, 50);
+    private static final ColorRegion MOVED_BLACK = new Rectangle(Color.BLACK, 200.5F, 0, 20, 50);
+
+    @Test
+    void unchangedRegions() throws IOException {
+        File file = File.createTempFile("map", ".manifest");
+        file.deleteOnExit();
+
+        RegionManifest.create(300, 100, Arrays.asList(BLUE, BLACK)).save(file);
+
+        RegionManifest previous = RegionManifest.load(file);
+        Assertions.assertNotNull(previous);
+
+        List<DirtyRegions.Box> changedBoxes = RegionManifest.create(300, 100, Arrays.asList(BLUE, BLACK)).getChangedBoxes(previous);
+        Assertions.assertEquals(Collections.emptyList(), changedBoxes);
+    }
+
+    @Test
+    void movedRegion() {
+        RegionManifest previous = RegionManifest.create(300, 100, Arrays.asList(BLUE, BLACK));
+
+        List<DirtyRegions.Box> changedBoxes = RegionManifest.create(300, 100, Arrays.asList(BLUE, MOVED_BLACK)).getChangedBoxes(previous);
+
+        Assertions.assertEquals(Arrays.asList(
+                new DirtyRegions.Box(100, 0, 121, 50),
+                new DirtyRegions.Box(200, 0, 221, 50)
+        ), changedBoxes);
+    }
+
+    @Test
+    void reorderedRegions() {
+        RegionManifest previous = RegionManifest.create(300, 100, Arrays.asList(BLUE, BLACK));
+
+        //Painting order changed so one of the two regions must be repainted
+        List<DirtyRegions.Box> changedBoxes = RegionManifest.create(300, 100, Arrays.asList(BLACK, BLUE)).getChangedBoxes(previous);
+
+        Assertions.assertNotNull(changedBoxes);
+        Assertions.assertEquals(2, changedBoxes.size());
+    }
+
+    @Test
+    void resizedImage() {
+        RegionManifest previous = RegionManifest.create(300, 100, Arrays.asList(BLUE, BLACK));
+
+        Assertions.assertNull(RegionManifest.create(400, 100, Arrays.asList(BLUE, BLACK)).getChangedBoxes(previous));
+    }
+}